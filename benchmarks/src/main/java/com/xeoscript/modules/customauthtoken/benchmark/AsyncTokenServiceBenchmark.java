@@ -0,0 +1,127 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.services.AsyncTokenService;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class AsyncTokenServiceBenchmark {
+
+    private static final int CONCURRENT_REQUESTS = 1024;
+
+    private static final int HOT_TOKENS = 128;
+
+    @Param({"16", "64"})
+    public int asyncPoolSize;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+
+    private TokenService tokenService;
+
+    private AsyncTokenService asyncTokenService;
+
+    private ExecutorService callerThreads;
+
+    private List<ValidateTokenRequest> requests;
+
+    private List<Callable<ValidationResult>> blockingCalls;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.custom-auth-token.async-pool-size", asyncPoolSize);
+        overrides.put("spring.custom-auth-token.async-virtual-threads", virtualThreads);
+        context = BenchmarkContext.start(false, overrides);
+        tokenService = context.getBean(TokenService.class);
+        asyncTokenService = context.getBean(AsyncTokenService.class);
+        callerThreads = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+
+        List<ValidateTokenRequest> hotTokens = new ArrayList<>(HOT_TOKENS);
+        for (int i = 0; i < HOT_TOKENS; i++) {
+            String parameter = "async-param-" + i;
+            GeneratedToken token = tokenService.generate(TokenRequest.builder()
+                    .parameter(parameter)
+                    .unlimitedUsage(true)
+                    .validityDuration(Duration.ofDays(1))
+                    .build());
+            hotTokens.add(ValidateTokenRequest.builder()
+                    .parameter(parameter)
+                    .token(token.getToken())
+                    .build());
+        }
+
+        requests = new ArrayList<>(CONCURRENT_REQUESTS);
+        blockingCalls = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            ValidateTokenRequest request = hotTokens.get(i % HOT_TOKENS);
+            requests.add(request);
+            blockingCalls.add(() -> tokenService.validate(request));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callerThreads.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public void blockingThreadPerRequest(Blackhole blackhole) throws InterruptedException, ExecutionException {
+        for (Future<ValidationResult> result : callerThreads.invokeAll(blockingCalls)) {
+            blackhole.consume(result.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public void asyncBoundedExecutor(Blackhole blackhole) {
+        List<CompletableFuture<ValidationResult>> futures = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (ValidateTokenRequest request : requests) {
+            futures.add(asyncTokenService.validate(request));
+        }
+        for (CompletableFuture<ValidationResult> future : futures) {
+            blackhole.consume(future.join());
+        }
+    }
+}
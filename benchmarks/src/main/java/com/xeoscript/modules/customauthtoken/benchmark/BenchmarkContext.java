@@ -0,0 +1,45 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class BenchmarkContext {
+
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(boolean hashing) {
+        return start(hashing, Collections.emptyMap());
+    }
+
+    public static ConfigurableApplicationContext start(boolean hashing, Map<String, Object> overrides) {
+        String database = "bench" + DATABASE_SEQUENCE.incrementAndGet();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url",
+                "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.hikari.maximum-pool-size", 80);
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.open-in-view", false);
+        properties.put("spring.custom-auth-token.hashing-enabled", hashing);
+        properties.putAll(overrides);
+
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TokenBulkGenerationBenchmark {
+
+    private static final int TOKENS_PER_INVOCATION = 10_000;
+
+    @Param({"false", "true"})
+    public boolean hashing;
+
+    @Param({"100", "1000", "5000"})
+    public int generationBatchSize;
+
+    private ConfigurableApplicationContext context;
+
+    private TokenService tokenService;
+
+    private List<TokenRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(hashing, Collections.singletonMap(
+                "spring.custom-auth-token.generation-batch-size", generationBatchSize));
+        tokenService = context.getBean(TokenService.class);
+
+        requests = new ArrayList<>(TOKENS_PER_INVOCATION);
+        for (int i = 0; i < TOKENS_PER_INVOCATION; i++) {
+            requests.add(TokenRequest.builder()
+                    .parameter("campaign-param-" + i)
+                    .tokenType("CAMPAIGN")
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS_PER_INVOCATION)
+    public void generateOneByOne(Blackhole blackhole) {
+        for (TokenRequest request : requests) {
+            blackhole.consume(tokenService.generate(request));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS_PER_INVOCATION)
+    public void generateAll(Blackhole blackhole) {
+        blackhole.consume(tokenService.generateAll(requests));
+    }
+}
@@ -0,0 +1,70 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TokenCleanupBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int tableRows;
+
+    @Param({"1000"})
+    public int expiredRowsPerInvocation;
+
+    @Param({"false", "true"})
+    public boolean hashing;
+
+    private ConfigurableApplicationContext context;
+
+    private TokenService tokenService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(hashing);
+        tokenService = context.getBean(TokenService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        TokenTableSeeder.seed(jdbcTemplate, "live-", tableRows, hashing, LocalDateTime.now().plusDays(1));
+    }
+
+    @Setup(Level.Invocation)
+    public void seedExpired() {
+        TokenTableSeeder.seed(jdbcTemplate, "expired-", expiredRowsPerInvocation, hashing,
+                LocalDateTime.now().minusMinutes(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long cleanupExpired() {
+        return tokenService.cleanupExpired();
+    }
+}
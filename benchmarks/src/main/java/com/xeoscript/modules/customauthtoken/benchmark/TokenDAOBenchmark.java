@@ -0,0 +1,108 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.util.TokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TokenDAOBenchmark {
+
+    private static final int LOOKUP_SAMPLE_SIZE = 1024;
+
+    private static final String SAMPLE_SQL = "SELECT TOKEN_VALUE, PARAMETER_VALUE FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE MOD(ID, ?) = 0";
+
+    private static final String METADATA = String.join("", Collections.nCopies(100, "metadata-payload-"));
+
+    @Param({"10000", "1000000"})
+    public int tableRows;
+
+    @Param({"jpa", "jdbc"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+
+    private TokenDAO tokenDAO;
+
+    private TokenGenerator tokenGenerator;
+
+    private List<String[]> samples;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(false, Collections.singletonMap("spring.custom-auth-token.store", store));
+        tokenDAO = context.getBean(TokenDAO.class);
+        tokenGenerator = context.getBean(TokenGenerator.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        TokenTableSeeder.seed(jdbcTemplate, "seed-", tableRows, false, LocalDateTime.now().plusDays(1));
+        jdbcTemplate.update("UPDATE CUSTOM_AUTH_TOKEN SET METADATA = ?, USAGE_LIMIT = NULL", METADATA);
+
+        samples = jdbcTemplate.query(SAMPLE_SQL,
+                (resultSet, rowNum) -> new String[]{resultSet.getString(1), resultSet.getString(2)},
+                Math.max(1, tableRows / LOOKUP_SAMPLE_SIZE));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TokenEntity findByTokenValue() {
+        return tokenDAO.findByTokenValue(randomSample()[0]);
+    }
+
+    @Benchmark
+    public ValidationOutcome validateAndIncrement() {
+        String[] sample = randomSample();
+        return tokenDAO.validateAndIncrement(sample[0], sample[0], sample[1], null, LocalDateTime.now());
+    }
+
+    @Benchmark
+    public TokenEntity save() {
+        TokenEntity entity = new TokenEntity();
+        entity.setTokenValue(tokenGenerator.generate(32));
+        entity.setParameterValue("bench-param");
+        entity.setTokenType("BENCH");
+        entity.setStatus(TokenStatus.ACTIVE);
+        entity.setExpiryTime(LocalDateTime.now().plusDays(1));
+        entity.setUsageCount(0);
+        entity.setHashingMode("NONE");
+        entity.setMetadata(METADATA);
+        tokenDAO.save(entity);
+        return entity;
+    }
+
+    private String[] randomSample() {
+        return samples.get(ThreadLocalRandom.current().nextInt(samples.size()));
+    }
+}
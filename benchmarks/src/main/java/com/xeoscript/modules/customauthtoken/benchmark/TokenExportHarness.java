@@ -0,0 +1,179 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.export.TokenExportFormat;
+import com.xeoscript.modules.customauthtoken.export.TokenExportService;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public final class TokenExportHarness {
+
+    private static final int DEFAULT_ROWS = 2_000_000;
+
+    private static final long DEFAULT_MAX_HEAP_GROWTH_MB = 64;
+
+    private static final int HEAP_SAMPLE_INTERVAL = 250_000;
+
+    private TokenExportHarness() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        long maxHeapGrowthMb = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MAX_HEAP_GROWTH_MB;
+
+        boolean violated = false;
+        for (String store : new String[]{"jpa", "jdbc"}) {
+            for (TokenExportFormat format : TokenExportFormat.values()) {
+                ExportReport report = run(store, format, rows, maxHeapGrowthMb);
+                System.out.println(report);
+                violated |= !report.violations.isEmpty();
+            }
+        }
+
+        if (violated) {
+            System.exit(1);
+        }
+    }
+
+    public static ExportReport run(String store, TokenExportFormat format, int rows, long maxHeapGrowthMb) {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.custom-auth-token.store", store);
+
+        ExportReport report = new ExportReport(store, format, rows);
+        ConfigurableApplicationContext context = BenchmarkContext.start(false, overrides);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        try {
+            TokenExportService exportService = context.getBean(TokenExportService.class);
+
+            TokenTableSeeder.seed(jdbcTemplate, "export-", rows, false, LocalDateTime.now().plusHours(1));
+            TokenExportQuery query = TokenExportQuery.builder().tokenType("SEED").build();
+
+            long started = System.nanoTime();
+            List<TokenStatusCount> counts = exportService.countByTypeAndStatus(query);
+            report.reportNanos = System.nanoTime() - started;
+            report.reportedRows = counts.stream().mapToLong(TokenStatusCount::getCount).sum();
+
+            HeapSamplingWriter writer = new HeapSamplingWriter();
+            started = System.nanoTime();
+            report.exportedRows = exportService.export(query, format, writer);
+            report.exportNanos = System.nanoTime() - started;
+            report.bytes = writer.bytes;
+            report.heapGrowthBytes = writer.peakUsed - writer.baselineUsed;
+
+            if (report.exportedRows != rows) {
+                report.violations.add(report.exportedRows + " rows exported, expected " + rows);
+            }
+            if (report.reportedRows != rows) {
+                report.violations.add(report.reportedRows + " rows counted, expected " + rows);
+            }
+            if (report.heapGrowthBytes > maxHeapGrowthMb * 1024 * 1024) {
+                report.violations.add("retained heap grew by " + report.heapGrowthBytes / (1024 * 1024)
+                        + " MB during export, limit " + maxHeapGrowthMb + " MB");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+            context.close();
+        }
+        return report;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class HeapSamplingWriter extends Writer {
+
+        private final long baselineUsed = usedHeapAfterGc();
+
+        private long peakUsed = baselineUsed;
+
+        private long bytes;
+
+        private long lines;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            bytes += length;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n' && ++lines % HEAP_SAMPLE_INTERVAL == 0) {
+                    peakUsed = Math.max(peakUsed, usedHeapAfterGc());
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static final class ExportReport {
+
+        private final String store;
+
+        private final TokenExportFormat format;
+
+        private final int rows;
+
+        private final List<String> violations = new ArrayList<>();
+
+        private long exportedRows;
+
+        private long reportedRows;
+
+        private long bytes;
+
+        private long exportNanos;
+
+        private long reportNanos;
+
+        private long heapGrowthBytes;
+
+        private ExportReport(String store, TokenExportFormat format, int rows) {
+            this.store = store;
+            this.format = format;
+            this.rows = rows;
+        }
+
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("%-12s %-7s rows=%d%n", store, format, rows));
+            builder.append(String.format("  export: %d rows, %.1f MB in %.1f ms (%.0f rows/s)%n",
+                    exportedRows, bytes / (1024.0 * 1024.0), millis(exportNanos),
+                    exportNanos > 0 ? exportedRows / (exportNanos / 1e9) : 0));
+            builder.append(String.format("  retained heap growth during export: %.1f MB%n",
+                    heapGrowthBytes / (1024.0 * 1024.0)));
+            builder.append(String.format("  type/status report: %d rows in %.1f ms%n", reportedRows,
+                    millis(reportNanos)));
+            builder.append(violations.isEmpty() ? "  OK" : "  VIOLATIONS " + violations);
+            return builder.toString();
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
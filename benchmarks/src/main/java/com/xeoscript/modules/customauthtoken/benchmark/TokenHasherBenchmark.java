@@ -0,0 +1,165 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.util.HexCodec;
+import com.xeoscript.modules.customauthtoken.util.TokenGenerator;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class TokenHasherBenchmark {
+
+    private static final int CONTENDED_THREADS = 8;
+
+    private final TokenHasher tokenHasher = new TokenHasher();
+
+    private final TokenGenerator tokenGenerator = new TokenGenerator();
+
+    private final LegacyTokenHasher legacyTokenHasher = new LegacyTokenHasher();
+
+    private final LegacyTokenGenerator legacyTokenGenerator = new LegacyTokenGenerator();
+
+    private String rawToken;
+
+    private String hashedToken;
+
+    private byte[] hashBytes;
+
+    @Setup
+    public void setUp() {
+        rawToken = tokenGenerator.generate(32);
+        hashedToken = tokenHasher.hash(rawToken);
+        hashBytes = tokenHasher.hashBytes(rawToken);
+    }
+
+    @Benchmark
+    public String hash() {
+        return tokenHasher.hash(rawToken);
+    }
+
+    @Benchmark
+    public String hashLegacy() {
+        return legacyTokenHasher.hash(rawToken);
+    }
+
+    /**
+     * The digest alone, without hex encoding: the reused per-thread instance and ASCII buffer against a
+     * MessageDigest.getInstance lookup and a getBytes copy on every call.
+     */
+    @Benchmark
+    public byte[] digest() {
+        return TokenHasher.digest(rawToken);
+    }
+
+    @Benchmark
+    public byte[] digestLegacy() {
+        return legacyTokenHasher.digest(rawToken);
+    }
+
+    /**
+     * The same comparison with several threads hashing at once, where the provider lookup of the legacy hasher is
+     * shared and the per-thread digests are not.
+     */
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public String hashContended() {
+        return tokenHasher.hash(rawToken);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public String hashContendedLegacy() {
+        return legacyTokenHasher.hash(rawToken);
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexCodec.encode(hashBytes);
+    }
+
+    @Benchmark
+    public String encodeLegacy() {
+        return bytesToHex(hashBytes);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return tokenHasher.matches(rawToken, hashedToken);
+    }
+
+    @Benchmark
+    public boolean matchesLegacy() {
+        return legacyTokenHasher.matches(rawToken, hashedToken);
+    }
+
+    @Benchmark
+    public String generate() {
+        return tokenGenerator.generate(32);
+    }
+
+    @Benchmark
+    public String generateLegacy() {
+        return legacyTokenGenerator.generate(32);
+    }
+
+    static final class LegacyTokenHasher {
+
+        String hash(String rawToken) {
+            return bytesToHex(digest(rawToken));
+        }
+
+        byte[] digest(String rawToken) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                return digest.digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 algorithm not available", e);
+            }
+        }
+
+        boolean matches(String rawToken, String hashedToken) {
+            byte[] computedHash = hash(rawToken).getBytes(StandardCharsets.UTF_8);
+            byte[] expectedHash = hashedToken.getBytes(StandardCharsets.UTF_8);
+            return MessageDigest.isEqual(computedHash, expectedHash);
+        }
+    }
+
+    static final class LegacyTokenGenerator {
+
+        private final SecureRandom secureRandom = new SecureRandom();
+
+        String generate(int byteLength) {
+            byte[] bytes = new byte[byteLength];
+            secureRandom.nextBytes(bytes);
+            return bytesToHex(bytes);
+        }
+    }
+
+    private static String bytesToHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import org.h2.engine.SessionLocal;
+import org.h2.index.Index;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk size of every secondary index on {@code CUSTOM_AUTH_TOKEN}. PostgreSQL reports it through
+ * {@code pg_relation_size}; H2 has no SQL for it, so the index's MVStore map is read directly after a
+ * checkpoint, which only reports sizes for file-backed databases.
+ */
+public final class TokenIndexSizes {
+
+    private static final String POSTGRES_SQL = "SELECT indexname, pg_relation_size(quote_ident(indexname)::regclass)"
+            + " FROM pg_indexes WHERE tablename = 'custom_auth_token'";
+
+    private static final String H2_INDEXES_SQL = "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES"
+            + " WHERE TABLE_NAME = 'CUSTOM_AUTH_TOKEN' AND INDEX_TYPE_NAME <> 'PRIMARY KEY'";
+
+    private TokenIndexSizes() {
+    }
+
+    public static Map<String, Long> measure(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        if (product.contains("postgresql")) {
+            return postgres(connection);
+        }
+        if (product.equals("h2")) {
+            return h2(connection);
+        }
+        throw new IllegalStateException("Index sizes are not supported on " + product);
+    }
+
+    private static Map<String, Long> postgres(Connection connection) throws SQLException {
+        Map<String, Long> sizes = new TreeMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(POSTGRES_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                sizes.put(resultSet.getString(1).toUpperCase(Locale.ROOT), resultSet.getLong(2));
+            }
+        }
+        return sizes;
+    }
+
+    private static Map<String, Long> h2(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT");
+        }
+
+        SessionLocal session = (SessionLocal) connection.unwrap(JdbcConnection.class).getSession();
+        MVStore store = session.getDatabase().getStore().getMvStore();
+        Map<String, Long> sizes = new TreeMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(H2_INDEXES_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                Index index = session.getDatabase().getMainSchema().findIndex(session, name);
+                String mapName = "index." + index.getId();
+                if (store.hasMap(mapName)) {
+                    MVMap<Object, Object> map = store.openMap(mapName);
+                    sizes.put(name, map.getRootPage().getDiskSpaceUsed());
+                }
+            }
+        }
+        return sizes;
+    }
+}
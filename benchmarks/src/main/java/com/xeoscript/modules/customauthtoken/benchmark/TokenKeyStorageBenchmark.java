@@ -0,0 +1,102 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.jpa.services.TokenKeyMigrator;
+import org.h2.tools.DeleteDbFiles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TokenKeyStorageBenchmark {
+
+    private static final int LOOKUP_SAMPLE_SIZE = 1024;
+
+    private static final String SAMPLE_SQL = "SELECT TOKEN_VALUE FROM CUSTOM_AUTH_TOKEN WHERE MOD(ID, ?) = 0";
+
+    private static final String DATABASE_NAME = "key-storage";
+
+    @Param({"100000", "1000000", "10000000"})
+    public int tableRows;
+
+    @Param({"false", "true"})
+    public boolean hashing;
+
+    @Param({"false", "true"})
+    public boolean compactTokenKey;
+
+    private ConfigurableApplicationContext context;
+
+    private TokenDAO tokenDAO;
+
+    private List<String> storedValues;
+
+    private Path databaseDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("token-key-storage");
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.custom-auth-token.compact-token-key", compactTokenKey);
+        overrides.put("spring.datasource.url", "jdbc:h2:file:" + databaseDirectory.resolve(DATABASE_NAME)
+                + ";LOCK_TIMEOUT=10000");
+        context = BenchmarkContext.start(hashing, overrides);
+        tokenDAO = context.getBean(TokenDAO.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        TokenTableSeeder.seed(jdbcTemplate, "seed-", tableRows, hashing, LocalDateTime.now().plusDays(1));
+
+        long started = System.nanoTime();
+        long migrated = context.getBean(TokenKeyMigrator.class).migrate();
+        long migrationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        storedValues = jdbcTemplate.queryForList(SAMPLE_SQL, String.class,
+                Math.max(1, tableRows / LOOKUP_SAMPLE_SIZE));
+
+        Map<String, Long> indexSizes = jdbcTemplate.execute(
+                (ConnectionCallback<Map<String, Long>>) TokenIndexSizes::measure);
+        System.out.printf("%nIndex sizes in bytes %s (%d rows migrated in %d ms)%n",
+                indexSizes, migrated, migrationMillis);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        DeleteDbFiles.execute(databaseDirectory.toString(), DATABASE_NAME, true);
+    }
+
+    @Benchmark
+    public TokenEntity lookup() {
+        String storedValue = storedValues.get(ThreadLocalRandom.current().nextInt(storedValues.size()));
+        return tokenDAO.findByTokenValue(storedValue);
+    }
+}
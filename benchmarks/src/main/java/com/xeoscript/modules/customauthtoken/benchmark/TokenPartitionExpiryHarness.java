@@ -0,0 +1,193 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import com.xeoscript.modules.customauthtoken.services.internal.ExpiredTokenCleanupScheduler;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+public final class TokenPartitionExpiryHarness {
+
+    private static final int DEFAULT_EXPIRED_ROWS = 500_000;
+
+    private static final int DEFAULT_LIVE_ROWS = 500_000;
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private static final int EXPIRED_HOURS = 6;
+
+    private static final int PROBE_TOKENS = 1_000;
+
+    private TokenPartitionExpiryHarness() {
+    }
+
+    public static void main(String[] args) {
+        int expiredRows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EXPIRED_ROWS;
+        int liveRows = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LIVE_ROWS;
+
+        boolean violated = false;
+        for (String store : new String[]{"jdbc", "partitioned"}) {
+            ExpiryReport report = run(store, expiredRows, liveRows);
+            System.out.println(report);
+            violated |= !report.violations.isEmpty();
+        }
+
+        if (violated) {
+            System.exit(1);
+        }
+    }
+
+    public static ExpiryReport run(String store, int expiredRows, int liveRows) {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.custom-auth-token.store", store);
+        overrides.put("spring.custom-auth-token.partition-interval", "HOURLY");
+        overrides.put("spring.custom-auth-token.partition-retention-count", 1);
+        overrides.put("spring.custom-auth-token.cleanup-pause-ms", 0);
+        overrides.put("spring.custom-auth-token.cleanup-max-runtime-seconds", 3600);
+
+        ExpiryReport report = new ExpiryReport(store, expiredRows, liveRows);
+        ConfigurableApplicationContext context = BenchmarkContext.start(false, overrides);
+        try {
+            TokenService tokenService = context.getBean(TokenService.class);
+            TokenDAO tokenDAO = context.getBean(TokenDAO.class);
+            TokenQueryCounter queryCounter = context.getBean(TokenQueryCounter.class);
+            ExpiredTokenCleanupScheduler cleanup = context.getBean(ExpiredTokenCleanupScheduler.class);
+
+            LocalDateTime now = LocalDateTime.now();
+            seed(tokenDAO, "expired-", expiredRows, hour -> now.minusHours(EXPIRED_HOURS + hour));
+            seed(tokenDAO, "live-", liveRows, hour -> now.plusMinutes(30).plusHours(hour));
+
+            List<ValidateTokenRequest> probes = new ArrayList<>(PROBE_TOKENS);
+            for (int i = 0; i < PROBE_TOKENS; i++) {
+                GeneratedToken token = tokenService.generate(TokenRequest.builder()
+                        .parameter("probe-param-" + i)
+                        .validityDuration(Duration.ofHours(1))
+                        .build());
+                probes.add(ValidateTokenRequest.builder()
+                        .parameter("probe-param-" + i)
+                        .token(token.getToken())
+                        .build());
+            }
+
+            queryCounter.reset();
+            long started = System.nanoTime();
+            cleanup.runOnce();
+            report.cleanupNanos = System.nanoTime() - started;
+            report.cleanupQueries = queryCounter.reset();
+            report.deleted = cleanup.getLastPassDeleted();
+
+            started = System.nanoTime();
+            for (ValidateTokenRequest probe : probes) {
+                if (!tokenService.validate(probe).isValid()) {
+                    report.invalidProbes++;
+                }
+            }
+            report.lookupNanos = System.nanoTime() - started;
+            report.lookupQueries = queryCounter.reset();
+
+            long remaining = tokenDAO.countExpired(now.minusHours(EXPIRED_HOURS - 1));
+            if (report.deleted != expiredRows) {
+                report.violations.add(report.deleted + " rows reclaimed, expected " + expiredRows);
+            }
+            if (remaining != 0) {
+                report.violations.add(remaining + " expired rows left after cleanup");
+            }
+            if (report.invalidProbes > 0) {
+                report.violations.add(report.invalidProbes + " live tokens failed validation after cleanup");
+            }
+        } finally {
+            context.close();
+        }
+        return report;
+    }
+
+    private static void seed(TokenDAO tokenDAO, String prefix, int rows, IntFunction<LocalDateTime> expiry) {
+        List<TokenEntity> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            TokenEntity entity = new TokenEntity();
+            entity.setTokenValue(prefix + Long.toHexString(Double.doubleToLongBits(Math.random())) + "-" + i);
+            entity.setParameterValue("seed-param-" + (i % 100_000));
+            entity.setTokenType("SEED");
+            entity.setStatus(TokenStatus.ACTIVE);
+            entity.setExpiryTime(expiry.apply(i % 4));
+            entity.setUsageLimit(1);
+            entity.setHashingMode("NONE");
+            batch.add(entity);
+            if (batch.size() == SEED_BATCH_SIZE) {
+                tokenDAO.saveAll(batch);
+                batch = new ArrayList<>(SEED_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            tokenDAO.saveAll(batch);
+        }
+    }
+
+    public static final class ExpiryReport {
+
+        private final String store;
+
+        private final int expiredRows;
+
+        private final int liveRows;
+
+        private final List<String> violations = new ArrayList<>();
+
+        private long deleted;
+
+        private long cleanupNanos;
+
+        private long cleanupQueries;
+
+        private long lookupNanos;
+
+        private long lookupQueries;
+
+        private int invalidProbes;
+
+        private ExpiryReport(String store, int expiredRows, int liveRows) {
+            this.store = store;
+            this.expiredRows = expiredRows;
+            this.liveRows = liveRows;
+        }
+
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("%-12s expired=%d live=%d%n", store, expiredRows, liveRows));
+            builder.append(String.format("  cleanup: reclaimed=%d in %.1f ms (%.0f rows/s), %d statements%n",
+                    deleted, millis(cleanupNanos), cleanupNanos > 0 ? deleted / (cleanupNanos / 1e9) : 0,
+                    cleanupQueries));
+            builder.append(String.format("  lookup after cleanup: %.1f us/validate, %.2f statements/validate%n",
+                    micros(lookupNanos) / PROBE_TOKENS, (double) lookupQueries / PROBE_TOKENS));
+            builder.append(violations.isEmpty() ? "  OK" : "  VIOLATIONS " + violations);
+            return builder.toString();
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        private static double micros(long nanos) {
+            return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+}
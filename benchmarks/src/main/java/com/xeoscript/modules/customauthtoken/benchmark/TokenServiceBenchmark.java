@@ -0,0 +1,195 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import com.xeoscript.modules.customauthtoken.util.TokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    private static final int HOT_TOKENS = 128;
+
+    private static final int INVALIDATE_POOL_SIZE = 2_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int tableRows;
+
+    @Param({"false", "true"})
+    public boolean hashing;
+
+    @Param({"SAME", "DISTINCT"})
+    public TokenSharing sharing;
+
+    private final AtomicInteger threadSlots = new AtomicInteger();
+
+    private ConfigurableApplicationContext context;
+
+    private TokenService tokenService;
+
+    private TokenGenerator tokenGenerator;
+
+    private List<ValidateTokenRequest> hotTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(hashing);
+        tokenService = context.getBean(TokenService.class);
+        tokenGenerator = context.getBean(TokenGenerator.class);
+
+        TokenTableSeeder.seed(context.getBean(JdbcTemplate.class), "seed-", tableRows, hashing,
+                LocalDateTime.now().plusDays(1));
+
+        hotTokens = new ArrayList<>(HOT_TOKENS);
+        for (int i = 0; i < HOT_TOKENS; i++) {
+            String parameter = "hot-param-" + i;
+            GeneratedToken token = tokenService.generate(TokenRequest.builder()
+                    .parameter(parameter)
+                    .tokenType("BENCH")
+                    .unlimitedUsage(true)
+                    .validityDuration(Duration.ofDays(1))
+                    .build());
+            hotTokens.add(ValidateTokenRequest.builder()
+                    .parameter(parameter)
+                    .token(token.getToken())
+                    .tokenType("BENCH")
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private ValidateTokenRequest hotToken;
+
+        private ValidateTokenRequest missingToken;
+
+        private ValidateTokenRequest mismatchedToken;
+
+        private int slot;
+
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(TokenServiceBenchmark benchmark) {
+            slot = benchmark.threadSlots.getAndIncrement();
+            hotToken = benchmark.sharing == TokenSharing.SAME
+                    ? benchmark.hotTokens.get(0)
+                    : benchmark.hotTokens.get(slot % HOT_TOKENS);
+            missingToken = ValidateTokenRequest.builder()
+                    .parameter(hotToken.getParameter())
+                    .token(benchmark.tokenGenerator.generate(32))
+                    .build();
+            mismatchedToken = ValidateTokenRequest.builder()
+                    .parameter("other-" + hotToken.getParameter())
+                    .token(hotToken.getToken())
+                    .build();
+        }
+
+    }
+
+    /**
+     * One active token per invalidate invocation. The invalidate benchmark runs fixed batches of
+     * {@link #INVALIDATE_POOL_SIZE} invocations, so the pool refilled before each iteration is used up exactly and
+     * never wraps onto tokens that are already invalidated. Each token gets its own parameter so that generating
+     * the pool does not supersede the earlier tokens in it.
+     */
+    @State(Scope.Thread)
+    public static class InvalidateState {
+
+        private final List<String> pool = new ArrayList<>(INVALIDATE_POOL_SIZE);
+
+        private int slot;
+
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(TokenServiceBenchmark benchmark) {
+            slot = benchmark.threadSlots.getAndIncrement();
+        }
+
+        @Setup(Level.Iteration)
+        public void fill(TokenServiceBenchmark benchmark) {
+            pool.clear();
+            for (int i = 0; i < INVALIDATE_POOL_SIZE; i++) {
+                pool.add(benchmark.tokenService.generate(TokenRequest.builder()
+                        .parameter("invalidate-param-" + slot + "-" + i)
+                        .build()).getToken());
+            }
+            cursor = 0;
+        }
+
+        private String next() {
+            return pool.get(cursor++);
+        }
+    }
+
+    @Benchmark
+    public GeneratedToken generate(ThreadState state) {
+        return tokenService.generate(TokenRequest.builder()
+                .parameter("generate-param-" + state.slot + "-" + (state.sequence++ % 1_000))
+                .tokenType("BENCH")
+                .build());
+    }
+
+    @Benchmark
+    public ValidationResult validateSuccess(ThreadState state) {
+        return tokenService.validate(state.hotToken);
+    }
+
+    @Benchmark
+    public ValidationResult validateNotFound(ThreadState state) {
+        return tokenService.validate(state.missingToken);
+    }
+
+    @Benchmark
+    public ValidationResult validateParameterMismatch(ThreadState state) {
+        return tokenService.validate(state.mismatchedToken);
+    }
+
+    /**
+     * Scores the time to invalidate one batch of {@link #INVALIDATE_POOL_SIZE} tokens.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = INVALIDATE_POOL_SIZE)
+    @Measurement(iterations = 5, batchSize = INVALIDATE_POOL_SIZE)
+    public void invalidate(InvalidateState state) {
+        tokenService.invalidate(state.next());
+    }
+}
@@ -0,0 +1,8 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+public enum TokenSharing {
+
+    SAME,
+
+    DISTINCT
+}
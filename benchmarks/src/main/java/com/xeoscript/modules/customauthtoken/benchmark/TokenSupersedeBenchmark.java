@@ -0,0 +1,125 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TokenSupersedeBenchmark {
+
+    private static final int PARAMETERS_PER_THREAD = 1_000;
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final int CHUNK_THREADS = 8;
+
+    @Param({"10000", "1000000"})
+    public int tableRows;
+
+    @Param({"true", "false"})
+    public boolean allowMultipleActive;
+
+    @Param({"SAME", "DISTINCT"})
+    public TokenSharing sharing;
+
+    private final AtomicInteger threadSlots = new AtomicInteger();
+
+    private ConfigurableApplicationContext context;
+
+    private TokenService tokenService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(false, Collections.singletonMap(
+                "spring.custom-auth-token.allow-multiple-active", allowMultipleActive));
+        tokenService = context.getBean(TokenService.class);
+
+        TokenTableSeeder.seed(context.getBean(JdbcTemplate.class), "seed-", tableRows, false,
+                LocalDateTime.now().plusDays(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int slot;
+
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(TokenSupersedeBenchmark benchmark) {
+            slot = benchmark.threadSlots.getAndIncrement();
+        }
+
+        private String nextParameter(TokenSharing sharing) {
+            if (sharing == TokenSharing.SAME) {
+                return "supersede-param-shared";
+            }
+            return "supersede-param-" + slot + "-" + (sequence++ % PARAMETERS_PER_THREAD);
+        }
+
+        private List<TokenRequest> nextChunk(TokenSharing sharing) {
+            List<TokenRequest> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                chunk.add(TokenRequest.builder()
+                        .parameter(nextParameter(sharing))
+                        .tokenType("BENCH")
+                        .build());
+            }
+            return chunk;
+        }
+    }
+
+    @Benchmark
+    public GeneratedToken generate(ThreadState state) {
+        return tokenService.generate(TokenRequest.builder()
+                .parameter(state.nextParameter(sharing))
+                .tokenType("BENCH")
+                .build());
+    }
+
+    /**
+     * Concurrent generateAll chunks of distinct parameters. Each chunk locks one row per parameter, so with
+     * DISTINCT parameters the threads should scale like allowMultipleActive=true, which takes no locks; with
+     * SAME every chunk needs the one shared row and the threads serialize by design.
+     */
+    @Benchmark
+    @Threads(CHUNK_THREADS)
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public List<GeneratedToken> generateAllChunk(ThreadState state) {
+        return tokenService.generateAll(state.nextChunk(sharing));
+    }
+}
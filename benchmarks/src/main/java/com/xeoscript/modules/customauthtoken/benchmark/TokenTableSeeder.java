@@ -0,0 +1,48 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class TokenTableSeeder {
+
+    private static final String INSERT_SQL = "INSERT INTO CUSTOM_AUTH_TOKEN"
+            + " (TOKEN_VALUE, PARAMETER_VALUE, TOKEN_TYPE, STATUS, EXPIRY_TIME, USAGE_LIMIT, USAGE_COUNT,"
+            + " HASHING_MODE, CREATED_AT, UPDATED_AT)"
+            + " VALUES (?, ?, ?, 'ACTIVE', ?, 1, 0, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private TokenTableSeeder() {
+    }
+
+    public static void seed(JdbcTemplate jdbcTemplate, String prefix, int rows, boolean hashing,
+                            LocalDateTime expiryTime) {
+        Timestamp expiry = Timestamp.valueOf(expiryTime);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String hashingMode = hashing ? "SHA256" : "NONE";
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{
+                    prefix + Long.toHexString(Double.doubleToLongBits(Math.random())) + "-" + i,
+                    "seed-param-" + (i % 100_000),
+                    "SEED",
+                    expiry,
+                    hashingMode,
+                    now,
+                    now
+            });
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.xeoscript.modules.customauthtoken.benchmark;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import com.xeoscript.modules.customauthtoken.util.HexCodec;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reporting counterpart of TokenUsageLimitConcurrencyTest: the test guards correctness on every build, this harness
+ * measures what the guarantee costs under hundreds of threads. It runs against embedded H2, natively and in
+ * PostgreSQL compatibility mode, and against a real server when {@code -Dstress.jdbc-url} (with optional
+ * {@code stress.username} and {@code stress.password}) is set; the token table there is recreated for every run.
+ * Arguments are threads, usage limit and rounds.
+ */
+public final class TokenUsageLimitStressHarness {
+
+    private static final int DEFAULT_THREADS = 256;
+
+    private static final int DEFAULT_USAGE_LIMIT = 100;
+
+    private static final int DEFAULT_ROUNDS = 5;
+
+    private static final int ATTEMPTS_PER_THREAD = 4;
+
+    private static final int MAX_RETRIES = 5;
+
+    private TokenUsageLimitStressHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        int usageLimit = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_USAGE_LIMIT;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+        String externalUrl = System.getProperty("stress.jdbc-url");
+        boolean violated = false;
+        for (StressDatabase database : StressDatabase.values()) {
+            if ((database == StressDatabase.EXTERNAL) != (externalUrl != null)) {
+                continue;
+            }
+            for (boolean singleStatement : new boolean[]{false, true}) {
+                StressReport report = run(database, singleStatement, threads, usageLimit, rounds);
+                System.out.println(report);
+                violated |= !report.violations.isEmpty();
+            }
+        }
+
+        if (violated) {
+            System.exit(1);
+        }
+    }
+
+    public static StressReport run(StressDatabase database, boolean singleStatement, int threads, int usageLimit,
+                                   int rounds) throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean.isThreadContentionMonitoringSupported()) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.datasource.url", database.url("stress-" + database.name().toLowerCase()
+                + (singleStatement ? "-single" : "-atomic") + "-" + System.nanoTime()));
+        if (database == StressDatabase.EXTERNAL) {
+            overrides.put("spring.datasource.username", System.getProperty("stress.username", "sa"));
+            overrides.put("spring.datasource.password", System.getProperty("stress.password", ""));
+        }
+        overrides.put("spring.datasource.hikari.maximum-pool-size", threads);
+        overrides.put("spring.custom-auth-token.single-statement-validation", singleStatement);
+
+        StressReport report = new StressReport(database, singleStatement, threads, usageLimit);
+        ConfigurableApplicationContext context = BenchmarkContext.start(false, overrides);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            TokenService tokenService = context.getBean(TokenService.class);
+            TokenDAO tokenDAO = context.getBean(TokenDAO.class);
+            TokenQueryCounter queryCounter = context.getBean(TokenQueryCounter.class);
+
+            for (int round = 0; round < rounds; round++) {
+                runRound(tokenService, tokenDAO, queryCounter, workers, report, round);
+            }
+        } finally {
+            workers.shutdownNow();
+            context.close();
+        }
+        return report;
+    }
+
+    private static void runRound(TokenService tokenService, TokenDAO tokenDAO, TokenQueryCounter queryCounter,
+                                 ExecutorService workers, StressReport report, int round)
+            throws InterruptedException {
+        String parameter = "stress-param-" + round;
+        GeneratedToken token = tokenService.generate(TokenRequest.builder()
+                .parameter(parameter)
+                .usageLimit(report.usageLimit)
+                .validityDuration(Duration.ofHours(1))
+                .build());
+        ValidateTokenRequest request = ValidateTokenRequest.builder()
+                .parameter(parameter)
+                .token(token.getToken())
+                .build();
+
+        int attempts = report.threads * ATTEMPTS_PER_THREAD;
+        long[] latencies = new long[attempts];
+        AtomicInteger latencySlot = new AtomicInteger();
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger unexpectedFailures = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(report.threads);
+        CountDownLatch start = new CountDownLatch(1);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        List<Future<?>> futures = new ArrayList<>(report.threads);
+        for (int i = 0; i < report.threads; i++) {
+            futures.add(workers.submit(() -> {
+                long threadId = Thread.currentThread().getId();
+                long waitedBefore = waitedMillis(threadBean, threadId);
+                ready.countDown();
+                start.await();
+
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    long started = System.nanoTime();
+                    ValidationResult result = validateWithRetry(tokenService, request, report);
+                    latencies[latencySlot.getAndIncrement()] = System.nanoTime() - started;
+
+                    if (result == null) {
+                        continue;
+                    }
+                    if (result.isValid()) {
+                        successes.incrementAndGet();
+                    } else {
+                        report.failures.get(result.getFailureReason()).increment();
+                        if (result.getFailureReason() != ValidationFailureReason.USAGE_LIMIT_EXCEEDED) {
+                            unexpectedFailures.incrementAndGet();
+                        }
+                    }
+                }
+
+                report.waitedMillis.add(waitedMillis(threadBean, threadId) - waitedBefore);
+                return null;
+            }));
+        }
+
+        ready.await();
+        queryCounter.reset();
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                report.violations.add("round " + round + ": worker failed: " + e);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        report.attempts += attempts;
+        report.successes += successes.get();
+        report.elapsedNanos += elapsed;
+        report.queries += queryCounter.reset();
+        report.latencies.add(latencies);
+
+        if (successes.get() != report.usageLimit) {
+            report.violations.add("round " + round + ": " + successes.get() + " successes for usage limit "
+                    + report.usageLimit);
+        }
+        if (unexpectedFailures.get() > 0) {
+            report.violations.add("round " + round + ": " + unexpectedFailures.get()
+                    + " failures reported a reason other than USAGE_LIMIT_EXCEEDED");
+        }
+        TokenEntity stored = tokenDAO.findByRawTokenValue(token.getToken(),
+                HexCodec.encode(TokenHasher.digest(token.getToken())));
+        if (stored == null || stored.getUsageCount() != report.usageLimit || stored.getStatus() != TokenStatus.USED) {
+            report.violations.add("round " + round + ": stored row is "
+                    + (stored == null ? "missing" : stored.getStatus() + " with usage count " + stored.getUsageCount()));
+        }
+    }
+
+    private static ValidationResult validateWithRetry(TokenService tokenService, ValidateTokenRequest request,
+                                                      StressReport report) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return tokenService.validate(request);
+            } catch (TransientDataAccessException e) {
+                if (e instanceof DeadlockLoserDataAccessException) {
+                    report.deadlocks.increment();
+                }
+                if (attempt >= MAX_RETRIES) {
+                    report.errors.increment();
+                    return null;
+                }
+                report.retries.increment();
+            } catch (RuntimeException e) {
+                report.errors.increment();
+                return null;
+            }
+        }
+    }
+
+    private static long waitedMillis(ThreadMXBean threadBean, long threadId) {
+        if (!threadBean.isThreadContentionMonitoringEnabled()) {
+            return 0;
+        }
+        ThreadInfo info = threadBean.getThreadInfo(threadId);
+        return info != null ? info.getBlockedTime() + info.getWaitedTime() : 0;
+    }
+
+    public enum StressDatabase {
+
+        H2(""),
+
+        POSTGRESQL_MODE(";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH"),
+
+        EXTERNAL(null);
+
+        private final String urlOptions;
+
+        StressDatabase(String urlOptions) {
+            this.urlOptions = urlOptions;
+        }
+
+        String url(String database) {
+            if (this == EXTERNAL) {
+                return System.getProperty("stress.jdbc-url");
+            }
+            return "jdbc:h2:mem:" + database + urlOptions + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        }
+    }
+
+    public static final class StressReport {
+
+        private final StressDatabase database;
+
+        private final boolean singleStatement;
+
+        private final int threads;
+
+        private final int usageLimit;
+
+        private final Map<ValidationFailureReason, LongAdder> failures = new EnumMap<>(ValidationFailureReason.class);
+
+        private final LongAdder retries = new LongAdder();
+
+        private final LongAdder deadlocks = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder waitedMillis = new LongAdder();
+
+        private final List<long[]> latencies = new ArrayList<>();
+
+        private final List<String> violations = new ArrayList<>();
+
+        private long attempts;
+
+        private long successes;
+
+        private long elapsedNanos;
+
+        private long queries;
+
+        private StressReport(StressDatabase database, boolean singleStatement, int threads, int usageLimit) {
+            this.database = database;
+            this.singleStatement = singleStatement;
+            this.threads = threads;
+            this.usageLimit = usageLimit;
+            for (ValidationFailureReason reason : ValidationFailureReason.values()) {
+                failures.put(reason, new LongAdder());
+            }
+        }
+
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            long[] all = new long[(int) attempts];
+            int offset = 0;
+            for (long[] round : latencies) {
+                System.arraycopy(round, 0, all, offset, round.length);
+                offset += round.length;
+            }
+            Arrays.sort(all);
+
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("%-15s %-16s threads=%d limit=%d rounds=%d attempts=%d successes=%d%n",
+                    database, singleStatement ? "single-statement" : "atomic-update", threads, usageLimit,
+                    latencies.size(), attempts, successes));
+            builder.append(String.format("  throughput=%.0f ops/s  latency p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                    attempts / (elapsedNanos / 1e9), millis(percentile(all, 0.50)), millis(percentile(all, 0.99)),
+                    millis(all.length > 0 ? all[all.length - 1] : 0)));
+            builder.append(String.format("  waited=%.2f ms/attempt  queries=%.2f/attempt  retries=%d (%.2f%%)"
+                            + "  deadlocks=%d  errors=%d%n",
+                    attempts > 0 ? (double) waitedMillis.sum() / attempts : 0,
+                    attempts > 0 ? (double) queries / attempts : 0,
+                    retries.sum(), attempts > 0 ? 100.0 * retries.sum() / attempts : 0,
+                    deadlocks.sum(), errors.sum()));
+            builder.append("  failures=");
+            for (Map.Entry<ValidationFailureReason, LongAdder> entry : failures.entrySet()) {
+                if (entry.getValue().sum() > 0) {
+                    builder.append(entry.getKey()).append(':').append(entry.getValue().sum()).append(' ');
+                }
+            }
+            builder.append(violations.isEmpty() ? "\n  OK" : "\n  VIOLATIONS " + violations);
+            return builder.toString();
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -1,22 +1,145 @@
 package com.xeoscript.modules.customauthtoken.config;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.event.TokenLifecycleEventPublisher;
+import com.xeoscript.modules.customauthtoken.memory.InMemoryTokenDAO;
+import com.xeoscript.modules.customauthtoken.metrics.MicrometerTokenMetrics;
+import com.xeoscript.modules.customauthtoken.metrics.TokenDAOTimingPostProcessor;
+import com.xeoscript.modules.customauthtoken.reactive.ReactiveTokenService;
+import com.xeoscript.modules.customauthtoken.replica.TokenReadReplica;
+import com.xeoscript.modules.customauthtoken.services.AsyncTokenService;
+import com.xeoscript.modules.customauthtoken.services.TokenOperationObserver;
+import com.xeoscript.modules.customauthtoken.services.internal.ExpiredTokenCleanupScheduler;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNearCache;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNegativeLookupFilter;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenPool;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenValidationRateLimiter;
+import com.xeoscript.modules.customauthtoken.services.internal.UsageWriteBehindBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 @Configuration
+@Slf4j
 @ComponentScan(basePackages = "com.xeoscript.modules.customauthtoken")
 @EntityScan(basePackages = "com.xeoscript.modules.customauthtoken.jpa.entity")
+@AutoConfigureAfter(name = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"})
 public class CustomAuthTokenAutoConfiguration {
 
+    private static final List<String> STORES = Arrays.asList("jpa", "jdbc", "sharded", "partitioned", "memory");
+
     @Bean
-    @ConditionalOnMissingBean
-    public JPAQueryFactory jpaQueryFactory(EntityManager entityManager) {
-        return new JPAQueryFactory(entityManager);
+    public static BeanFactoryPostProcessor tokenStoreValidator(Environment environment) {
+        return beanFactory -> {
+            String store = environment.getProperty("spring.custom-auth-token.store", "jpa").trim();
+            if (!STORES.contains(store.toLowerCase(Locale.ROOT))) {
+                throw new IllegalStateException("Unknown spring.custom-auth-token.store '" + store
+                        + "', expected one of " + STORES);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "memory")
+    public InMemoryTokenDAO inMemoryTokenDAO(TokenQueryCounter queryCounter, TokenProperties properties) {
+        return new InMemoryTokenDAO(queryCounter, properties.getMemoryMaxCapacity(),
+                properties.getMemoryExpiredRetentionSeconds() * 1000L);
+    }
+
+    @Configuration
+    @ConditionalOnMissingClass("javax.persistence.EntityManager")
+    @ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "jpa",
+            matchIfMissing = true)
+    static class NoJpaConfiguration {
+
+        @Bean
+        public InMemoryTokenDAO fallbackTokenDAO(TokenQueryCounter queryCounter, TokenProperties properties) {
+            log.warn("JPA is not on the classpath, so spring.custom-auth-token.store=jpa falls back to the"
+                    + " in-memory store. Tokens are lost on restart and are not shared between nodes");
+            return new InMemoryTokenDAO(queryCounter, properties.getMemoryMaxCapacity(),
+                    properties.getMemoryExpiredRetentionSeconds() * 1000L);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(EntityManager.class)
+    static class JpaConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public JPAQueryFactory jpaQueryFactory(EntityManager entityManager) {
+            return new JPAQueryFactory(entityManager);
+        }
+    }
+
+    /**
+     * The event table is only mapped when the JDBC sink writes to it, so hosts validating their schema do not
+     * need CUSTOM_AUTH_TOKEN_EVENT otherwise.
+     */
+    @Configuration
+    @ConditionalOnClass(EntityManager.class)
+    @ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "event-jdbc-sink-enabled", havingValue = "true")
+    @EntityScan(basePackages = "com.xeoscript.modules.customauthtoken.jpa.event")
+    static class EventEntityConfiguration {
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "reactor.core.publisher.Mono")
+    static class ReactiveConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ReactiveTokenService reactiveTokenService(AsyncTokenService asyncTokenService) {
+            return new ReactiveTokenService(asyncTokenService);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "metrics-enabled",
+            havingValue = "true", matchIfMissing = true)
+    static class MetricsConfiguration {
+
+        @Bean
+        public static TokenDAOTimingPostProcessor tokenDAOTimingPostProcessor() {
+            return new TokenDAOTimingPostProcessor();
+        }
+
+        @Bean
+        @ConditionalOnBean(MeterRegistry.class)
+        @ConditionalOnMissingBean(TokenOperationObserver.class)
+        public MicrometerTokenMetrics micrometerTokenMetrics(MeterRegistry registry, TokenDAO tokenDAO,
+                                                             TokenProperties properties,
+                                                             TokenNegativeLookupFilter negativeLookupFilter,
+                                                             TokenNearCache nearCache,
+                                                             UsageWriteBehindBuffer usageBuffer,
+                                                             ExpiredTokenCleanupScheduler cleanupScheduler,
+                                                             TokenPool tokenPool,
+                                                             TokenValidationRateLimiter rateLimiter,
+                                                             TokenLifecycleEventPublisher eventPublisher,
+                                                             TokenReadReplica readReplica) {
+            return new MicrometerTokenMetrics(registry, tokenDAO, properties, negativeLookupFilter, nearCache,
+                    usageBuffer, cleanupScheduler, tokenPool, rateLimiter, eventPublisher, readReplica);
+        }
     }
 }
@@ -21,6 +21,228 @@ public interface TokenProperties {
     @Config(name = "cleanup-enabled", value = "false", required = false)
     boolean isCleanupEnabled();
 
+    @Config(name = "cleanup-interval-minutes", value = "10", required = false)
+    int getCleanupIntervalMinutes();
+
+    @Config(name = "cleanup-batch-size", value = "1000", required = false)
+    int getCleanupBatchSize();
+
+    @Config(name = "cleanup-pause-ms", value = "100", required = false)
+    long getCleanupPauseMs();
+
+    @Config(name = "cleanup-max-runtime-seconds", value = "300", required = false)
+    int getCleanupMaxRuntimeSeconds();
+
+    @Config(name = "invalidate-all-batch-size", value = "1000", required = false)
+    int getInvalidateAllBatchSize();
+
+    @Config(name = "signing-key", value = "", required = false)
+    String getSigningKey();
+
+    @Config(name = "revocation-sync-interval-seconds", value = "5", required = false)
+    int getRevocationSyncIntervalSeconds();
+
+    @Config(name = "async-pool-size", value = "32", required = false)
+    int getAsyncPoolSize();
+
+    @Config(name = "async-queue-capacity", value = "10000", required = false)
+    int getAsyncQueueCapacity();
+
+    @Config(name = "async-virtual-threads", value = "true", required = false)
+    boolean isAsyncVirtualThreads();
+
+    @Config(name = "metrics-enabled", value = "true", required = false)
+    boolean isMetricsEnabled();
+
+    @Config(name = "metrics-sample-interval-seconds", value = "60", required = false)
+    int getMetricsSampleIntervalSeconds();
+
+    @Config(name = "metrics-token-types", value = "", required = false)
+    String getMetricsTokenTypes();
+
+    @Config(name = "metrics-max-token-types", value = "50", required = false)
+    int getMetricsMaxTokenTypes();
+
     @Config(name = "allow-multiple-active", value = "true", required = false)
     boolean isAllowMultipleActive();
+
+    @Config(name = "single-statement-validation", value = "false", required = false)
+    boolean isSingleStatementValidation();
+
+    @Config(name = "generation-batch-size", value = "1000", required = false)
+    int getGenerationBatchSize();
+
+    @Config(name = "compact-token-key", value = "false", required = false)
+    boolean isCompactTokenKey();
+
+    @Config(name = "token-key-migration-enabled", value = "false", required = false)
+    boolean isTokenKeyMigrationEnabled();
+
+    @Config(name = "token-key-migration-batch-size", value = "1000", required = false)
+    int getTokenKeyMigrationBatchSize();
+
+    @Config(name = "token-key-migration-pause-ms", value = "50", required = false)
+    long getTokenKeyMigrationPauseMs();
+
+    @Config(name = "token-pool-enabled", value = "false", required = false)
+    boolean isTokenPoolEnabled();
+
+    @Config(name = "token-pool-size", value = "4096", required = false)
+    int getTokenPoolSize();
+
+    @Config(name = "token-pool-low-watermark", value = "1024", required = false)
+    int getTokenPoolLowWatermark();
+
+    @Config(name = "token-pool-high-watermark", value = "4096", required = false)
+    int getTokenPoolHighWatermark();
+
+    @Config(name = "token-pool-prehash", value = "true", required = false)
+    boolean isTokenPoolPrehash();
+
+    @Config(name = "negative-filter-enabled", value = "false", required = false)
+    boolean isNegativeFilterEnabled();
+
+    @Config(name = "negative-filter-expected-insertions", value = "1000000", required = false)
+    long getNegativeFilterExpectedInsertions();
+
+    @Config(name = "negative-filter-false-positive-rate", value = "0.01", required = false)
+    double getNegativeFilterFalsePositiveRate();
+
+    @Config(name = "negative-filter-max-memory-mb", value = "64", required = false)
+    int getNegativeFilterMaxMemoryMb();
+
+    @Config(name = "negative-filter-rebuild-interval-minutes", value = "60", required = false)
+    int getNegativeFilterRebuildIntervalMinutes();
+
+    @Config(name = "negative-filter-trust-misses", value = "false", required = false)
+    boolean isNegativeFilterTrustMisses();
+
+    @Config(name = "near-cache-enabled", value = "false", required = false)
+    boolean isNearCacheEnabled();
+
+    @Config(name = "near-cache-max-entries", value = "10000", required = false)
+    int getNearCacheMaxEntries();
+
+    @Config(name = "near-cache-ttl-seconds", value = "60", required = false)
+    int getNearCacheTtlSeconds();
+
+    @Config(name = "write-behind-usage-enabled", value = "false", required = false)
+    boolean isWriteBehindUsageEnabled();
+
+    @Config(name = "write-behind-flush-interval-ms", value = "1000", required = false)
+    long getWriteBehindFlushIntervalMs();
+
+    @Config(name = "write-behind-max-pending-tokens", value = "100000", required = false)
+    int getWriteBehindMaxPendingTokens();
+
+    @Config(name = "rate-limit-enabled", value = "false", required = false)
+    boolean isRateLimitEnabled();
+
+    @Config(name = "rate-limit-max-failures", value = "5", required = false)
+    int getRateLimitMaxFailures();
+
+    @Config(name = "rate-limit-window-seconds", value = "300", required = false)
+    int getRateLimitWindowSeconds();
+
+    @Config(name = "rate-limit-max-keys", value = "100000", required = false)
+    int getRateLimitMaxKeys();
+
+    @Config(name = "store", value = "jpa", required = false)
+    String getStore();
+
+    @Config(name = "shard-jdbc-urls", value = "", required = false)
+    String getShardJdbcUrls();
+
+    @Config(name = "shard-username", value = "", required = false)
+    String getShardUsername();
+
+    @Config(name = "shard-password", value = "", required = false)
+    String getShardPassword();
+
+    @Config(name = "shard-pool-size", value = "10", required = false)
+    int getShardPoolSize();
+
+    @Config(name = "shard-initialize-schema", value = "false", required = false)
+    boolean isShardInitializeSchema();
+
+    @Config(name = "shard-previous-count", value = "0", required = false)
+    int getShardPreviousCount();
+
+    @Config(name = "shard-fan-out-threads", value = "8", required = false)
+    int getShardFanOutThreads();
+
+    @Config(name = "shard-rebalance-on-startup", value = "false", required = false)
+    boolean isShardRebalanceOnStartup();
+
+    @Config(name = "shard-rebalance-batch-size", value = "1000", required = false)
+    int getShardRebalanceBatchSize();
+
+    @Config(name = "shard-rebalance-pause-ms", value = "50", required = false)
+    long getShardRebalancePauseMs();
+
+    @Config(name = "partition-interval", value = "DAILY", required = false)
+    String getPartitionInterval();
+
+    @Config(name = "partition-precreate-count", value = "2", required = false)
+    int getPartitionPrecreateCount();
+
+    @Config(name = "partition-retention-count", value = "1", required = false)
+    int getPartitionRetentionCount();
+
+    @Config(name = "partition-maintenance-interval-seconds", value = "60", required = false)
+    int getPartitionMaintenanceIntervalSeconds();
+
+    @Config(name = "partition-miss-refresh-interval-ms", value = "100", required = false)
+    long getPartitionMissRefreshIntervalMs();
+
+    @Config(name = "event-publisher-enabled", value = "false", required = false)
+    boolean isEventPublisherEnabled();
+
+    @Config(name = "event-buffer-capacity", value = "65536", required = false)
+    int getEventBufferCapacity();
+
+    @Config(name = "event-batch-size", value = "500", required = false)
+    int getEventBatchSize();
+
+    @Config(name = "event-flush-interval-ms", value = "200", required = false)
+    long getEventFlushIntervalMs();
+
+    @Config(name = "event-overflow-policy", value = "DROP", required = false)
+    String getEventOverflowPolicy();
+
+    @Config(name = "event-sample-rate", value = "10", required = false)
+    int getEventSampleRate();
+
+    @Config(name = "event-log-sink-enabled", value = "false", required = false)
+    boolean isEventLogSinkEnabled();
+
+    @Config(name = "event-jdbc-sink-enabled", value = "false", required = false)
+    boolean isEventJdbcSinkEnabled();
+
+    @Config(name = "event-application-sink-enabled", value = "false", required = false)
+    boolean isEventApplicationSinkEnabled();
+
+    @Config(name = "read-replica-jdbc-url", value = "", required = false)
+    String getReadReplicaJdbcUrl();
+
+    @Config(name = "read-replica-username", value = "", required = false)
+    String getReadReplicaUsername();
+
+    @Config(name = "read-replica-password", value = "", required = false)
+    String getReadReplicaPassword();
+
+    @Config(name = "read-replica-pool-size", value = "10", required = false)
+    int getReadReplicaPoolSize();
+
+    @Config(name = "read-replica-max-lag-ms", value = "1000", required = false)
+    long getReadReplicaMaxLagMs();
+
+    @Config(name = "read-replica-lag-check-interval-ms", value = "250", required = false)
+    long getReadReplicaLagCheckIntervalMs();
+
+    @Config(name = "memory-max-capacity", value = "1000000", required = false)
+    int getMemoryMaxCapacity();
+
+    @Config(name = "memory-expired-retention-seconds", value = "300", required = false)
+    long getMemoryExpiredRetentionSeconds();
 }
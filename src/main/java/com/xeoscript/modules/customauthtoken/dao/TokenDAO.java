@@ -1,21 +1,65 @@
 package com.xeoscript.modules.customauthtoken.dao;
 
 import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface TokenDAO {
 
     void save(TokenEntity entity);
 
+    void saveAll(List<TokenEntity> entities);
+
+    long saveAllSuperseding(List<TokenEntity> entities);
+
     TokenEntity findByTokenValue(String tokenValue);
 
+    TokenEntity findByRawTokenValue(String rawTokenValue, String hashedTokenValue);
+
     long atomicValidateAndIncrement(String tokenValue, String parameter,
                                     String tokenType, LocalDateTime now);
 
+    ValidationOutcome validateAndIncrement(String rawTokenValue, String hashedTokenValue, String parameter,
+                                           String tokenType, LocalDateTime now);
+
+    List<ValidationOutcome> validateAndIncrementAll(List<ValidateTokenRequest> requests,
+                                                    List<String> hashedTokenValues, LocalDateTime now);
+
+    long applyUsageDeltas(List<UsageDelta> deltas);
+
     long invalidate(String tokenValue);
 
+    long invalidateAllChunk(String parameter, String tokenType, LocalDateTime now, int limit);
+
     long deleteExpired(LocalDateTime before);
 
+    long countExpired(LocalDateTime before);
+
+    long countActive(LocalDateTime now);
+
+    ExpiredChunk deleteExpiredChunk(LocalDateTime before, LocalDateTime afterExpiryTime, Long afterId, int limit);
+
+    boolean tryAcquireLock(String lockName, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+
+    void releaseLock(String lockName, String owner);
+
     TokenEntity findByTokenValueAndParameter(String tokenValue, String parameter);
+
+    long streamTokenValues(LocalDateTime createdSince, Consumer<String> consumer);
+
+    long streamInvalidatedTokens(String hashingMode, LocalDateTime updatedSince, LocalDateTime expiringAfter,
+                                 BiConsumer<String, LocalDateTime> consumer);
+
+    long streamTokens(TokenExportQuery query, Consumer<TokenEntity> consumer);
+
+    List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery query);
 }
@@ -0,0 +1,27 @@
+package com.xeoscript.modules.customauthtoken.dao;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class TokenQueryCounter {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long statements) {
+        count.add(statements);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long reset() {
+        return count.sumThenReset();
+    }
+}
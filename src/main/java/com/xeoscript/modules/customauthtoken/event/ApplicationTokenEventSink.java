@@ -0,0 +1,25 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+import com.xeoscript.modules.customauthtoken.model.dto.TokenLifecycleEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "event-application-sink-enabled",
+        havingValue = "true")
+public class ApplicationTokenEventSink implements TokenLifecycleEventSink {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public void accept(List<TokenLifecycleEvent> events) {
+        for (TokenLifecycleEvent event : events) {
+            applicationEventPublisher.publishEvent(event);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+import com.xeoscript.modules.customauthtoken.model.dto.TokenLifecycleEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnClass(name = "org.springframework.jdbc.core.JdbcTemplate")
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "event-jdbc-sink-enabled", havingValue = "true")
+public class JdbcTokenEventSink implements TokenLifecycleEventSink {
+
+    private static final String INSERT_SQL = "INSERT INTO CUSTOM_AUTH_TOKEN_EVENT"
+            + " (EVENT_TYPE, OCCURRED_AT, PARAMETER_VALUE, TOKEN_TYPE, TOKEN_HASH, FAILURE_REASON, AFFECTED_COUNT)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void accept(List<TokenLifecycleEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (statement, event) -> {
+            statement.setString(1, event.getType().name());
+            statement.setTimestamp(2, Timestamp.valueOf(event.getOccurredAt()));
+            statement.setString(3, event.getParameterValue());
+            statement.setString(4, event.getTokenType());
+            statement.setString(5, event.getTokenHash());
+            if (event.getFailureReason() != null) {
+                statement.setString(6, event.getFailureReason().name());
+            } else {
+                statement.setNull(6, Types.VARCHAR);
+            }
+            statement.setLong(7, event.getAffectedCount());
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+import com.xeoscript.modules.customauthtoken.model.dto.TokenLifecycleEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "event-log-sink-enabled", havingValue = "true")
+public class LoggingTokenEventSink implements TokenLifecycleEventSink {
+
+    @Override
+    public void accept(List<TokenLifecycleEvent> events) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+
+        for (TokenLifecycleEvent event : events) {
+            log.info("Token {} at {} parameter '{}' type '{}' hash {} reason {} count {}", event.getType(),
+                    event.getOccurredAt(), event.getParameterValue(), event.getTokenType(), event.getTokenHash(),
+                    event.getFailureReason(), event.getAffectedCount());
+        }
+    }
+}
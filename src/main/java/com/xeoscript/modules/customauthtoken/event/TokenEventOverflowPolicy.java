@@ -0,0 +1,10 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+public enum TokenEventOverflowPolicy {
+
+    DROP,
+
+    BLOCK,
+
+    SAMPLE
+}
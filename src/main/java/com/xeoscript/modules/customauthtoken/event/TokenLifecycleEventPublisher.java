@@ -0,0 +1,339 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenLifecycleEvent;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenLifecycleEventType;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.util.MpmcRingBuffer;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenLifecycleEventPublisher {
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final TokenHasher tokenHasher;
+    private final TokenProperties properties;
+    private final ObjectProvider<TokenLifecycleEventSink> sinkProvider;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder sinkFailures = new LongAdder();
+    private final AtomicLong sampleSequence = new AtomicLong();
+
+    private volatile MpmcRingBuffer<PendingEvent> buffer;
+    private volatile boolean running;
+    private volatile Thread consumer;
+    private volatile int wakeThreshold = Integer.MAX_VALUE;
+
+    private List<TokenLifecycleEventSink> sinks;
+    private TokenEventOverflowPolicy overflowPolicy;
+    private int batchSize;
+    private long flushIntervalNanos;
+    private int sampleRate;
+    private int sampleThreshold;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEventPublisherEnabled()) {
+            return;
+        }
+
+        sinks = sinkProvider.orderedStream().collect(Collectors.toList());
+        if (sinks.isEmpty()) {
+            log.warn("Token lifecycle events are enabled but no event sinks are configured");
+            return;
+        }
+
+        MpmcRingBuffer<PendingEvent> ring = new MpmcRingBuffer<>(Math.max(2, properties.getEventBufferCapacity()));
+        overflowPolicy = TokenEventOverflowPolicy.valueOf(
+                properties.getEventOverflowPolicy().trim().toUpperCase(Locale.ROOT));
+        batchSize = Math.max(1, properties.getEventBatchSize());
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, properties.getEventFlushIntervalMs()));
+        sampleRate = Math.max(1, properties.getEventSampleRate());
+        sampleThreshold = ring.capacity() / 2;
+        running = true;
+        buffer = ring;
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::consumeLoop);
+
+        log.info("Token lifecycle events publishing to {} sinks with {} overflow policy", sinks.size(),
+                overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+
+        running = false;
+        Thread parked = consumer;
+        if (parked != null) {
+            LockSupport.unpark(parked);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    public void publishGenerated(String parameter, String tokenType, String token) {
+        publish(TokenLifecycleEventType.GENERATED, parameter, tokenType, token, null, 1);
+    }
+
+    public void publishValidated(ValidateTokenRequest request, ValidationResult result) {
+        publish(result.isValid() ? TokenLifecycleEventType.VALIDATED : TokenLifecycleEventType.VALIDATION_FAILED,
+                request.getParameter(), request.getTokenType(), request.getToken(), result.getFailureReason(), 1);
+    }
+
+    public void publishInvalidated(String token, boolean invalidated) {
+        publish(TokenLifecycleEventType.INVALIDATED, null, null, token, null, invalidated ? 1 : 0);
+    }
+
+    public void publishInvalidatedAll(String parameter, String tokenType, long invalidatedCount) {
+        publish(TokenLifecycleEventType.INVALIDATED, parameter, tokenType, null, null, invalidatedCount);
+    }
+
+    public int getPendingCount() {
+        MpmcRingBuffer<PendingEvent> ring = buffer;
+        return ring != null ? ring.size() : 0;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getSinkFailureCount() {
+        return sinkFailures.sum();
+    }
+
+    /**
+     * Events raised inside a transaction are only buffered once it commits, so sinks never see a token that a
+     * rollback discarded or an invalidation that did not happen. The event keeps the time it was raised.
+     */
+    private void publish(TokenLifecycleEventType type, String parameter, String tokenType, String token,
+                         ValidationFailureReason failureReason, long affectedCount) {
+        if (buffer == null) {
+            return;
+        }
+
+        PendingEvent event = new PendingEvent(type, System.currentTimeMillis(), parameter, tokenType, token,
+                failureReason, affectedCount);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(event);
+            }
+        });
+    }
+
+    private void enqueue(PendingEvent event) {
+        MpmcRingBuffer<PendingEvent> ring = buffer;
+        if (ring == null) {
+            return;
+        }
+
+        if (overflowPolicy == TokenEventOverflowPolicy.SAMPLE && ring.size() >= sampleThreshold
+                && sampleSequence.getAndIncrement() % sampleRate != 0) {
+            sampledOut.increment();
+            return;
+        }
+
+        while (!ring.offer(event)) {
+            if (overflowPolicy != TokenEventOverflowPolicy.BLOCK || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+        published.increment();
+
+        if (ring.size() >= wakeThreshold) {
+            Thread parked = consumer;
+            if (parked != null) {
+                LockSupport.unpark(parked);
+            }
+        }
+    }
+
+    private void consumeLoop() {
+        consumer = Thread.currentThread();
+        MpmcRingBuffer<PendingEvent> ring = buffer;
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        long batchStarted = 0;
+
+        while (running) {
+            PendingEvent event = ring.poll();
+            if (event != null) {
+                if (batch.isEmpty()) {
+                    batchStarted = System.nanoTime();
+                }
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    dispatch(batch);
+                }
+                continue;
+            }
+
+            if (batch.isEmpty()) {
+                awaitEvents(ring, 1, 0);
+                continue;
+            }
+            long remainingNanos = flushIntervalNanos - (System.nanoTime() - batchStarted);
+            if (remainingNanos <= 0) {
+                dispatch(batch);
+            } else {
+                awaitEvents(ring, batchSize - batch.size(), remainingNanos);
+            }
+        }
+
+        PendingEvent event;
+        while ((event = ring.poll()) != null) {
+            batch.add(event);
+            if (batch.size() >= batchSize) {
+                dispatch(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Parks until producers have queued enough events to matter: one when the batch is empty, in which case there
+     * is no deadline, or enough to fill the batch before its flush interval runs out. The threshold is published
+     * before the buffer is checked again and producers read it after offering, so an event cannot slip in between
+     * the check and the park unnoticed.
+     */
+    private void awaitEvents(MpmcRingBuffer<PendingEvent> ring, int threshold, long timeoutNanos) {
+        wakeThreshold = threshold;
+        if (running && ring.size() < threshold) {
+            if (timeoutNanos > 0) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        wakeThreshold = Integer.MAX_VALUE;
+    }
+
+    private void dispatch(List<PendingEvent> batch) {
+        List<TokenLifecycleEvent> events = new ArrayList<>(batch.size());
+        for (PendingEvent pending : batch) {
+            events.add(TokenLifecycleEvent.builder()
+                    .type(pending.type)
+                    .occurredAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(pending.occurredAtMillis),
+                            ZoneId.systemDefault()))
+                    .parameterValue(pending.parameterValue)
+                    .tokenType(pending.tokenType)
+                    .tokenHash(pending.token != null ? tokenHasher.hash(pending.token) : null)
+                    .failureReason(pending.failureReason)
+                    .affectedCount(pending.affectedCount)
+                    .build());
+        }
+        batch.clear();
+
+        for (TokenLifecycleEventSink sink : sinks) {
+            try {
+                sink.accept(events);
+            } catch (RuntimeException e) {
+                sinkFailures.increment();
+                log.warn("Token lifecycle event sink {} failed for {} events", sink.getClass().getSimpleName(),
+                        events.size(), e);
+            }
+        }
+
+        delivered.add(events.size());
+        batches.increment();
+    }
+
+    private static final class PendingEvent {
+
+        private final TokenLifecycleEventType type;
+        private final long occurredAtMillis;
+        private final String parameterValue;
+        private final String tokenType;
+        private final String token;
+        private final ValidationFailureReason failureReason;
+        private final long affectedCount;
+
+        private PendingEvent(TokenLifecycleEventType type, long occurredAtMillis, String parameterValue,
+                             String tokenType, String token, ValidationFailureReason failureReason,
+                             long affectedCount) {
+            this.type = type;
+            this.occurredAtMillis = occurredAtMillis;
+            this.parameterValue = parameterValue;
+            this.tokenType = tokenType;
+            this.token = token;
+            this.failureReason = failureReason;
+            this.affectedCount = affectedCount;
+        }
+    }
+}
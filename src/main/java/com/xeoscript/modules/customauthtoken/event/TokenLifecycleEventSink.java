@@ -0,0 +1,10 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+import com.xeoscript.modules.customauthtoken.model.dto.TokenLifecycleEvent;
+
+import java.util.List;
+
+public interface TokenLifecycleEventSink {
+
+    void accept(List<TokenLifecycleEvent> events);
+}
@@ -0,0 +1,8 @@
+package com.xeoscript.modules.customauthtoken.export;
+
+public enum TokenExportFormat {
+
+    CSV,
+
+    NDJSON
+}
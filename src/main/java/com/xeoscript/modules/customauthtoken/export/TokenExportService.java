@@ -0,0 +1,62 @@
+package com.xeoscript.modules.customauthtoken.export;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.replica.TokenReadReplica;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final TokenDAO tokenDAO;
+    private final TokenHasher tokenHasher;
+    private final TokenReadReplica readReplica;
+
+    public long stream(TokenExportQuery query, Consumer<TokenEntity> consumer) {
+        if (readReplica.isEnabled()) {
+            return readReplica.inReadOnlyTransaction(replica -> replica.streamTokens(query, consumer));
+        }
+        return tokenDAO.streamTokens(query, consumer);
+    }
+
+    public List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery query) {
+        if (readReplica.isEnabled()) {
+            return readReplica.inReadOnlyTransaction(replica -> replica.countByTypeAndStatus(query));
+        }
+        return tokenDAO.countByTypeAndStatus(query);
+    }
+
+    public long export(TokenExportQuery query, TokenExportFormat format, Writer writer) throws IOException {
+        long started = System.currentTimeMillis();
+        Writer target = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, WRITE_BUFFER_SIZE);
+        TokenExportWriter exportWriter = new TokenExportWriter(target, format, tokenHasher);
+
+        try {
+            exportWriter.writeHeader();
+            stream(query, exportWriter);
+            exportWriter.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("Exported {} tokens as {} in {} ms", exportWriter.getRowCount(), format,
+                System.currentTimeMillis() - started);
+        return exportWriter.getRowCount();
+    }
+}
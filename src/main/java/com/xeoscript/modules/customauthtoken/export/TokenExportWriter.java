@@ -0,0 +1,176 @@
+package com.xeoscript.modules.customauthtoken.export;
+
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+public class TokenExportWriter implements Consumer<TokenEntity> {
+
+    private static final String[] COLUMNS = {
+            "id", "tokenHash", "parameterValue", "tokenType", "status", "hashingMode", "usageLimit", "usageCount",
+            "expiryTime", "createdAt", "updatedAt", "usedAt"
+    };
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+
+    private final TokenExportFormat format;
+
+    private final TokenHasher tokenHasher;
+
+    private final StringBuilder line = new StringBuilder(512);
+
+    private long rows;
+
+    public TokenExportWriter(Writer writer, TokenExportFormat format, TokenHasher tokenHasher) {
+        this.writer = writer;
+        this.format = format;
+        this.tokenHasher = tokenHasher;
+    }
+
+    public void writeHeader() {
+        if (format != TokenExportFormat.CSV) {
+            return;
+        }
+
+        line.setLength(0);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(COLUMNS[i]);
+        }
+        line.append('\n');
+        flushLine();
+    }
+
+    @Override
+    public void accept(TokenEntity entity) {
+        Object[] values = {
+                entity.getId(), tokenHash(entity), entity.getParameterValue(), entity.getTokenType(),
+                entity.getStatus(), entity.getHashingMode(), entity.getUsageLimit(), entity.getUsageCount(),
+                entity.getExpiryTime(), entity.getCreatedAt(), entity.getUpdatedAt(), entity.getUsedAt()
+        };
+
+        line.setLength(0);
+        if (format == TokenExportFormat.CSV) {
+            appendCsv(values);
+        } else {
+            appendJson(values);
+        }
+        line.append('\n');
+        flushLine();
+        rows++;
+    }
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    private String tokenHash(TokenEntity entity) {
+        return HashingMode.NONE.name().equals(entity.getHashingMode())
+                ? tokenHasher.hash(entity.getTokenValue())
+                : entity.getTokenValue();
+    }
+
+    private void appendCsv(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            if (values[i] == null) {
+                continue;
+            }
+
+            String value = values[i].toString();
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                line.append(value);
+                continue;
+            }
+
+            line.append('"');
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+    }
+
+    private void appendJson(Object[] values) {
+        line.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append('"').append(COLUMNS[i]).append("\":");
+
+            Object value = values[i];
+            if (value == null) {
+                line.append("null");
+            } else if (value instanceof Number) {
+                line.append(value);
+            } else {
+                appendJsonString(value.toString());
+            }
+        }
+        line.append('}');
+    }
+
+    private void appendJsonString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private void flushLine() {
+        try {
+            writer.append(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
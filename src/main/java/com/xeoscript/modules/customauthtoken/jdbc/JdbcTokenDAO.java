@@ -0,0 +1,1127 @@
+package com.xeoscript.modules.customauthtoken.jdbc;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.util.ActiveTokenLocks;
+import com.xeoscript.modules.customauthtoken.util.DuplicateKeys;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import com.xeoscript.modules.customauthtoken.util.TokenStatusCounts;
+import com.xeoscript.modules.customauthtoken.util.ValidationFailureClassifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+@Repository
+@Slf4j
+@ConditionalOnClass(name = "org.springframework.jdbc.core.JdbcTemplate")
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "jdbc")
+public class JdbcTokenDAO implements TokenDAO {
+
+    public static final String TABLE_NAME = "CUSTOM_AUTH_TOKEN";
+
+    public static final String TOKEN_COLUMNS = "ID, TOKEN_VALUE, PARAMETER_VALUE, TOKEN_TYPE, STATUS, EXPIRY_TIME,"
+            + " USAGE_LIMIT, USAGE_COUNT, HASHING_MODE, CREATED_AT, UPDATED_AT, USED_AT";
+
+    private static final String INSERT_SQL = "INSERT INTO CUSTOM_AUTH_TOKEN"
+            + " (TOKEN_VALUE, TOKEN_KEY, PARAMETER_VALUE, TOKEN_TYPE, STATUS, EXPIRY_TIME, USAGE_LIMIT, USAGE_COUNT,"
+            + " HASHING_MODE, METADATA, CREATED_AT, UPDATED_AT)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String FIND_SQL = "SELECT " + TOKEN_COLUMNS + " FROM CUSTOM_AUTH_TOKEN WHERE %s = ?";
+
+    private static final String FIND_BY_PARAMETER_SQL = FIND_SQL + " AND PARAMETER_VALUE = ?";
+
+    private static final String FIND_PAIR_SQL = "SELECT " + TOKEN_COLUMNS
+            + " FROM CUSTOM_AUTH_TOKEN WHERE %s IN (?, ?)";
+
+    private static final String FIND_PAIR_FOR_UPDATE_SQL = FIND_PAIR_SQL + " FOR UPDATE";
+
+    private static final String FIND_ALL_FOR_UPDATE_SQL = "SELECT " + TOKEN_COLUMNS
+            + " FROM CUSTOM_AUTH_TOKEN WHERE %s IN (%s) ORDER BY ID FOR UPDATE";
+
+    private static final String USABLE_CLAUSE = " AND STATUS IN ('ACTIVE', 'PARTIALLY_USED') AND EXPIRY_TIME > ?"
+            + " AND (USAGE_LIMIT IS NULL OR USAGE_COUNT < USAGE_LIMIT)";
+
+    private static final String INCREMENT_SET_CLAUSE = "UPDATE CUSTOM_AUTH_TOKEN"
+            + " SET USAGE_COUNT = USAGE_COUNT + 1, USED_AT = ?, UPDATED_AT = ?,"
+            + " STATUS = CASE WHEN USAGE_LIMIT IS NOT NULL AND USAGE_COUNT + 1 >= USAGE_LIMIT"
+            + " THEN 'USED' ELSE 'PARTIALLY_USED' END";
+
+    private static final String INCREMENT_BY_VALUE_SQL = INCREMENT_SET_CLAUSE
+            + " WHERE %s = ? AND PARAMETER_VALUE = ?" + USABLE_CLAUSE;
+
+    private static final String TOKEN_TYPE_CLAUSE = " AND TOKEN_TYPE = ?";
+
+    private static final String INCREMENT_BY_ID_SQL = INCREMENT_SET_CLAUSE + " WHERE ID = ?" + USABLE_CLAUSE;
+
+    private static final String USAGE_DELTA_SQL = "UPDATE CUSTOM_AUTH_TOKEN"
+            + " SET USAGE_COUNT = USAGE_COUNT + ?, USED_AT = ?, UPDATED_AT = ?,"
+            + " STATUS = CASE WHEN STATUS = 'ACTIVE' THEN 'PARTIALLY_USED' ELSE STATUS END"
+            + " WHERE %s = ? AND USAGE_LIMIT IS NULL";
+
+    private static final String INVALIDATE_SQL = "UPDATE CUSTOM_AUTH_TOKEN SET STATUS = 'INVALIDATED', UPDATED_AT = ?"
+            + " WHERE %s = ? AND STATUS IN ('ACTIVE', 'PARTIALLY_USED')";
+
+    private static final String SUPERSEDE_SQL = "UPDATE CUSTOM_AUTH_TOKEN SET STATUS = 'INVALIDATED', UPDATED_AT = ?"
+            + " WHERE PARAMETER_VALUE = ? AND TOKEN_TYPE = ? AND STATUS IN ('ACTIVE', 'PARTIALLY_USED')"
+            + " AND EXPIRY_TIME > ? AND TOKEN_VALUE NOT IN (%s)";
+
+    private static final String SUPERSEDE_UNTYPED_SQL = "UPDATE CUSTOM_AUTH_TOKEN"
+            + " SET STATUS = 'INVALIDATED', UPDATED_AT = ?"
+            + " WHERE PARAMETER_VALUE = ? AND TOKEN_TYPE IS NULL AND STATUS IN ('ACTIVE', 'PARTIALLY_USED')"
+            + " AND EXPIRY_TIME > ? AND TOKEN_VALUE NOT IN (%s)";
+
+    private static final String ACTIVE_IDS_SQL = "SELECT ID FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE %s AND STATUS IN ('ACTIVE', 'PARTIALLY_USED') AND EXPIRY_TIME > ?";
+
+    private static final String INVALIDATE_BY_IDS_SQL = "UPDATE CUSTOM_AUTH_TOKEN"
+            + " SET STATUS = 'INVALIDATED', UPDATED_AT = ?"
+            + " WHERE ID IN (%s) AND STATUS IN ('ACTIVE', 'PARTIALLY_USED')";
+
+    private static final String PARAMETER_AND_TYPE_CLAUSE = "PARAMETER_VALUE = ? AND TOKEN_TYPE = ?";
+
+    private static final String PARAMETER_CLAUSE = "PARAMETER_VALUE = ?";
+
+    private static final String TYPE_CLAUSE = "TOKEN_TYPE = ?";
+
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM CUSTOM_AUTH_TOKEN WHERE EXPIRY_TIME < ?";
+
+    private static final String COUNT_EXPIRED_SQL = "SELECT COUNT(*) FROM CUSTOM_AUTH_TOKEN WHERE EXPIRY_TIME < ?";
+
+    private static final String COUNT_ACTIVE_SQL = "SELECT COUNT(*) FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE EXPIRY_TIME >= ? AND STATUS IN ('ACTIVE', 'PARTIALLY_USED')";
+
+    private static final String EXPIRED_KEYS_SQL = "SELECT ID, EXPIRY_TIME FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE EXPIRY_TIME < ? ORDER BY EXPIRY_TIME, ID";
+
+    private static final String EXPIRED_KEYS_AFTER_SQL = "SELECT ID, EXPIRY_TIME FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE EXPIRY_TIME < ? AND (EXPIRY_TIME > ? OR (EXPIRY_TIME = ? AND ID > ?))"
+            + " ORDER BY EXPIRY_TIME, ID";
+
+    private static final String DELETE_BY_IDS_SQL = "DELETE FROM CUSTOM_AUTH_TOKEN WHERE ID IN (%s)";
+
+    private static final String UPDATE_LOCK_SQL = "UPDATE CUSTOM_AUTH_TOKEN_LOCK"
+            + " SET LOCKED_BY = ?, LOCKED_AT = ?, LOCKED_UNTIL = ?"
+            + " WHERE LOCK_NAME = ? AND (LOCKED_UNTIL < ? OR LOCKED_BY = ?)";
+
+    private static final String COUNT_LOCK_SQL = "SELECT COUNT(*) FROM CUSTOM_AUTH_TOKEN_LOCK WHERE LOCK_NAME = ?";
+
+    private static final String INSERT_LOCK_SQL = "INSERT INTO CUSTOM_AUTH_TOKEN_LOCK"
+            + " (LOCK_NAME, LOCKED_BY, LOCKED_AT, LOCKED_UNTIL) VALUES (?, ?, ?, ?)";
+
+    private static final String LOCK_KEY_SQL = "SELECT LOCK_NAME FROM CUSTOM_AUTH_TOKEN_LOCK"
+            + " WHERE LOCK_NAME = ? FOR UPDATE";
+
+    private static final String EXISTING_LOCKS_SQL = "SELECT LOCK_NAME FROM CUSTOM_AUTH_TOKEN_LOCK"
+            + " WHERE LOCK_NAME IN (%s)";
+
+    private static final String RELEASE_LOCK_SQL = "UPDATE CUSTOM_AUTH_TOKEN_LOCK SET LOCKED_UNTIL = ?"
+            + " WHERE LOCK_NAME = ? AND LOCKED_BY = ?";
+
+    private static final String STREAM_VALUES_SQL = "SELECT TOKEN_VALUE FROM CUSTOM_AUTH_TOKEN";
+
+    private static final String STREAM_VALUES_SINCE_SQL = STREAM_VALUES_SQL + " WHERE CREATED_AT >= ?";
+
+    private static final String STREAM_INVALIDATED_SQL = "SELECT TOKEN_VALUE, EXPIRY_TIME FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE STATUS = 'INVALIDATED' AND HASHING_MODE = ? AND EXPIRY_TIME > ?";
+
+    private static final String STREAM_INVALIDATED_SINCE_SQL = STREAM_INVALIDATED_SQL + " AND UPDATED_AT >= ?";
+
+    private static final String STREAM_TOKENS_SQL = "SELECT " + TOKEN_COLUMNS + " FROM CUSTOM_AUTH_TOKEN";
+
+    private static final String UNKEYED_ROW_SQL = "SELECT ID FROM CUSTOM_AUTH_TOKEN WHERE TOKEN_KEY IS NULL";
+
+    private static final String COUNT_BY_TYPE_AND_STATUS_SQL = "SELECT TOKEN_TYPE, STATUS, COUNT(*)"
+            + " FROM CUSTOM_AUTH_TOKEN%s GROUP BY TOKEN_TYPE, STATUS";
+
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final long KEY_CHECK_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public static final RowMapper<TokenEntity> TOKEN_ROW_MAPPER = JdbcTokenDAO::mapToken;
+
+    private static final Pattern TABLE_PATTERN = Pattern.compile("\\b" + TABLE_NAME + "\\b");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TokenQueryCounter queryCounter;
+
+    private final boolean compactTokenKey;
+
+    private final String tableName;
+
+    private final TransactionTemplate lockTransactionTemplate;
+
+    private final String insertSql;
+
+    private final String incrementByIdSql;
+
+    private final String supersedeSql;
+
+    private final String supersedeUntypedSql;
+
+    private final String activeIdsByParameterAndTypeSql;
+
+    private final String activeIdsByParameterSql;
+
+    private final String activeIdsByTypeSql;
+
+    private final String invalidateByIdsSql;
+
+    private final String deleteExpiredSql;
+
+    private final String countExpiredSql;
+
+    private final String countActiveSql;
+
+    private final String expiredKeysSql;
+
+    private final String expiredKeysAfterSql;
+
+    private final String deleteByIdsSql;
+
+    private final String streamValuesSql;
+
+    private final String streamValuesSinceSql;
+
+    private final String streamInvalidatedSql;
+
+    private final String streamInvalidatedSinceSql;
+
+    private final String streamTokensSql;
+
+    private final String countByTypeAndStatusSql;
+
+    private final String unkeyedRowSql;
+
+    private volatile LookupStatements lookupStatements;
+
+    private volatile long nextKeyCheckNanos;
+
+    @Autowired
+    public JdbcTokenDAO(JdbcTemplate jdbcTemplate, TokenQueryCounter queryCounter, TokenProperties properties,
+                        ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this(jdbcTemplate, queryCounter, properties, TABLE_NAME, transactionManager.getIfAvailable(() ->
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    }
+
+    /**
+     * For a data source of its own, whose transactions are run by a {@link DataSourceTransactionManager}.
+     */
+    public JdbcTokenDAO(JdbcTemplate jdbcTemplate, TokenQueryCounter queryCounter, TokenProperties properties) {
+        this(jdbcTemplate, queryCounter, properties, TABLE_NAME,
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    /**
+     * The transaction manager must be the one running the callers' transactions, so that lock rows are created in
+     * a transaction that really is separate from theirs.
+     */
+    public JdbcTokenDAO(JdbcTemplate jdbcTemplate, TokenQueryCounter queryCounter, TokenProperties properties,
+                        String tableName, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryCounter = queryCounter;
+        this.compactTokenKey = properties.isCompactTokenKey();
+        this.tableName = tableName;
+        this.lockTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.lockTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.insertSql = forTable(INSERT_SQL);
+        this.incrementByIdSql = forTable(INCREMENT_BY_ID_SQL);
+        this.supersedeSql = forTable(SUPERSEDE_SQL);
+        this.supersedeUntypedSql = forTable(SUPERSEDE_UNTYPED_SQL);
+        this.activeIdsByParameterAndTypeSql = String.format(forTable(ACTIVE_IDS_SQL), PARAMETER_AND_TYPE_CLAUSE);
+        this.activeIdsByParameterSql = String.format(forTable(ACTIVE_IDS_SQL), PARAMETER_CLAUSE);
+        this.activeIdsByTypeSql = String.format(forTable(ACTIVE_IDS_SQL), TYPE_CLAUSE);
+        this.invalidateByIdsSql = forTable(INVALIDATE_BY_IDS_SQL);
+        this.deleteExpiredSql = forTable(DELETE_EXPIRED_SQL);
+        this.countExpiredSql = forTable(COUNT_EXPIRED_SQL);
+        this.countActiveSql = forTable(COUNT_ACTIVE_SQL);
+        this.expiredKeysSql = forTable(EXPIRED_KEYS_SQL);
+        this.expiredKeysAfterSql = forTable(EXPIRED_KEYS_AFTER_SQL);
+        this.deleteByIdsSql = forTable(DELETE_BY_IDS_SQL);
+        this.streamValuesSql = forTable(STREAM_VALUES_SQL);
+        this.streamValuesSinceSql = forTable(STREAM_VALUES_SINCE_SQL);
+        this.streamInvalidatedSql = forTable(STREAM_INVALIDATED_SQL);
+        this.streamInvalidatedSinceSql = forTable(STREAM_INVALIDATED_SINCE_SQL);
+        this.streamTokensSql = forTable(STREAM_TOKENS_SQL);
+        this.countByTypeAndStatusSql = forTable(COUNT_BY_TYPE_AND_STATUS_SQL);
+        this.unkeyedRowSql = forTable(UNKEYED_ROW_SQL);
+        this.lookupStatements = new LookupStatements(false);
+        this.nextKeyCheckNanos = System.nanoTime();
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public boolean isKeyLookups() {
+        return lookupStatements().keyed;
+    }
+
+    @Override
+    public void save(TokenEntity entity) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        entity.setCreatedAt(now);
+        entity.setUpdatedAt(now);
+
+        queryCounter.increment();
+        jdbcTemplate.update(insertSql, statement -> bindInsert(statement, entity, timestamp));
+    }
+
+    @Override
+    @Transactional
+    public void saveAll(List<TokenEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        queryCounter.increment();
+        jdbcTemplate.batchUpdate(insertSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                TokenEntity entity = entities.get(i);
+                entity.setCreatedAt(now);
+                entity.setUpdatedAt(now);
+                bindInsert(statement, entity, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entities.size();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public long saveAllSuperseding(List<TokenEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        lockActiveKeys(entities, now);
+        long superseded = supersedeActive(entities, now);
+
+        if (entities.size() == 1) {
+            save(entities.get(0));
+        } else {
+            saveAll(entities);
+        }
+        return superseded;
+    }
+
+    /**
+     * Locks one row per distinct parameter and type, in name order so that overlapping chunks cannot deadlock.
+     * Rows missing for first-time keys are inserted up front in a single batch, so a chunk of new parameters
+     * costs one extra transaction rather than one per key.
+     */
+    public void lockActiveKeys(List<TokenEntity> entities, LocalDateTime now) {
+        SortedSet<String> lockNames = ActiveTokenLocks.lockNames(entities);
+        createMissingLocks(lockNames, now);
+
+        for (String lockName : lockNames) {
+            if (lockKey(lockName)) {
+                continue;
+            }
+
+            createLock(lockName, now);
+            if (!lockKey(lockName)) {
+                throw new IllegalStateException("Lock row " + lockName + " could not be created");
+            }
+        }
+    }
+
+    public long supersedeActive(List<TokenEntity> entities, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        Map<String, List<String>> keptValues = new LinkedHashMap<>();
+        for (TokenEntity entity : entities) {
+            keptValues.computeIfAbsent(ActiveTokenLocks.key(entity.getParameterValue(), entity.getTokenType()),
+                    key -> new ArrayList<>()).add(entity.getTokenValue());
+        }
+
+        long superseded = 0;
+        for (TokenEntity key : ActiveTokenLocks.distinctKeys(entities)) {
+            List<String> kept = keptValues.get(ActiveTokenLocks.key(key.getParameterValue(), key.getTokenType()));
+            List<Object> params = new ArrayList<>(kept.size() + 4);
+            params.add(timestamp);
+            params.add(key.getParameterValue());
+            if (key.getTokenType() != null) {
+                params.add(key.getTokenType());
+            }
+            params.add(timestamp);
+            params.addAll(kept);
+
+            String sql = key.getTokenType() != null ? supersedeSql : supersedeUntypedSql;
+            queryCounter.increment();
+            superseded += jdbcTemplate.update(String.format(sql, placeholders(kept.size())), params.toArray());
+        }
+        return superseded;
+    }
+
+    @Override
+    public TokenEntity findByTokenValue(String tokenValue) {
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        List<TokenEntity> rows = jdbcTemplate.query(lookup.findSql,
+                statement -> lookup.bind(statement, 1, tokenValue), TOKEN_ROW_MAPPER);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public TokenEntity findByRawTokenValue(String rawTokenValue, String hashedTokenValue) {
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        List<TokenEntity> rows = jdbcTemplate.query(lookup.findPairSql, statement -> {
+            lookup.bind(statement, 1, rawTokenValue);
+            lookup.bind(statement, 2, hashedTokenValue);
+        }, TOKEN_ROW_MAPPER);
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        TokenEntity entity = rows.get(0);
+        for (TokenEntity candidate : rows) {
+            if (candidate.getTokenValue().equals(rawTokenValue)) {
+                entity = candidate;
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    @Transactional
+    public long atomicValidateAndIncrement(String tokenValue, String parameter,
+                                           String tokenType, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        return jdbcTemplate.update(tokenType != null ? lookup.incrementByValueAndTypeSql : lookup.incrementByValueSql,
+                statement -> {
+                    statement.setTimestamp(1, timestamp);
+                    statement.setTimestamp(2, timestamp);
+                    lookup.bind(statement, 3, tokenValue);
+                    statement.setString(4, parameter);
+                    statement.setTimestamp(5, timestamp);
+                    if (tokenType != null) {
+                        statement.setString(6, tokenType);
+                    }
+                });
+    }
+
+    @Override
+    @Transactional
+    public ValidationOutcome validateAndIncrement(String rawTokenValue, String hashedTokenValue, String parameter,
+                                                  String tokenType, LocalDateTime now) {
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        List<TokenEntity> candidates = jdbcTemplate.query(lookup.findPairForUpdateSql, statement -> {
+            lookup.bind(statement, 1, rawTokenValue);
+            lookup.bind(statement, 2, hashedTokenValue);
+        }, TOKEN_ROW_MAPPER);
+        if (candidates.isEmpty()) {
+            return notFound();
+        }
+
+        TokenEntity entity = candidates.get(0);
+        for (TokenEntity candidate : candidates) {
+            if (candidate.getTokenValue().equals(rawTokenValue)) {
+                entity = candidate;
+            }
+        }
+
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                entity.getUsageLimit(), entity.getUsageCount(), parameter, tokenType, now);
+        if (reason != null) {
+            return failed(entity.getTokenValue(), entity.getUsageLimit(), entity.getUsageCount(), reason);
+        }
+
+        if (batchIncrement(Collections.singletonList(entity.getId()), now)[0] == 0) {
+            return failed(entity.getTokenValue(), entity.getUsageLimit(), entity.getUsageCount(),
+                    ValidationFailureReason.USAGE_LIMIT_EXCEEDED);
+        }
+
+        return ValidationOutcome.builder()
+                .valid(true)
+                .storedTokenValue(entity.getTokenValue())
+                .parameterValue(entity.getParameterValue())
+                .tokenType(entity.getTokenType())
+                .expiryTime(entity.getExpiryTime())
+                .usageLimit(entity.getUsageLimit())
+                .usageCount(entity.getUsageCount() + 1)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public List<ValidationOutcome> validateAndIncrementAll(List<ValidateTokenRequest> requests,
+                                                           List<String> hashedTokenValues, LocalDateTime now) {
+        Set<String> lookupValues = new LinkedHashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            lookupValues.add(requests.get(i).getToken());
+            lookupValues.add(hashedTokenValues.get(i));
+        }
+
+        Map<String, TokenEntity> entitiesByValue = new HashMap<>();
+        for (TokenEntity entity : findAllForUpdate(new ArrayList<>(lookupValues))) {
+            entitiesByValue.put(entity.getTokenValue(), entity);
+        }
+
+        Map<Long, Integer> usageCounts = new HashMap<>();
+        List<ValidationOutcome> outcomes = new ArrayList<>(requests.size());
+        List<Integer> incrementIndexes = new ArrayList<>();
+        List<Long> incrementIds = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            ValidateTokenRequest request = requests.get(i);
+            TokenEntity entity = entitiesByValue.get(request.getToken());
+            if (entity == null) {
+                entity = entitiesByValue.get(hashedTokenValues.get(i));
+            }
+            if (entity == null) {
+                outcomes.add(notFound());
+                continue;
+            }
+
+            int usageCount = usageCounts.getOrDefault(entity.getId(), entity.getUsageCount());
+
+            ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                    entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                    entity.getUsageLimit(), usageCount, request.getParameter(), request.getTokenType(), now);
+            if (reason != null) {
+                outcomes.add(failed(entity.getTokenValue(), entity.getUsageLimit(), usageCount, reason));
+                continue;
+            }
+
+            usageCounts.put(entity.getId(), usageCount + 1);
+            incrementIndexes.add(i);
+            incrementIds.add(entity.getId());
+            outcomes.add(ValidationOutcome.builder()
+                    .valid(true)
+                    .storedTokenValue(entity.getTokenValue())
+                    .parameterValue(entity.getParameterValue())
+                    .tokenType(entity.getTokenType())
+                    .expiryTime(entity.getExpiryTime())
+                    .usageLimit(entity.getUsageLimit())
+                    .usageCount(usageCount + 1)
+                    .build());
+        }
+
+        if (incrementIds.isEmpty()) {
+            return outcomes;
+        }
+
+        int[] updateCounts = batchIncrement(incrementIds, now);
+        for (int j = 0; j < updateCounts.length; j++) {
+            if (updateCounts[j] == 0) {
+                int index = incrementIndexes.get(j);
+                ValidationOutcome outcome = outcomes.get(index);
+                outcomes.set(index, failed(outcome.getStoredTokenValue(), outcome.getUsageLimit(),
+                        outcome.getUsageCount() - 1, ValidationFailureReason.USAGE_LIMIT_EXCEEDED));
+            }
+        }
+
+        return outcomes;
+    }
+
+    @Override
+    @Transactional
+    public long applyUsageDeltas(List<UsageDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        int[] updateCounts = jdbcTemplate.batchUpdate(lookup.usageDeltaSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                UsageDelta delta = deltas.get(i);
+                statement.setInt(1, delta.getUsageCount());
+                statement.setTimestamp(2, Timestamp.valueOf(delta.getLastUsedAt()));
+                statement.setTimestamp(3, now);
+                lookup.bind(statement, 4, delta.getStoredTokenValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+
+        long rows = 0;
+        for (int count : updateCounts) {
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return rows;
+    }
+
+    @Override
+    @Transactional
+    public long invalidate(String tokenValue) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        return jdbcTemplate.update(lookup.invalidateSql, statement -> {
+            statement.setTimestamp(1, now);
+            lookup.bind(statement, 2, tokenValue);
+        });
+    }
+
+    @Override
+    @Transactional
+    public long invalidateAllChunk(String parameter, String tokenType, LocalDateTime now, int limit) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        String sql = parameter == null ? activeIdsByTypeSql
+                : tokenType == null ? activeIdsByParameterSql : activeIdsByParameterAndTypeSql;
+        List<Long> ids = new ArrayList<>(limit);
+
+        queryCounter.increment();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setMaxRows(limit);
+            int index = 1;
+            if (parameter != null) {
+                statement.setString(index++, parameter);
+            }
+            if (tokenType != null) {
+                statement.setString(index++, tokenType);
+            }
+            statement.setTimestamp(index, timestamp);
+            return statement;
+        }, resultSet -> {
+            ids.add(resultSet.getLong(1));
+        });
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<Object> params = new ArrayList<>(ids.size() + 1);
+        params.add(timestamp);
+        params.addAll(ids);
+
+        queryCounter.increment();
+        return jdbcTemplate.update(String.format(invalidateByIdsSql, placeholders(ids.size())), params.toArray());
+    }
+
+    @Override
+    @Transactional
+    public long deleteExpired(LocalDateTime before) {
+        queryCounter.increment();
+        return jdbcTemplate.update(deleteExpiredSql, Timestamp.valueOf(before));
+    }
+
+    @Override
+    public long countExpired(LocalDateTime before) {
+        queryCounter.increment();
+        Long count = jdbcTemplate.queryForObject(countExpiredSql, Long.class, Timestamp.valueOf(before));
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        queryCounter.increment();
+        Long count = jdbcTemplate.queryForObject(countActiveSql, Long.class, Timestamp.valueOf(now));
+        return count != null ? count : 0;
+    }
+
+    @Override
+    @Transactional
+    public ExpiredChunk deleteExpiredChunk(LocalDateTime before, LocalDateTime afterExpiryTime, Long afterId,
+                                           int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        List<LocalDateTime> expiryTimes = new ArrayList<>(limit);
+
+        queryCounter.increment();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    afterExpiryTime != null ? expiredKeysAfterSql : expiredKeysSql);
+            statement.setMaxRows(limit);
+            statement.setTimestamp(1, Timestamp.valueOf(before));
+            if (afterExpiryTime != null) {
+                statement.setTimestamp(2, Timestamp.valueOf(afterExpiryTime));
+                statement.setTimestamp(3, Timestamp.valueOf(afterExpiryTime));
+                statement.setLong(4, afterId);
+            }
+            return statement;
+        }, resultSet -> {
+            ids.add(resultSet.getLong(1));
+            expiryTimes.add(resultSet.getTimestamp(2).toLocalDateTime());
+        });
+        if (ids.isEmpty()) {
+            return ExpiredChunk.builder().build();
+        }
+
+        queryCounter.increment();
+        long deleted = jdbcTemplate.update(String.format(deleteByIdsSql, placeholders(ids.size())),
+                ids.toArray());
+
+        return ExpiredChunk.builder()
+                .deletedCount(deleted)
+                .lastExpiryTime(expiryTimes.get(expiryTimes.size() - 1))
+                .lastId(ids.get(ids.size() - 1))
+                .hasMore(ids.size() == limit)
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryAcquireLock(String lockName, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        Timestamp untilTimestamp = Timestamp.valueOf(lockedUntil);
+
+        queryCounter.increment();
+        int updated = jdbcTemplate.update(UPDATE_LOCK_SQL,
+                owner, nowTimestamp, untilTimestamp, lockName, nowTimestamp, owner);
+        if (updated > 0) {
+            return true;
+        }
+
+        queryCounter.increment();
+        Long existing = jdbcTemplate.queryForObject(COUNT_LOCK_SQL, Long.class, lockName);
+        if (existing != null && existing > 0) {
+            return false;
+        }
+
+        queryCounter.increment();
+        jdbcTemplate.update(INSERT_LOCK_SQL, lockName, owner, nowTimestamp, untilTimestamp);
+        return true;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseLock(String lockName, String owner) {
+        queryCounter.increment();
+        jdbcTemplate.update(RELEASE_LOCK_SQL, Timestamp.valueOf(LocalDateTime.now()), lockName, owner);
+    }
+
+    @Override
+    public TokenEntity findByTokenValueAndParameter(String tokenValue, String parameter) {
+        LookupStatements lookup = lookupStatements();
+
+        queryCounter.increment();
+        List<TokenEntity> rows = jdbcTemplate.query(lookup.findByParameterSql, statement -> {
+            lookup.bind(statement, 1, tokenValue);
+            statement.setString(2, parameter);
+        }, TOKEN_ROW_MAPPER);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamTokenValues(LocalDateTime createdSince, Consumer<String> consumer) {
+        long[] count = new long[1];
+
+        queryCounter.increment();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    createdSince != null ? streamValuesSinceSql : streamValuesSql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            if (createdSince != null) {
+                statement.setTimestamp(1, Timestamp.valueOf(createdSince));
+            }
+            return statement;
+        }, resultSet -> {
+            consumer.accept(resultSet.getString(1));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamInvalidatedTokens(String hashingMode, LocalDateTime updatedSince, LocalDateTime expiringAfter,
+                                        BiConsumer<String, LocalDateTime> consumer) {
+        long[] count = new long[1];
+
+        queryCounter.increment();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    updatedSince != null ? streamInvalidatedSinceSql : streamInvalidatedSql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setString(1, hashingMode);
+            statement.setTimestamp(2, Timestamp.valueOf(expiringAfter));
+            if (updatedSince != null) {
+                statement.setTimestamp(3, Timestamp.valueOf(updatedSince));
+            }
+            return statement;
+        }, resultSet -> {
+            consumer.accept(resultSet.getString(1), resultSet.getTimestamp(2).toLocalDateTime());
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamTokens(TokenExportQuery query, Consumer<TokenEntity> consumer) {
+        List<Object> params = new ArrayList<>();
+        String sql = streamTokensSql + exportWhere(query, params);
+        long[] count = new long[1];
+
+        queryCounter.increment();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            bindAll(statement, params);
+            return statement;
+        }, resultSet -> {
+            consumer.accept(mapToken(resultSet, 0));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery query) {
+        List<Object> params = new ArrayList<>();
+        String sql = String.format(countByTypeAndStatusSql, exportWhere(query, params));
+        Map<String, Map<TokenStatus, Long>> table = TokenStatusCounts.newTable();
+
+        queryCounter.increment();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            bindAll(statement, params);
+            return statement;
+        }, resultSet -> {
+            TokenStatusCounts.add(table, resultSet.getString(1), TokenStatus.valueOf(resultSet.getString(2)),
+                    resultSet.getLong(3));
+        });
+        return TokenStatusCounts.toList(table);
+    }
+
+    private List<TokenEntity> findAllForUpdate(List<String> tokenValues) {
+        LookupStatements lookup = lookupStatements();
+        List<TokenEntity> entities = new ArrayList<>();
+        for (int from = 0; from < tokenValues.size(); from += MAX_IN_LIST_SIZE) {
+            List<String> chunk = tokenValues.subList(from, Math.min(from + MAX_IN_LIST_SIZE, tokenValues.size()));
+            String sql = String.format(lookup.findAllForUpdateSql, placeholders(chunk.size()));
+
+            queryCounter.increment();
+            entities.addAll(jdbcTemplate.query(sql, statement -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    lookup.bind(statement, i + 1, chunk.get(i));
+                }
+            }, TOKEN_ROW_MAPPER));
+        }
+        return entities;
+    }
+
+    private int[] batchIncrement(List<Long> ids, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        queryCounter.increment();
+        return jdbcTemplate.batchUpdate(incrementByIdSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setTimestamp(1, timestamp);
+                statement.setTimestamp(2, timestamp);
+                statement.setLong(3, ids.get(i));
+                statement.setTimestamp(4, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+
+    private boolean lockKey(String lockName) {
+        queryCounter.increment();
+        return !jdbcTemplate.queryForList(LOCK_KEY_SQL, String.class, lockName).isEmpty();
+    }
+
+    private void createMissingLocks(SortedSet<String> lockNames, LocalDateTime now) {
+        List<String> names = new ArrayList<>(lockNames);
+        Set<String> missing = new LinkedHashSet<>(names);
+        for (int from = 0; from < names.size(); from += MAX_IN_LIST_SIZE) {
+            List<String> chunk = names.subList(from, Math.min(from + MAX_IN_LIST_SIZE, names.size()));
+
+            queryCounter.increment();
+            missing.removeAll(jdbcTemplate.queryForList(String.format(EXISTING_LOCKS_SQL,
+                    placeholders(chunk.size())), String.class, chunk.toArray()));
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(missing.size());
+        for (String lockName : missing) {
+            rows.add(new Object[]{lockName, ActiveTokenLocks.LOCK_OWNER, timestamp, timestamp});
+        }
+
+        queryCounter.increment();
+        try {
+            lockTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_LOCK_SQL, rows));
+        } catch (DataIntegrityViolationException e) {
+            if (!DuplicateKeys.isDuplicateKey(e)) {
+                throw e;
+            }
+            for (String lockName : missing) {
+                createLock(lockName, now);
+            }
+        }
+    }
+
+    private void createLock(String lockName, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        queryCounter.increment();
+        try {
+            lockTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_LOCK_SQL,
+                    lockName, ActiveTokenLocks.LOCK_OWNER, timestamp, timestamp));
+        } catch (DataIntegrityViolationException e) {
+            if (!DuplicateKeys.isDuplicateKey(e)) {
+                throw e;
+            }
+            log.debug("Lock row {} was created concurrently", lockName);
+        }
+    }
+
+    private void bindInsert(PreparedStatement statement, TokenEntity entity, Timestamp timestamp) throws SQLException {
+        if (entity.getTokenKey() == null) {
+            entity.setTokenKey(TokenHasher.digest(entity.getTokenValue()));
+        }
+
+        statement.setString(1, entity.getTokenValue());
+        statement.setBytes(2, entity.getTokenKey());
+        statement.setString(3, entity.getParameterValue());
+        statement.setString(4, entity.getTokenType());
+        statement.setString(5, entity.getStatus().name());
+        statement.setTimestamp(6, Timestamp.valueOf(entity.getExpiryTime()));
+        if (entity.getUsageLimit() != null) {
+            statement.setInt(7, entity.getUsageLimit());
+        } else {
+            statement.setNull(7, Types.INTEGER);
+        }
+        statement.setInt(8, entity.getUsageCount());
+        statement.setString(9, entity.getHashingMode());
+        statement.setString(10, entity.getMetadata());
+        statement.setTimestamp(11, timestamp);
+        statement.setTimestamp(12, timestamp);
+    }
+
+    private LookupStatements lookupStatements() {
+        LookupStatements statements = lookupStatements;
+        if (statements.keyed || !compactTokenKey) {
+            return statements;
+        }
+
+        long now = System.nanoTime();
+        if (now - nextKeyCheckNanos < 0) {
+            return statements;
+        }
+        nextKeyCheckNanos = now + KEY_CHECK_INTERVAL_NANOS;
+
+        queryCounter.increment();
+        Boolean unkeyed = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(unkeyedRowSql);
+            statement.setMaxRows(1);
+            return statement;
+        }, ResultSet::next);
+        if (Boolean.TRUE.equals(unkeyed)) {
+            log.debug("{} still has rows without a TOKEN_KEY, token lookups stay on TOKEN_VALUE", tableName);
+            return statements;
+        }
+
+        statements = new LookupStatements(true);
+        lookupStatements = statements;
+        log.info("Every row in {} has a TOKEN_KEY, token lookups switched to the compact key", tableName);
+        return statements;
+    }
+
+    private String forTable(String sql) {
+        return TABLE_PATTERN.matcher(sql).replaceAll(tableName);
+    }
+
+    private static String exportWhere(TokenExportQuery query, List<Object> params) {
+        List<String> clauses = new ArrayList<>();
+        if (query.getTokenType() != null) {
+            clauses.add("TOKEN_TYPE = ?");
+            params.add(query.getTokenType());
+        }
+        if (query.getStatuses() != null && !query.getStatuses().isEmpty()) {
+            clauses.add("STATUS IN (" + placeholders(query.getStatuses().size()) + ")");
+            for (TokenStatus status : query.getStatuses()) {
+                params.add(status.name());
+            }
+        }
+        if (query.getCreatedFrom() != null) {
+            clauses.add("CREATED_AT >= ?");
+            params.add(Timestamp.valueOf(query.getCreatedFrom()));
+        }
+        if (query.getCreatedTo() != null) {
+            clauses.add("CREATED_AT < ?");
+            params.add(Timestamp.valueOf(query.getCreatedTo()));
+        }
+        if (query.getUsedFrom() != null) {
+            clauses.add("USED_AT >= ?");
+            params.add(Timestamp.valueOf(query.getUsedFrom()));
+        }
+        if (query.getUsedTo() != null) {
+            clauses.add("USED_AT < ?");
+            params.add(Timestamp.valueOf(query.getUsedTo()));
+        }
+        return clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses);
+    }
+
+    private static void bindAll(PreparedStatement statement, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    private static TokenEntity mapToken(ResultSet resultSet, int rowNum) throws SQLException {
+        TokenEntity entity = new TokenEntity();
+        entity.setId(resultSet.getLong(1));
+        entity.setTokenValue(resultSet.getString(2));
+        entity.setParameterValue(resultSet.getString(3));
+        entity.setTokenType(resultSet.getString(4));
+        entity.setStatus(TokenStatus.valueOf(resultSet.getString(5)));
+        entity.setExpiryTime(resultSet.getTimestamp(6).toLocalDateTime());
+        int usageLimit = resultSet.getInt(7);
+        entity.setUsageLimit(resultSet.wasNull() ? null : usageLimit);
+        entity.setUsageCount(resultSet.getInt(8));
+        entity.setHashingMode(resultSet.getString(9));
+        entity.setCreatedAt(resultSet.getTimestamp(10).toLocalDateTime());
+        entity.setUpdatedAt(resultSet.getTimestamp(11).toLocalDateTime());
+        Timestamp usedAt = resultSet.getTimestamp(12);
+        entity.setUsedAt(usedAt != null ? usedAt.toLocalDateTime() : null);
+        return entity;
+    }
+
+    private ValidationOutcome notFound() {
+        return ValidationOutcome.builder()
+                .valid(false)
+                .failureReason(ValidationFailureReason.NOT_FOUND)
+                .build();
+    }
+
+    private ValidationOutcome failed(String storedTokenValue, Integer usageLimit, int usageCount,
+                                     ValidationFailureReason reason) {
+        return ValidationOutcome.builder()
+                .valid(false)
+                .storedTokenValue(storedTokenValue)
+                .usageLimit(usageLimit)
+                .usageCount(usageCount)
+                .failureReason(reason)
+                .build();
+    }
+
+    private final class LookupStatements {
+
+        private final boolean keyed;
+
+        private final String findSql;
+
+        private final String findByParameterSql;
+
+        private final String findPairSql;
+
+        private final String findPairForUpdateSql;
+
+        private final String findAllForUpdateSql;
+
+        private final String incrementByValueSql;
+
+        private final String incrementByValueAndTypeSql;
+
+        private final String usageDeltaSql;
+
+        private final String invalidateSql;
+
+        private LookupStatements(boolean keyed) {
+            String lookupColumn = keyed ? "TOKEN_KEY" : "TOKEN_VALUE";
+            this.keyed = keyed;
+            this.findSql = String.format(forTable(FIND_SQL), lookupColumn);
+            this.findByParameterSql = String.format(forTable(FIND_BY_PARAMETER_SQL), lookupColumn);
+            this.findPairSql = String.format(forTable(FIND_PAIR_SQL), lookupColumn);
+            this.findPairForUpdateSql = String.format(forTable(FIND_PAIR_FOR_UPDATE_SQL), lookupColumn);
+            this.findAllForUpdateSql = String.format(forTable(FIND_ALL_FOR_UPDATE_SQL), lookupColumn, "%s");
+            this.incrementByValueSql = String.format(forTable(INCREMENT_BY_VALUE_SQL), lookupColumn);
+            this.incrementByValueAndTypeSql = incrementByValueSql + TOKEN_TYPE_CLAUSE;
+            this.usageDeltaSql = String.format(forTable(USAGE_DELTA_SQL), lookupColumn);
+            this.invalidateSql = String.format(forTable(INVALIDATE_SQL), lookupColumn);
+        }
+
+        private void bind(PreparedStatement statement, int index, String tokenValue) throws SQLException {
+            if (keyed) {
+                statement.setBytes(index, TokenHasher.digest(tokenValue));
+            } else {
+                statement.setString(index, tokenValue);
+            }
+        }
+    }
+}
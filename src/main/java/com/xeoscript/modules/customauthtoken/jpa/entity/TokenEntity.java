@@ -1,6 +1,7 @@
 package com.xeoscript.modules.customauthtoken.jpa.entity;
 
 import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -20,8 +21,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "CUSTOM_AUTH_TOKEN", indexes = {
         @Index(name = "IDX_TOKEN_VALUE", columnList = "TOKEN_VALUE", unique = true),
+        @Index(name = "IDX_TOKEN_KEY", columnList = "TOKEN_KEY", unique = true),
         @Index(name = "IDX_PARAM_TYPE", columnList = "PARAMETER_VALUE, TOKEN_TYPE"),
-        @Index(name = "IDX_STATUS", columnList = "STATUS"),
+        @Index(name = "IDX_STATUS_UPDATED_AT", columnList = "STATUS, UPDATED_AT"),
         @Index(name = "IDX_EXPIRY_TIME", columnList = "EXPIRY_TIME")
 })
 @Getter
@@ -33,9 +35,12 @@ public class TokenEntity {
     @Column(name = "ID")
     private Long id;
 
-    @Column(name = "TOKEN_VALUE", nullable = false, length = 512, unique = true)
+    @Column(name = "TOKEN_VALUE", nullable = false, length = 512)
     private String tokenValue;
 
+    @Column(name = "TOKEN_KEY", length = 32)
+    private byte[] tokenKey;
+
     @Column(name = "PARAMETER_VALUE", nullable = false, length = 512)
     private String parameterValue;
 
@@ -75,6 +80,9 @@ public class TokenEntity {
         LocalDateTime now = LocalDateTime.now();
         createdAt = now;
         updatedAt = now;
+        if (tokenKey == null && tokenValue != null) {
+            tokenKey = TokenHasher.digest(tokenValue);
+        }
     }
 
     @PreUpdate
@@ -0,0 +1,30 @@
+package com.xeoscript.modules.customauthtoken.jpa.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "CUSTOM_AUTH_TOKEN_LOCK")
+@Getter
+@Setter
+public class TokenLockEntity {
+
+    @Id
+    @Column(name = "LOCK_NAME", length = 64)
+    private String lockName;
+
+    @Column(name = "LOCKED_BY", nullable = false, length = 255)
+    private String lockedBy;
+
+    @Column(name = "LOCKED_AT", nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(name = "LOCKED_UNTIL", nullable = false)
+    private LocalDateTime lockedUntil;
+}
@@ -0,0 +1,55 @@
+package com.xeoscript.modules.customauthtoken.jpa.event;
+
+import com.xeoscript.modules.customauthtoken.model.enums.TokenLifecycleEventType;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "CUSTOM_AUTH_TOKEN_EVENT", indexes = {
+        @Index(name = "IDX_EVENT_OCCURRED_AT", columnList = "OCCURRED_AT"),
+        @Index(name = "IDX_EVENT_PARAM_TYPE", columnList = "PARAMETER_VALUE, TOKEN_TYPE")
+})
+@Getter
+@Setter
+public class TokenEventEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "EVENT_TYPE", nullable = false, length = 30)
+    private TokenLifecycleEventType eventType;
+
+    @Column(name = "OCCURRED_AT", nullable = false)
+    private LocalDateTime occurredAt;
+
+    @Column(name = "PARAMETER_VALUE", length = 512)
+    private String parameterValue;
+
+    @Column(name = "TOKEN_TYPE", length = 100)
+    private String tokenType;
+
+    @Column(name = "TOKEN_HASH", length = 64)
+    private String tokenHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "FAILURE_REASON", length = 40)
+    private ValidationFailureReason failureReason;
+
+    @Column(name = "AFFECTED_COUNT", nullable = false)
+    private long affectedCount;
+}
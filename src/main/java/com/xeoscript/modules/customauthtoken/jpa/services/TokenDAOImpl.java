@@ -1,43 +1,270 @@
 package com.xeoscript.modules.customauthtoken.jpa.services;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
 import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
 import com.xeoscript.modules.customauthtoken.jpa.entity.QTokenEntity;
+import com.xeoscript.modules.customauthtoken.jpa.entity.QTokenLockEntity;
 import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenLockEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
 import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.util.ActiveTokenLocks;
+import com.xeoscript.modules.customauthtoken.util.DuplicateKeys;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import com.xeoscript.modules.customauthtoken.util.TokenStatusCounts;
+import com.xeoscript.modules.customauthtoken.util.ValidationFailureClassifier;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository
+@Slf4j
 @RequiredArgsConstructor
+@ConditionalOnClass(name = "javax.persistence.EntityManager")
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "jpa", matchIfMissing = true)
 public class TokenDAOImpl implements TokenDAO {
 
+    private static final String POSTGRES_VALIDATE_SQL = "WITH candidate AS ("
+            + " SELECT ID, TOKEN_VALUE, PARAMETER_VALUE, TOKEN_TYPE, STATUS, EXPIRY_TIME, USAGE_LIMIT, USAGE_COUNT"
+            + " FROM CUSTOM_AUTH_TOKEN WHERE %1$s IN (?1, ?2)"
+            + " ORDER BY CASE WHEN %1$s = ?1 THEN 0 ELSE 1 END LIMIT 1"
+            + "), updated AS ("
+            + " UPDATE CUSTOM_AUTH_TOKEN t SET USAGE_COUNT = t.USAGE_COUNT + 1, USED_AT = ?4, UPDATED_AT = ?4,"
+            + " STATUS = CASE WHEN t.USAGE_LIMIT IS NOT NULL AND t.USAGE_COUNT + 1 >= t.USAGE_LIMIT"
+            + " THEN 'USED' ELSE 'PARTIALLY_USED' END"
+            + " FROM candidate c"
+            + " WHERE t.ID = c.ID AND t.PARAMETER_VALUE = ?3"
+            + " AND t.STATUS IN ('ACTIVE', 'PARTIALLY_USED') AND t.EXPIRY_TIME > ?4"
+            + " AND (t.USAGE_LIMIT IS NULL OR t.USAGE_COUNT < t.USAGE_LIMIT)%2$s"
+            + " RETURNING t.ID, t.USAGE_COUNT"
+            + ")"
+            + " SELECT c.TOKEN_VALUE, c.PARAMETER_VALUE, c.TOKEN_TYPE, c.STATUS, c.EXPIRY_TIME,"
+            + " c.USAGE_LIMIT, c.USAGE_COUNT, u.USAGE_COUNT AS UPDATED_USAGE_COUNT"
+            + " FROM candidate c LEFT JOIN updated u ON u.ID = c.ID";
+
+    private static final String H2_VALIDATE_SQL = "SELECT c.TOKEN_VALUE, c.PARAMETER_VALUE, c.TOKEN_TYPE, c.STATUS,"
+            + " c.EXPIRY_TIME, c.USAGE_LIMIT, c.USAGE_COUNT, u.USAGE_COUNT AS UPDATED_USAGE_COUNT"
+            + " FROM CUSTOM_AUTH_TOKEN c LEFT JOIN FINAL TABLE ("
+            + " UPDATE CUSTOM_AUTH_TOKEN t SET USAGE_COUNT = t.USAGE_COUNT + 1, USED_AT = ?4, UPDATED_AT = ?4,"
+            + " STATUS = CASE WHEN t.USAGE_LIMIT IS NOT NULL AND t.USAGE_COUNT + 1 >= t.USAGE_LIMIT"
+            + " THEN 'USED' ELSE 'PARTIALLY_USED' END"
+            + " WHERE t.ID = (SELECT ID FROM CUSTOM_AUTH_TOKEN WHERE %1$s IN (?1, ?2)"
+            + " ORDER BY CASE WHEN %1$s = ?1 THEN 0 ELSE 1 END LIMIT 1)"
+            + " AND t.PARAMETER_VALUE = ?3"
+            + " AND t.STATUS IN ('ACTIVE', 'PARTIALLY_USED') AND t.EXPIRY_TIME > ?4"
+            + " AND (t.USAGE_LIMIT IS NULL OR t.USAGE_COUNT < t.USAGE_LIMIT)%2$s"
+            + ") u ON u.ID = c.ID"
+            + " WHERE c.%1$s IN (?1, ?2)"
+            + " ORDER BY CASE WHEN c.%1$s = ?1 THEN 0 ELSE 1 END LIMIT 1";
+
+    private static final String RETURNING_TOKEN_TYPE_CLAUSE = " AND t.TOKEN_TYPE = ?5";
+
+    private static final String BATCH_INSERT_SQL = "INSERT INTO CUSTOM_AUTH_TOKEN"
+            + " (TOKEN_VALUE, TOKEN_KEY, PARAMETER_VALUE, TOKEN_TYPE, STATUS, EXPIRY_TIME, USAGE_LIMIT, USAGE_COUNT,"
+            + " HASHING_MODE, METADATA, CREATED_AT, UPDATED_AT)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String BATCH_INCREMENT_SQL = "UPDATE CUSTOM_AUTH_TOKEN"
+            + " SET USAGE_COUNT = USAGE_COUNT + 1, USED_AT = ?, UPDATED_AT = ?,"
+            + " STATUS = CASE WHEN USAGE_LIMIT IS NOT NULL AND USAGE_COUNT + 1 >= USAGE_LIMIT"
+            + " THEN 'USED' ELSE 'PARTIALLY_USED' END"
+            + " WHERE ID = ? AND STATUS IN ('ACTIVE', 'PARTIALLY_USED') AND EXPIRY_TIME > ?"
+            + " AND (USAGE_LIMIT IS NULL OR USAGE_COUNT < USAGE_LIMIT)";
+
+    private static final String USAGE_DELTA_SQL = "UPDATE CUSTOM_AUTH_TOKEN"
+            + " SET USAGE_COUNT = USAGE_COUNT + ?, USED_AT = ?, UPDATED_AT = ?,"
+            + " STATUS = CASE WHEN STATUS = 'ACTIVE' THEN 'PARTIALLY_USED' ELSE STATUS END"
+            + " WHERE %s = ? AND USAGE_LIMIT IS NULL";
+
+    private static final String TOKEN_VALUE_COLUMN = "TOKEN_VALUE";
+
+    private static final String TOKEN_KEY_COLUMN = "TOKEN_KEY";
+
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     @PersistenceContext
     private EntityManager entityManager;
 
     private final JPAQueryFactory queryFactory;
 
+    private final TokenQueryCounter queryCounter;
+
+    private final TokenProperties properties;
+
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    private final TokenKeyMigrator tokenKeyMigrator;
+
+    private volatile String singleStatementSql;
+
     @Override
     @Transactional
     public void save(TokenEntity entity) {
+        queryCounter.increment();
         entityManager.persist(entity);
     }
 
+    @Override
+    @Transactional
+    public void saveAll(List<TokenEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        queryCounter.increment();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(BATCH_INSERT_SQL)) {
+                for (TokenEntity entity : entities) {
+                    entity.setCreatedAt(now);
+                    entity.setUpdatedAt(now);
+
+                    if (entity.getTokenKey() == null) {
+                        entity.setTokenKey(TokenHasher.digest(entity.getTokenValue()));
+                    }
+
+                    statement.setString(1, entity.getTokenValue());
+                    statement.setBytes(2, entity.getTokenKey());
+                    statement.setString(3, entity.getParameterValue());
+                    statement.setString(4, entity.getTokenType());
+                    statement.setString(5, entity.getStatus().name());
+                    statement.setTimestamp(6, Timestamp.valueOf(entity.getExpiryTime()));
+                    if (entity.getUsageLimit() != null) {
+                        statement.setInt(7, entity.getUsageLimit());
+                    } else {
+                        statement.setNull(7, Types.INTEGER);
+                    }
+                    statement.setInt(8, entity.getUsageCount());
+                    statement.setString(9, entity.getHashingMode());
+                    statement.setString(10, entity.getMetadata());
+                    statement.setTimestamp(11, timestamp);
+                    statement.setTimestamp(12, timestamp);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public long saveAllSuperseding(List<TokenEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        SortedSet<String> lockNames = ActiveTokenLocks.lockNames(entities);
+        createMissingLocks(lockNames, now);
+        for (String lockName : lockNames) {
+            lockKey(lockName, now);
+        }
+
+        QTokenEntity q = QTokenEntity.tokenEntity;
+        long superseded = 0;
+        for (TokenEntity key : ActiveTokenLocks.distinctKeys(entities)) {
+            queryCounter.increment();
+            superseded += queryFactory.update(q)
+                    .set(q.status, TokenStatus.INVALIDATED)
+                    .set(q.updatedAt, now)
+                    .where(q.parameterValue.eq(key.getParameterValue()),
+                            key.getTokenType() != null ? q.tokenType.eq(key.getTokenType()) : q.tokenType.isNull(),
+                            q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED),
+                            q.expiryTime.gt(now))
+                    .execute();
+        }
+
+        if (entities.size() == 1) {
+            save(entities.get(0));
+        } else {
+            saveAll(entities);
+        }
+        return superseded;
+    }
+
     @Override
     public TokenEntity findByTokenValue(String tokenValue) {
         QTokenEntity q = QTokenEntity.tokenEntity;
+        queryCounter.increment();
         return queryFactory.selectFrom(q)
-                .where(q.tokenValue.eq(tokenValue))
+                .where(tokenValueEq(q, tokenValue))
                 .fetchOne();
     }
 
+    @Override
+    public TokenEntity findByRawTokenValue(String rawTokenValue, String hashedTokenValue) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+        queryCounter.increment();
+        List<TokenEntity> candidates = queryFactory.selectFrom(q)
+                .where(tokenValueIn(q, Arrays.asList(rawTokenValue, hashedTokenValue)))
+                .fetch();
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        TokenEntity entity = candidates.get(0);
+        for (TokenEntity candidate : candidates) {
+            if (candidate.getTokenValue().equals(rawTokenValue)) {
+                entity = candidate;
+            }
+        }
+        return entity;
+    }
+
     @Override
     @Transactional
     public long atomicValidateAndIncrement(String tokenValue, String parameter,
@@ -45,28 +272,134 @@ public class TokenDAOImpl implements TokenDAO {
         QTokenEntity q = QTokenEntity.tokenEntity;
 
         BooleanBuilder where = new BooleanBuilder();
-        where.and(q.tokenValue.eq(tokenValue));
-        where.and(q.parameterValue.eq(parameter));
-        where.and(q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED));
-        where.and(q.expiryTime.gt(now));
-        where.and(q.usageLimit.isNull().or(q.usageCount.lt(q.usageLimit)));
+        where.and(tokenValueEq(q, tokenValue));
+        where.and(usablePredicate(q, parameter, tokenType, now));
 
-        if (tokenType != null) {
-            where.and(q.tokenType.eq(tokenType));
+        return incrementUsage(q, where, now);
+    }
+
+    @Override
+    @Transactional
+    public ValidationOutcome validateAndIncrement(String rawTokenValue, String hashedTokenValue, String parameter,
+                                                  String tokenType, LocalDateTime now) {
+        String sql = singleStatementSql();
+        if (sql.isEmpty()) {
+            return validateWithLockedRead(rawTokenValue, hashedTokenValue, parameter, tokenType, now);
         }
+        return validateWithReturning(sql, rawTokenValue, hashedTokenValue, parameter, tokenType, now);
+    }
 
-        return queryFactory.update(q)
-                .set(q.usageCount, q.usageCount.add(1))
-                .set(q.usedAt, now)
-                .set(q.updatedAt, now)
-                .set(q.status, new CaseBuilder()
-                        .when(q.usageLimit.isNotNull().and(q.usageCount.add(1).goe(q.usageLimit)))
-                        .then(TokenStatus.USED)
-                        .when(q.usageCount.add(1).gt(0))
-                        .then(TokenStatus.PARTIALLY_USED)
-                        .otherwise(q.status))
-                .where(where)
-                .execute();
+    @Override
+    @Transactional
+    public List<ValidationOutcome> validateAndIncrementAll(List<ValidateTokenRequest> requests,
+                                                           List<String> hashedTokenValues, LocalDateTime now) {
+        Set<String> lookupValues = new LinkedHashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            lookupValues.add(requests.get(i).getToken());
+            lookupValues.add(hashedTokenValues.get(i));
+        }
+
+        Map<String, TokenEntity> entitiesByValue = new HashMap<>();
+        for (TokenEntity entity : findAllForUpdate(new ArrayList<>(lookupValues))) {
+            entitiesByValue.put(entity.getTokenValue(), entity);
+        }
+
+        Map<Long, Integer> usageCounts = new HashMap<>();
+        List<ValidationOutcome> outcomes = new ArrayList<>(requests.size());
+        List<Integer> incrementIndexes = new ArrayList<>();
+        List<Long> incrementIds = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            ValidateTokenRequest request = requests.get(i);
+            TokenEntity entity = entitiesByValue.get(request.getToken());
+            if (entity == null) {
+                entity = entitiesByValue.get(hashedTokenValues.get(i));
+            }
+            if (entity == null) {
+                outcomes.add(notFound());
+                continue;
+            }
+
+            int usageCount = usageCounts.getOrDefault(entity.getId(), entity.getUsageCount());
+
+            ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                    entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                    entity.getUsageLimit(), usageCount, request.getParameter(), request.getTokenType(), now);
+            if (reason != null) {
+                outcomes.add(failed(entity.getTokenValue(), entity.getUsageLimit(), usageCount, reason));
+                continue;
+            }
+
+            usageCounts.put(entity.getId(), usageCount + 1);
+            incrementIndexes.add(i);
+            incrementIds.add(entity.getId());
+            outcomes.add(ValidationOutcome.builder()
+                    .valid(true)
+                    .storedTokenValue(entity.getTokenValue())
+                    .parameterValue(entity.getParameterValue())
+                    .tokenType(entity.getTokenType())
+                    .expiryTime(entity.getExpiryTime())
+                    .usageLimit(entity.getUsageLimit())
+                    .usageCount(usageCount + 1)
+                    .build());
+        }
+
+        for (TokenEntity entity : entitiesByValue.values()) {
+            entityManager.detach(entity);
+        }
+
+        if (incrementIds.isEmpty()) {
+            return outcomes;
+        }
+
+        int[] updateCounts = batchIncrement(incrementIds, now);
+        for (int j = 0; j < updateCounts.length; j++) {
+            if (updateCounts[j] == 0) {
+                int index = incrementIndexes.get(j);
+                ValidationOutcome outcome = outcomes.get(index);
+                outcomes.set(index, failed(outcome.getStoredTokenValue(), outcome.getUsageLimit(),
+                        outcome.getUsageCount() - 1, ValidationFailureReason.USAGE_LIMIT_EXCEEDED));
+            }
+        }
+
+        return outcomes;
+    }
+
+    @Override
+    @Transactional
+    public long applyUsageDeltas(List<UsageDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        boolean compact = keyLookups();
+        String sql = String.format(USAGE_DELTA_SQL, compact ? TOKEN_KEY_COLUMN : TOKEN_VALUE_COLUMN);
+
+        queryCounter.increment();
+        int[] updateCounts = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (UsageDelta delta : deltas) {
+                    statement.setInt(1, delta.getUsageCount());
+                    statement.setTimestamp(2, Timestamp.valueOf(delta.getLastUsedAt()));
+                    statement.setTimestamp(3, now);
+                    if (compact) {
+                        statement.setBytes(4, TokenHasher.digest(delta.getStoredTokenValue()));
+                    } else {
+                        statement.setString(4, delta.getStoredTokenValue());
+                    }
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+
+        long rows = 0;
+        for (int count : updateCounts) {
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return rows;
     }
 
     @Override
@@ -74,30 +407,605 @@ public class TokenDAOImpl implements TokenDAO {
     public long invalidate(String tokenValue) {
         QTokenEntity q = QTokenEntity.tokenEntity;
 
+        queryCounter.increment();
         return queryFactory.update(q)
                 .set(q.status, TokenStatus.INVALIDATED)
                 .set(q.updatedAt, LocalDateTime.now())
-                .where(q.tokenValue.eq(tokenValue)
+                .where(tokenValueEq(q, tokenValue)
                         .and(q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED)))
                 .execute();
     }
 
+    @Override
+    @Transactional
+    public long invalidateAllChunk(String parameter, String tokenType, LocalDateTime now, int limit) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        BooleanBuilder where = new BooleanBuilder();
+        if (parameter != null) {
+            where.and(q.parameterValue.eq(parameter));
+        }
+        if (tokenType != null) {
+            where.and(q.tokenType.eq(tokenType));
+        }
+        where.and(q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED));
+        where.and(q.expiryTime.gt(now));
+
+        queryCounter.increment();
+        List<Long> ids = queryFactory.select(q.id)
+                .from(q)
+                .where(where)
+                .limit(limit)
+                .fetch();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        queryCounter.increment();
+        return queryFactory.update(q)
+                .set(q.status, TokenStatus.INVALIDATED)
+                .set(q.updatedAt, now)
+                .where(q.id.in(ids), q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED))
+                .execute();
+    }
+
     @Override
     @Transactional
     public long deleteExpired(LocalDateTime before) {
         QTokenEntity q = QTokenEntity.tokenEntity;
 
+        queryCounter.increment();
         return queryFactory.delete(q)
                 .where(q.expiryTime.lt(before))
                 .execute();
     }
 
+    @Override
+    public long countExpired(LocalDateTime before) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        queryCounter.increment();
+        Long count = queryFactory.select(q.id.count())
+                .from(q)
+                .where(q.expiryTime.lt(before))
+                .fetchOne();
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        queryCounter.increment();
+        Long count = queryFactory.select(q.id.count())
+                .from(q)
+                .where(q.expiryTime.goe(now)
+                        .and(q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED)))
+                .fetchOne();
+        return count != null ? count : 0;
+    }
+
+    @Override
+    @Transactional
+    public ExpiredChunk deleteExpiredChunk(LocalDateTime before, LocalDateTime afterExpiryTime, Long afterId,
+                                           int limit) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        BooleanBuilder where = new BooleanBuilder();
+        where.and(q.expiryTime.lt(before));
+        if (afterExpiryTime != null) {
+            where.and(q.expiryTime.gt(afterExpiryTime)
+                    .or(q.expiryTime.eq(afterExpiryTime).and(q.id.gt(afterId))));
+        }
+
+        queryCounter.increment();
+        List<Tuple> keys = queryFactory.select(q.id, q.expiryTime)
+                .from(q)
+                .where(where)
+                .orderBy(q.expiryTime.asc(), q.id.asc())
+                .limit(limit)
+                .fetch();
+        if (keys.isEmpty()) {
+            return ExpiredChunk.builder().build();
+        }
+
+        List<Long> ids = new ArrayList<>(keys.size());
+        for (Tuple key : keys) {
+            ids.add(key.get(q.id));
+        }
+
+        queryCounter.increment();
+        long deleted = queryFactory.delete(q)
+                .where(q.id.in(ids))
+                .execute();
+
+        Tuple last = keys.get(keys.size() - 1);
+        return ExpiredChunk.builder()
+                .deletedCount(deleted)
+                .lastExpiryTime(last.get(q.expiryTime))
+                .lastId(last.get(q.id))
+                .hasMore(keys.size() == limit)
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryAcquireLock(String lockName, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        QTokenLockEntity l = QTokenLockEntity.tokenLockEntity;
+
+        queryCounter.increment();
+        long updated = queryFactory.update(l)
+                .set(l.lockedBy, owner)
+                .set(l.lockedAt, now)
+                .set(l.lockedUntil, lockedUntil)
+                .where(l.lockName.eq(lockName)
+                        .and(l.lockedUntil.lt(now).or(l.lockedBy.eq(owner))))
+                .execute();
+        if (updated > 0) {
+            return true;
+        }
+
+        queryCounter.increment();
+        if (entityManager.find(TokenLockEntity.class, lockName) != null) {
+            return false;
+        }
+
+        TokenLockEntity lock = new TokenLockEntity();
+        lock.setLockName(lockName);
+        lock.setLockedBy(owner);
+        lock.setLockedAt(now);
+        lock.setLockedUntil(lockedUntil);
+
+        queryCounter.increment();
+        entityManager.persist(lock);
+        entityManager.flush();
+        return true;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseLock(String lockName, String owner) {
+        QTokenLockEntity l = QTokenLockEntity.tokenLockEntity;
+
+        queryCounter.increment();
+        queryFactory.update(l)
+                .set(l.lockedUntil, LocalDateTime.now())
+                .where(l.lockName.eq(lockName).and(l.lockedBy.eq(owner)))
+                .execute();
+    }
+
     @Override
     public TokenEntity findByTokenValueAndParameter(String tokenValue, String parameter) {
         QTokenEntity q = QTokenEntity.tokenEntity;
+        queryCounter.increment();
         return queryFactory.selectFrom(q)
-                .where(q.tokenValue.eq(tokenValue)
+                .where(tokenValueEq(q, tokenValue)
                         .and(q.parameterValue.eq(parameter)))
                 .fetchOne();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamTokenValues(LocalDateTime createdSince, Consumer<String> consumer) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        JPAQuery<String> query = queryFactory.select(q.tokenValue).from(q);
+        if (createdSince != null) {
+            query.where(q.createdAt.goe(createdSince));
+        }
+        query.setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE);
+
+        queryCounter.increment();
+        long count = 0;
+        try (CloseableIterator<String> values = query.iterate()) {
+            while (values.hasNext()) {
+                consumer.accept(values.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamInvalidatedTokens(String hashingMode, LocalDateTime updatedSince, LocalDateTime expiringAfter,
+                                        BiConsumer<String, LocalDateTime> consumer) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        JPAQuery<Tuple> query = queryFactory.select(q.tokenValue, q.expiryTime)
+                .from(q)
+                .where(q.status.eq(TokenStatus.INVALIDATED)
+                        .and(q.hashingMode.eq(hashingMode))
+                        .and(q.expiryTime.gt(expiringAfter)));
+        if (updatedSince != null) {
+            query.where(q.updatedAt.goe(updatedSince));
+        }
+        query.setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE);
+
+        queryCounter.increment();
+        long count = 0;
+        try (CloseableIterator<Tuple> rows = query.iterate()) {
+            while (rows.hasNext()) {
+                Tuple row = rows.next();
+                consumer.accept(row.get(q.tokenValue), row.get(q.expiryTime));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamTokens(TokenExportQuery exportQuery, Consumer<TokenEntity> consumer) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        JPAQuery<Tuple> query = queryFactory.select(q.id, q.tokenValue, q.parameterValue, q.tokenType, q.status,
+                        q.expiryTime, q.usageLimit, q.usageCount, q.hashingMode, q.createdAt, q.updatedAt, q.usedAt)
+                .from(q)
+                .where(exportPredicate(q, exportQuery));
+        query.setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE);
+        query.setHint(QueryHints.READ_ONLY, true);
+
+        queryCounter.increment();
+        long count = 0;
+        try (CloseableIterator<Tuple> rows = query.iterate()) {
+            while (rows.hasNext()) {
+                Tuple row = rows.next();
+                TokenEntity entity = new TokenEntity();
+                entity.setId(row.get(q.id));
+                entity.setTokenValue(row.get(q.tokenValue));
+                entity.setParameterValue(row.get(q.parameterValue));
+                entity.setTokenType(row.get(q.tokenType));
+                entity.setStatus(row.get(q.status));
+                entity.setExpiryTime(row.get(q.expiryTime));
+                entity.setUsageLimit(row.get(q.usageLimit));
+                entity.setUsageCount(row.get(q.usageCount));
+                entity.setHashingMode(row.get(q.hashingMode));
+                entity.setCreatedAt(row.get(q.createdAt));
+                entity.setUpdatedAt(row.get(q.updatedAt));
+                entity.setUsedAt(row.get(q.usedAt));
+                consumer.accept(entity);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery exportQuery) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        queryCounter.increment();
+        List<Tuple> rows = queryFactory.select(q.tokenType, q.status, q.id.count())
+                .from(q)
+                .where(exportPredicate(q, exportQuery))
+                .groupBy(q.tokenType, q.status)
+                .fetch();
+
+        Map<String, Map<TokenStatus, Long>> table = TokenStatusCounts.newTable();
+        for (Tuple row : rows) {
+            Long count = row.get(q.id.count());
+            TokenStatusCounts.add(table, row.get(q.tokenType), row.get(q.status), count != null ? count : 0);
+        }
+        return TokenStatusCounts.toList(table);
+    }
+
+    private static Predicate exportPredicate(QTokenEntity q, TokenExportQuery exportQuery) {
+        BooleanBuilder where = new BooleanBuilder();
+        if (exportQuery.getTokenType() != null) {
+            where.and(q.tokenType.eq(exportQuery.getTokenType()));
+        }
+        if (exportQuery.getStatuses() != null && !exportQuery.getStatuses().isEmpty()) {
+            where.and(q.status.in(exportQuery.getStatuses()));
+        }
+        if (exportQuery.getCreatedFrom() != null) {
+            where.and(q.createdAt.goe(exportQuery.getCreatedFrom()));
+        }
+        if (exportQuery.getCreatedTo() != null) {
+            where.and(q.createdAt.lt(exportQuery.getCreatedTo()));
+        }
+        if (exportQuery.getUsedFrom() != null) {
+            where.and(q.usedAt.goe(exportQuery.getUsedFrom()));
+        }
+        if (exportQuery.getUsedTo() != null) {
+            where.and(q.usedAt.lt(exportQuery.getUsedTo()));
+        }
+        return where;
+    }
+
+    private ValidationOutcome validateWithReturning(String template, String rawTokenValue, String hashedTokenValue,
+                                                   String parameter, String tokenType, LocalDateTime now) {
+        boolean compact = keyLookups();
+        String sql = String.format(template, compact ? TOKEN_KEY_COLUMN : TOKEN_VALUE_COLUMN,
+                tokenType != null ? RETURNING_TOKEN_TYPE_CLAUSE : "");
+
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter(1, compact ? TokenHasher.digest(rawTokenValue) : rawTokenValue)
+                .setParameter(2, compact ? TokenHasher.digest(hashedTokenValue) : hashedTokenValue)
+                .setParameter(3, parameter)
+                .setParameter(4, Timestamp.valueOf(now));
+        if (tokenType != null) {
+            query.setParameter(5, tokenType);
+        }
+
+        queryCounter.increment();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return notFound();
+        }
+
+        Object[] row = rows.get(0);
+        String storedTokenValue = (String) row[0];
+        LocalDateTime expiryTime = ((Timestamp) row[4]).toLocalDateTime();
+        Integer usageLimit = row[5] != null ? ((Number) row[5]).intValue() : null;
+
+        if (row[7] != null) {
+            return ValidationOutcome.builder()
+                    .valid(true)
+                    .storedTokenValue(storedTokenValue)
+                    .parameterValue((String) row[1])
+                    .tokenType((String) row[2])
+                    .expiryTime(expiryTime)
+                    .usageLimit(usageLimit)
+                    .usageCount(((Number) row[7]).intValue())
+                    .build();
+        }
+
+        int usageCount = ((Number) row[6]).intValue();
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                TokenStatus.valueOf((String) row[3]), expiryTime, (String) row[1], (String) row[2],
+                usageLimit, usageCount, parameter, tokenType, now);
+
+        return failed(storedTokenValue, usageLimit, usageCount,
+                reason != null ? reason : ValidationFailureReason.USAGE_LIMIT_EXCEEDED);
+    }
+
+    private ValidationOutcome validateWithLockedRead(String rawTokenValue, String hashedTokenValue, String parameter,
+                                                     String tokenType, LocalDateTime now) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        queryCounter.increment();
+        List<TokenEntity> candidates = queryFactory.selectFrom(q)
+                .where(tokenValueIn(q, Arrays.asList(rawTokenValue, hashedTokenValue)))
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+        if (candidates.isEmpty()) {
+            return notFound();
+        }
+
+        TokenEntity entity = candidates.get(0);
+        for (TokenEntity candidate : candidates) {
+            if (candidate.getTokenValue().equals(rawTokenValue)) {
+                entity = candidate;
+            }
+        }
+
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                entity.getUsageLimit(), entity.getUsageCount(), parameter, tokenType, now);
+        if (reason != null) {
+            return failed(entity.getTokenValue(), entity.getUsageLimit(), entity.getUsageCount(), reason);
+        }
+
+        BooleanBuilder where = new BooleanBuilder();
+        where.and(q.id.eq(entity.getId()));
+        where.and(usablePredicate(q, parameter, tokenType, now));
+
+        if (incrementUsage(q, where, now) == 0) {
+            return failed(entity.getTokenValue(), entity.getUsageLimit(), entity.getUsageCount(),
+                    ValidationFailureReason.USAGE_LIMIT_EXCEEDED);
+        }
+
+        entityManager.detach(entity);
+
+        return ValidationOutcome.builder()
+                .valid(true)
+                .storedTokenValue(entity.getTokenValue())
+                .parameterValue(entity.getParameterValue())
+                .tokenType(entity.getTokenType())
+                .expiryTime(entity.getExpiryTime())
+                .usageLimit(entity.getUsageLimit())
+                .usageCount(entity.getUsageCount() + 1)
+                .build();
+    }
+
+    private List<TokenEntity> findAllForUpdate(List<String> tokenValues) {
+        QTokenEntity q = QTokenEntity.tokenEntity;
+
+        List<TokenEntity> entities = new ArrayList<>();
+        for (int from = 0; from < tokenValues.size(); from += MAX_IN_LIST_SIZE) {
+            List<String> chunk = tokenValues.subList(from, Math.min(from + MAX_IN_LIST_SIZE, tokenValues.size()));
+            queryCounter.increment();
+            entities.addAll(queryFactory.selectFrom(q)
+                    .where(tokenValueIn(q, chunk))
+                    .orderBy(q.id.asc())
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .fetch());
+        }
+        return entities;
+    }
+
+    private int[] batchIncrement(List<Long> ids, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        queryCounter.increment();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(BATCH_INCREMENT_SQL)) {
+                for (Long id : ids) {
+                    statement.setTimestamp(1, timestamp);
+                    statement.setTimestamp(2, timestamp);
+                    statement.setLong(3, id);
+                    statement.setTimestamp(4, timestamp);
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    private boolean keyLookups() {
+        return properties.isCompactTokenKey() && tokenKeyMigrator.isComplete();
+    }
+
+    private BooleanExpression tokenValueEq(QTokenEntity q, String tokenValue) {
+        if (keyLookups()) {
+            return q.tokenKey.eq(TokenHasher.digest(tokenValue));
+        }
+        return q.tokenValue.eq(tokenValue);
+    }
+
+    private BooleanExpression tokenValueIn(QTokenEntity q, List<String> tokenValues) {
+        if (keyLookups()) {
+            List<byte[]> tokenKeys = new ArrayList<>(tokenValues.size());
+            for (String tokenValue : tokenValues) {
+                tokenKeys.add(TokenHasher.digest(tokenValue));
+            }
+            return q.tokenKey.in(tokenKeys);
+        }
+        return q.tokenValue.in(tokenValues);
+    }
+
+    private Predicate usablePredicate(QTokenEntity q, String parameter, String tokenType, LocalDateTime now) {
+        BooleanBuilder where = new BooleanBuilder();
+        where.and(q.parameterValue.eq(parameter));
+        where.and(q.status.in(TokenStatus.ACTIVE, TokenStatus.PARTIALLY_USED));
+        where.and(q.expiryTime.gt(now));
+        where.and(q.usageLimit.isNull().or(q.usageCount.lt(q.usageLimit)));
+
+        if (tokenType != null) {
+            where.and(q.tokenType.eq(tokenType));
+        }
+
+        return where;
+    }
+
+    private long incrementUsage(QTokenEntity q, Predicate where, LocalDateTime now) {
+        queryCounter.increment();
+        return queryFactory.update(q)
+                .set(q.usageCount, q.usageCount.add(1))
+                .set(q.usedAt, now)
+                .set(q.updatedAt, now)
+                .set(q.status, new CaseBuilder()
+                        .when(q.usageLimit.isNotNull().and(q.usageCount.add(1).goe(q.usageLimit)))
+                        .then(TokenStatus.USED)
+                        .when(q.usageCount.add(1).gt(0))
+                        .then(TokenStatus.PARTIALLY_USED)
+                        .otherwise(q.status))
+                .where(where)
+                .execute();
+    }
+
+    private void lockKey(String lockName, LocalDateTime now) {
+        queryCounter.increment();
+        if (entityManager.find(TokenLockEntity.class, lockName, LockModeType.PESSIMISTIC_WRITE) != null) {
+            return;
+        }
+
+        createLock(lockName, now);
+
+        queryCounter.increment();
+        if (entityManager.find(TokenLockEntity.class, lockName, LockModeType.PESSIMISTIC_WRITE) == null) {
+            throw new IllegalStateException("Lock row " + lockName + " could not be created");
+        }
+    }
+
+    /**
+     * Rows missing for first-time keys are inserted up front in one transaction, so a chunk of new parameters
+     * costs one extra transaction rather than one per key. Should another node create one of them first, each
+     * is retried on its own.
+     */
+    private void createMissingLocks(SortedSet<String> lockNames, LocalDateTime now) {
+        List<String> names = new ArrayList<>(lockNames);
+        Set<String> missing = new LinkedHashSet<>(names);
+        QTokenLockEntity l = QTokenLockEntity.tokenLockEntity;
+        for (int from = 0; from < names.size(); from += MAX_IN_LIST_SIZE) {
+            List<String> chunk = names.subList(from, Math.min(from + MAX_IN_LIST_SIZE, names.size()));
+
+            queryCounter.increment();
+            missing.removeAll(queryFactory.select(l.lockName)
+                    .from(l)
+                    .where(l.lockName.in(chunk))
+                    .fetch());
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            insertLocks(missing, now);
+        } catch (DataAccessException | PersistenceException e) {
+            if (!DuplicateKeys.isDuplicateKey(e)) {
+                throw e;
+            }
+            for (String lockName : missing) {
+                createLock(lockName, now);
+            }
+        }
+    }
+
+    private void createLock(String lockName, LocalDateTime now) {
+        try {
+            insertLocks(Collections.singleton(lockName), now);
+        } catch (DataAccessException | PersistenceException e) {
+            if (!DuplicateKeys.isDuplicateKey(e)) {
+                throw e;
+            }
+            log.debug("Lock row {} was created concurrently", lockName);
+        }
+    }
+
+    private void insertLocks(Collection<String> lockNames, LocalDateTime now) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager.getObject());
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.executeWithoutResult(status -> {
+            for (String lockName : lockNames) {
+                TokenLockEntity lock = new TokenLockEntity();
+                lock.setLockName(lockName);
+                lock.setLockedBy(ActiveTokenLocks.LOCK_OWNER);
+                lock.setLockedAt(now);
+                lock.setLockedUntil(now);
+                entityManager.persist(lock);
+            }
+
+            queryCounter.increment();
+            entityManager.flush();
+        });
+    }
+
+    private String singleStatementSql() {
+        String sql = singleStatementSql;
+        if (sql == null) {
+            String product = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseProductName()).toLowerCase(Locale.ROOT);
+            if (product.contains("postgresql")) {
+                sql = POSTGRES_VALIDATE_SQL;
+            } else if (product.equals("h2")) {
+                sql = H2_VALIDATE_SQL;
+            } else {
+                sql = "";
+            }
+            singleStatementSql = sql;
+        }
+        return sql;
+    }
+
+    private ValidationOutcome notFound() {
+        return ValidationOutcome.builder()
+                .valid(false)
+                .failureReason(ValidationFailureReason.NOT_FOUND)
+                .build();
+    }
+
+    private ValidationOutcome failed(String storedTokenValue, Integer usageLimit, int usageCount,
+                                     ValidationFailureReason reason) {
+        return ValidationOutcome.builder()
+                .valid(false)
+                .storedTokenValue(storedTokenValue)
+                .usageLimit(usageLimit)
+                .usageCount(usageCount)
+                .failureReason(reason)
+                .build();
+    }
 }
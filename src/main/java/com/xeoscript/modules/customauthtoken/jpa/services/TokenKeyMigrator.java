@@ -0,0 +1,228 @@
+package com.xeoscript.modules.customauthtoken.jpa.services;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnClass(name = "javax.persistence.EntityManager")
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "jpa", matchIfMissing = true)
+public class TokenKeyMigrator {
+
+    private static final String SELECT_PENDING_SQL = "SELECT ID, TOKEN_VALUE FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE TOKEN_KEY IS NULL AND ID > ? ORDER BY ID";
+
+    private static final String UPDATE_KEY_SQL = "UPDATE CUSTOM_AUTH_TOKEN SET TOKEN_KEY = ?"
+            + " WHERE ID = ? AND TOKEN_KEY IS NULL";
+
+    private static final String COUNT_PENDING_SQL = "SELECT COUNT(*) FROM CUSTOM_AUTH_TOKEN WHERE TOKEN_KEY IS NULL";
+
+    private static final long COMPLETION_CHECK_INTERVAL_SECONDS = 60;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+    private final TokenQueryCounter queryCounter;
+    private final TokenProperties properties;
+
+    private final LongAdder migratedRows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean complete;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isTokenKeyMigrationEnabled() && !properties.isCompactTokenKey()) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-key-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (properties.isTokenKeyMigrationEnabled()) {
+            executor.execute(this::migrateQuietly);
+        }
+        if (properties.isCompactTokenKey()) {
+            executor.scheduleWithFixedDelay(this::checkCompleteQuietly, 0, COMPLETION_CHECK_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public long migrate() {
+        int batchSize = Math.max(1, properties.getTokenKeyMigrationBatchSize());
+        long pauseMillis = Math.max(0, properties.getTokenKeyMigrationPauseMs());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long started = System.currentTimeMillis();
+
+        long migrated = 0;
+        long afterId = 0;
+        try {
+            while (true) {
+                long cursor = afterId;
+                Batch batch = transactionTemplate.execute(status -> migrateBatch(cursor, batchSize));
+                batches.increment();
+                migrated += batch.updated;
+                migratedRows.add(batch.updated);
+
+                if (batch.scanned < batchSize) {
+                    break;
+                }
+
+                afterId = batch.lastId;
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Token key migration interrupted after {} rows", migrated);
+            return migrated;
+        }
+
+        long pending = countPending();
+        complete = pending == 0;
+        log.info("Token key migration updated {} rows in {} ms ({} rows still without a key)",
+                migrated, System.currentTimeMillis() - started, pending);
+        return migrated;
+    }
+
+    public long countPending() {
+        queryCounter.increment();
+        return new TransactionTemplate(transactionManager).execute(status ->
+                entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(COUNT_PENDING_SQL);
+                         ResultSet resultSet = statement.executeQuery()) {
+                        return resultSet.next() ? resultSet.getLong(1) : 0L;
+                    }
+                }));
+    }
+
+    public long getMigratedRowCount() {
+        return migratedRows.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean checkComplete() {
+        if (complete) {
+            return true;
+        }
+
+        long pending = countPending();
+        complete = pending == 0;
+        if (complete) {
+            log.info("Every token has a TOKEN_KEY, token lookups switched to the compact key;"
+                    + " IDX_TOKEN_VALUE can be dropped with token-key-drop-value-index.sql once every node runs"
+                    + " with compact-token-key");
+        } else {
+            log.debug("{} tokens still without a TOKEN_KEY, token lookups stay on TOKEN_VALUE", pending);
+        }
+        return complete;
+    }
+
+    private Batch migrateBatch(long afterId, int batchSize) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<Long> ids = new ArrayList<>(batchSize);
+            List<byte[]> keys = new ArrayList<>(batchSize);
+
+            queryCounter.increment();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_PENDING_SQL)) {
+                statement.setMaxRows(batchSize);
+                statement.setLong(1, afterId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                        keys.add(TokenHasher.digest(resultSet.getString(2)));
+                    }
+                }
+            }
+
+            Batch batch = new Batch();
+            batch.scanned = ids.size();
+            if (ids.isEmpty()) {
+                return batch;
+            }
+            batch.lastId = ids.get(ids.size() - 1);
+
+            queryCounter.increment();
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_KEY_SQL)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    statement.setBytes(1, keys.get(i));
+                    statement.setLong(2, ids.get(i));
+                    statement.addBatch();
+                }
+                for (int count : statement.executeBatch()) {
+                    batch.updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                }
+            }
+            return batch;
+        });
+    }
+
+    private void checkCompleteQuietly() {
+        try {
+            checkComplete();
+        } catch (RuntimeException e) {
+            log.warn("Token key completion check failed", e);
+        }
+    }
+
+    private void migrateQuietly() {
+        try {
+            migrate();
+        } catch (RuntimeException e) {
+            log.warn("Token key migration failed", e);
+        }
+    }
+
+    private static final class Batch {
+
+        private int scanned;
+
+        private long updated;
+
+        private long lastId;
+    }
+}
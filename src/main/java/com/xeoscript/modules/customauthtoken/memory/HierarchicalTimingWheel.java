@@ -0,0 +1,118 @@
+package com.xeoscript.modules.customauthtoken.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+public class HierarchicalTimingWheel<T> {
+
+    private static final int LEVELS = 4;
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final long tickMillis;
+
+    private final Queue<Timeout<T>>[][] buckets;
+
+    private final Queue<Timeout<T>> overflow = new ConcurrentLinkedQueue<>();
+
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.buckets = new Queue[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                buckets[level][slot] = new ConcurrentLinkedQueue<>();
+            }
+        }
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        place(new Timeout<>(item, deadlineMillis), currentTick);
+    }
+
+    public synchronized int advanceTo(long nowMillis, Consumer<T> onExpired) {
+        long targetTick = nowMillis / tickMillis;
+        int expired = 0;
+
+        while (currentTick < targetTick) {
+            long tick = currentTick + 1;
+
+            if ((tick & ((1L << (WHEEL_BITS * LEVELS)) - 1)) == 0) {
+                cascade(overflow, tick);
+            }
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(buckets[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)], tick);
+                }
+            }
+
+            currentTick = tick;
+
+            Queue<Timeout<T>> bucket = buckets[0][(int) (tick & WHEEL_MASK)];
+            Timeout<T> timeout;
+            while ((timeout = bucket.poll()) != null) {
+                if (deadlineTick(timeout) <= tick) {
+                    onExpired.accept(timeout.item);
+                    expired++;
+                } else {
+                    place(timeout, tick);
+                }
+            }
+        }
+        return expired;
+    }
+
+    public long getCurrentMillis() {
+        return currentTick * tickMillis;
+    }
+
+    private void cascade(Queue<Timeout<T>> bucket, long tick) {
+        List<Timeout<T>> drained = new ArrayList<>();
+        Timeout<T> timeout;
+        while ((timeout = bucket.poll()) != null) {
+            drained.add(timeout);
+        }
+        for (Timeout<T> item : drained) {
+            place(item, tick - 1);
+        }
+    }
+
+    private void place(Timeout<T> timeout, long fromTick) {
+        long deadlineTick = Math.max(fromTick + 1, deadlineTick(timeout));
+        long delta = deadlineTick - fromTick;
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (WHEEL_BITS * (level + 1)))) {
+                buckets[level][(int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(timeout);
+                return;
+            }
+        }
+        overflow.add(timeout);
+    }
+
+    private long deadlineTick(Timeout<T> timeout) {
+        return (timeout.deadlineMillis + tickMillis - 1) / tickMillis;
+    }
+
+    private static final class Timeout<T> {
+
+        private final T item;
+
+        private final long deadlineMillis;
+
+        private Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
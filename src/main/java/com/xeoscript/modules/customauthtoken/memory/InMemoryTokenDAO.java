@@ -0,0 +1,668 @@
+package com.xeoscript.modules.customauthtoken.memory;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.util.ActiveTokenLocks;
+import com.xeoscript.modules.customauthtoken.util.TokenStatusCounts;
+import com.xeoscript.modules.customauthtoken.util.ValidationFailureClassifier;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Slf4j
+public class InMemoryTokenDAO implements TokenDAO {
+
+    private static final long TICK_MILLIS = 1000;
+
+    private static final long INVALIDATE_CURSOR_TTL_MINUTES = 1;
+
+    private final TokenQueryCounter queryCounter;
+
+    private final int maxCapacity;
+
+    private final long expiredRetentionMillis;
+
+    private final Map<String, AtomicReference<StoredToken>> tokens = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> tokensByKey = new ConcurrentHashMap<>();
+
+    private final Map<String, Lease> locks = new ConcurrentHashMap<>();
+
+    private final Map<String, InvalidateCursor> invalidateCursors = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] activeLocks = new ReentrantLock[ActiveTokenLocks.STRIPES];
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong idSequence = new AtomicLong();
+
+    private final HierarchicalTimingWheel<String> expiryWheel =
+            new HierarchicalTimingWheel<>(TICK_MILLIS, System.currentTimeMillis());
+
+    private ScheduledExecutorService ticker;
+
+    public InMemoryTokenDAO(TokenQueryCounter queryCounter, int maxCapacity, long expiredRetentionMillis) {
+        this.queryCounter = queryCounter;
+        this.maxCapacity = maxCapacity;
+        this.expiredRetentionMillis = expiredRetentionMillis;
+        for (int i = 0; i < activeLocks.length; i++) {
+            activeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-expiry-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::expireQuietly, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    @Override
+    public void save(TokenEntity entity) {
+        queryCounter.increment();
+        insert(entity);
+    }
+
+    @Override
+    public void saveAll(List<TokenEntity> entities) {
+        queryCounter.increment();
+        for (TokenEntity entity : entities) {
+            insert(entity);
+        }
+    }
+
+    @Override
+    public long saveAllSuperseding(List<TokenEntity> entities) {
+        queryCounter.increment();
+        List<ReentrantLock> held = new ArrayList<>();
+        try {
+            for (int stripe : ActiveTokenLocks.stripes(entities)) {
+                ReentrantLock lock = activeLocks[stripe];
+                lock.lock();
+                held.add(lock);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            long superseded = 0;
+            for (TokenEntity key : ActiveTokenLocks.distinctKeys(entities)) {
+                Set<String> tokenValues = tokensByKey.get(
+                        ActiveTokenLocks.key(key.getParameterValue(), key.getTokenType()));
+                if (tokenValues == null) {
+                    continue;
+                }
+                for (String tokenValue : tokenValues) {
+                    AtomicReference<StoredToken> ref = tokens.get(tokenValue);
+                    if (ref != null && ref.get().expiryTime.isAfter(now) && invalidateIfActive(ref, now)) {
+                        superseded++;
+                    }
+                }
+            }
+
+            for (TokenEntity entity : entities) {
+                insert(entity);
+            }
+            return superseded;
+        } finally {
+            for (ReentrantLock lock : held) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public TokenEntity findByTokenValue(String tokenValue) {
+        queryCounter.increment();
+        StoredToken stored = current(tokenValue);
+        return stored != null ? stored.toEntity() : null;
+    }
+
+    @Override
+    public TokenEntity findByRawTokenValue(String rawTokenValue, String hashedTokenValue) {
+        queryCounter.increment();
+        StoredToken stored = current(rawTokenValue);
+        if (stored == null) {
+            stored = current(hashedTokenValue);
+        }
+        return stored != null ? stored.toEntity() : null;
+    }
+
+    @Override
+    public long atomicValidateAndIncrement(String tokenValue, String parameter,
+                                           String tokenType, LocalDateTime now) {
+        queryCounter.increment();
+        AtomicReference<StoredToken> ref = tokens.get(tokenValue);
+        if (ref == null) {
+            return 0;
+        }
+        return tryIncrement(ref, parameter, tokenType, now) != null ? 1 : 0;
+    }
+
+    @Override
+    public ValidationOutcome validateAndIncrement(String rawTokenValue, String hashedTokenValue, String parameter,
+                                                  String tokenType, LocalDateTime now) {
+        queryCounter.increment();
+        return validateOne(rawTokenValue, hashedTokenValue, parameter, tokenType, now);
+    }
+
+    @Override
+    public List<ValidationOutcome> validateAndIncrementAll(List<ValidateTokenRequest> requests,
+                                                           List<String> hashedTokenValues, LocalDateTime now) {
+        queryCounter.increment();
+        List<ValidationOutcome> outcomes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ValidateTokenRequest request = requests.get(i);
+            outcomes.add(validateOne(request.getToken(), hashedTokenValues.get(i),
+                    request.getParameter(), request.getTokenType(), now));
+        }
+        return outcomes;
+    }
+
+    @Override
+    public long applyUsageDeltas(List<UsageDelta> deltas) {
+        queryCounter.increment();
+        long rows = 0;
+        for (UsageDelta delta : deltas) {
+            AtomicReference<StoredToken> ref = tokens.get(delta.getStoredTokenValue());
+            if (ref == null) {
+                continue;
+            }
+            StoredToken previous;
+            do {
+                previous = ref.get();
+                if (previous.usageLimit != null) {
+                    break;
+                }
+            } while (!ref.compareAndSet(previous, previous.withUsage(
+                    previous.usageCount + delta.getUsageCount(),
+                    previous.status == TokenStatus.ACTIVE ? TokenStatus.PARTIALLY_USED : previous.status,
+                    delta.getLastUsedAt())));
+            if (previous.usageLimit == null) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long invalidate(String tokenValue) {
+        queryCounter.increment();
+        AtomicReference<StoredToken> ref = tokens.get(tokenValue);
+        if (ref == null) {
+            return 0;
+        }
+
+        return invalidateIfActive(ref, LocalDateTime.now()) ? 1 : 0;
+    }
+
+    @Override
+    public long invalidateAllChunk(String parameter, String tokenType, LocalDateTime now, int limit) {
+        queryCounter.increment();
+        String cursorKey = parameter + '\u0000' + tokenType + '\u0000' + now;
+        InvalidateCursor cursor = invalidateCursors.remove(cursorKey);
+        if (cursor == null) {
+            invalidateCursors.values().removeIf(stale ->
+                    stale.now.isBefore(now.minusMinutes(INVALIDATE_CURSOR_TTL_MINUTES)));
+            cursor = new InvalidateCursor(candidateTokenValues(parameter, tokenType).iterator(), now);
+        }
+
+        long invalidated = 0;
+        while (invalidated < limit && cursor.tokenValues.hasNext()) {
+            String tokenValue = cursor.tokenValues.next();
+            AtomicReference<StoredToken> ref = tokens.get(tokenValue);
+            if (ref == null) {
+                continue;
+            }
+            StoredToken stored = ref.get();
+            if ((tokenType == null || tokenType.equals(stored.tokenType)) && stored.expiryTime.isAfter(now)
+                    && invalidateIfActive(ref, now)) {
+                invalidated++;
+            }
+        }
+
+        if (invalidated >= limit) {
+            invalidateCursors.put(cursorKey, cursor);
+        }
+        return invalidated;
+    }
+
+    @Override
+    public long deleteExpired(LocalDateTime before) {
+        queryCounter.increment();
+        long beforeMillis = before.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return expiryWheel.advanceTo(Math.min(beforeMillis, System.currentTimeMillis()), this::removeIfExpired);
+    }
+
+    @Override
+    public long countExpired(LocalDateTime before) {
+        queryCounter.increment();
+        long count = 0;
+        for (AtomicReference<StoredToken> ref : tokens.values()) {
+            if (ref.get().expiryTime.isBefore(before)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        queryCounter.increment();
+        long count = 0;
+        for (AtomicReference<StoredToken> ref : tokens.values()) {
+            StoredToken stored = ref.get();
+            if (!stored.expiryTime.isBefore(now)
+                    && (stored.status == TokenStatus.ACTIVE || stored.status == TokenStatus.PARTIALLY_USED)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public ExpiredChunk deleteExpiredChunk(LocalDateTime before, LocalDateTime afterExpiryTime, Long afterId,
+                                           int limit) {
+        return ExpiredChunk.builder()
+                .deletedCount(deleteExpired(before))
+                .build();
+    }
+
+    @Override
+    public boolean tryAcquireLock(String lockName, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        queryCounter.increment();
+        Lease lease = new Lease(owner, lockedUntil);
+        while (true) {
+            Lease current = locks.putIfAbsent(lockName, lease);
+            if (current == null) {
+                return true;
+            }
+            if (!current.owner.equals(owner) && current.until.isAfter(now)) {
+                return false;
+            }
+            if (locks.replace(lockName, current, lease)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void releaseLock(String lockName, String owner) {
+        queryCounter.increment();
+        locks.computeIfPresent(lockName, (name, lease) -> lease.owner.equals(owner) ? null : lease);
+    }
+
+    @Override
+    public TokenEntity findByTokenValueAndParameter(String tokenValue, String parameter) {
+        queryCounter.increment();
+        StoredToken stored = current(tokenValue);
+        return stored != null && stored.parameterValue.equals(parameter) ? stored.toEntity() : null;
+    }
+
+    @Override
+    public long streamTokenValues(LocalDateTime createdSince, Consumer<String> consumer) {
+        queryCounter.increment();
+        long count = 0;
+        for (AtomicReference<StoredToken> ref : tokens.values()) {
+            StoredToken stored = ref.get();
+            if (createdSince == null || !stored.createdAt.isBefore(createdSince)) {
+                consumer.accept(stored.tokenValue);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long streamInvalidatedTokens(String hashingMode, LocalDateTime updatedSince, LocalDateTime expiringAfter,
+                                        BiConsumer<String, LocalDateTime> consumer) {
+        queryCounter.increment();
+        long count = 0;
+        for (AtomicReference<StoredToken> ref : tokens.values()) {
+            StoredToken stored = ref.get();
+            if (stored.status == TokenStatus.INVALIDATED
+                    && hashingMode.equals(stored.hashingMode)
+                    && stored.expiryTime.isAfter(expiringAfter)
+                    && (updatedSince == null || !stored.updatedAt.isBefore(updatedSince))) {
+                consumer.accept(stored.tokenValue, stored.expiryTime);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void insert(TokenEntity entity) {
+        if (size.incrementAndGet() > maxCapacity) {
+            expireQuietly();
+            if (size.get() > maxCapacity) {
+                size.decrementAndGet();
+                throw new IllegalStateException("In-memory token store is full (" + maxCapacity + " tokens)");
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        entity.setId(idSequence.incrementAndGet());
+        entity.setCreatedAt(now);
+        entity.setUpdatedAt(now);
+
+        StoredToken stored = StoredToken.from(entity);
+        if (tokens.putIfAbsent(stored.tokenValue, new AtomicReference<>(stored)) != null) {
+            size.decrementAndGet();
+            throw new IllegalStateException("Token value already exists");
+        }
+
+        tokensByKey.compute(ActiveTokenLocks.key(stored.parameterValue, stored.tokenType), (key, tokenValues) -> {
+            Set<String> values = tokenValues != null ? tokenValues : ConcurrentHashMap.newKeySet();
+            values.add(stored.tokenValue);
+            return values;
+        });
+
+        long expiryMillis = stored.expiryTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        expiryWheel.schedule(stored.tokenValue, expiryMillis + expiredRetentionMillis);
+    }
+
+    @Override
+    public long streamTokens(TokenExportQuery query, Consumer<TokenEntity> consumer) {
+        queryCounter.increment();
+        long count = 0;
+        for (AtomicReference<StoredToken> ref : tokens.values()) {
+            StoredToken stored = ref.get();
+            if (matches(stored, query)) {
+                consumer.accept(stored.toEntity());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery query) {
+        queryCounter.increment();
+        Map<String, Map<TokenStatus, Long>> table = TokenStatusCounts.newTable();
+        for (AtomicReference<StoredToken> ref : tokens.values()) {
+            StoredToken stored = ref.get();
+            if (matches(stored, query)) {
+                TokenStatusCounts.add(table, stored.tokenType, stored.status, 1);
+            }
+        }
+        return TokenStatusCounts.toList(table);
+    }
+
+    private static boolean matches(StoredToken stored, TokenExportQuery query) {
+        return (query.getTokenType() == null || query.getTokenType().equals(stored.tokenType))
+                && (query.getStatuses() == null || query.getStatuses().isEmpty()
+                || query.getStatuses().contains(stored.status))
+                && (query.getCreatedFrom() == null || !stored.createdAt.isBefore(query.getCreatedFrom()))
+                && (query.getCreatedTo() == null || stored.createdAt.isBefore(query.getCreatedTo()))
+                && (query.getUsedFrom() == null
+                || stored.usedAt != null && !stored.usedAt.isBefore(query.getUsedFrom()))
+                && (query.getUsedTo() == null || stored.usedAt != null && stored.usedAt.isBefore(query.getUsedTo()));
+    }
+
+    private Iterable<String> candidateTokenValues(String parameter, String tokenType) {
+        if (parameter == null) {
+            return tokens.keySet();
+        }
+        if (tokenType != null) {
+            Set<String> tokenValues = tokensByKey.get(ActiveTokenLocks.key(parameter, tokenType));
+            return tokenValues != null ? tokenValues : Collections.emptySet();
+        }
+
+        String typedPrefix = ActiveTokenLocks.key(parameter, "");
+        List<String> tokenValues = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : tokensByKey.entrySet()) {
+            if (entry.getKey().equals(parameter) || entry.getKey().startsWith(typedPrefix)) {
+                tokenValues.addAll(entry.getValue());
+            }
+        }
+        return tokenValues;
+    }
+
+    private boolean invalidateIfActive(AtomicReference<StoredToken> ref, LocalDateTime now) {
+        while (true) {
+            StoredToken previous = ref.get();
+            if (previous.status != TokenStatus.ACTIVE && previous.status != TokenStatus.PARTIALLY_USED) {
+                return false;
+            }
+            if (ref.compareAndSet(previous, previous.withStatus(TokenStatus.INVALIDATED, now))) {
+                return true;
+            }
+        }
+    }
+
+    private ValidationOutcome validateOne(String rawTokenValue, String hashedTokenValue, String parameter,
+                                          String tokenType, LocalDateTime now) {
+        AtomicReference<StoredToken> ref = tokens.get(rawTokenValue);
+        if (ref == null) {
+            ref = tokens.get(hashedTokenValue);
+        }
+        if (ref == null) {
+            return ValidationOutcome.builder()
+                    .valid(false)
+                    .failureReason(ValidationFailureReason.NOT_FOUND)
+                    .build();
+        }
+
+        StoredToken updated = tryIncrement(ref, parameter, tokenType, now);
+        if (updated != null) {
+            return ValidationOutcome.builder()
+                    .valid(true)
+                    .storedTokenValue(updated.tokenValue)
+                    .parameterValue(updated.parameterValue)
+                    .tokenType(updated.tokenType)
+                    .expiryTime(updated.expiryTime)
+                    .usageLimit(updated.usageLimit)
+                    .usageCount(updated.usageCount)
+                    .build();
+        }
+
+        StoredToken stored = ref.get();
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                stored.status, stored.expiryTime, stored.parameterValue, stored.tokenType,
+                stored.usageLimit, stored.usageCount, parameter, tokenType, now);
+        return ValidationOutcome.builder()
+                .valid(false)
+                .storedTokenValue(stored.tokenValue)
+                .usageLimit(stored.usageLimit)
+                .usageCount(stored.usageCount)
+                .failureReason(reason != null ? reason : ValidationFailureReason.USAGE_LIMIT_EXCEEDED)
+                .build();
+    }
+
+    private StoredToken tryIncrement(AtomicReference<StoredToken> ref, String parameter, String tokenType,
+                                     LocalDateTime now) {
+        while (true) {
+            StoredToken previous = ref.get();
+            if (!previous.isUsable(parameter, tokenType, now)) {
+                return null;
+            }
+
+            int usageCount = previous.usageCount + 1;
+            TokenStatus status = previous.usageLimit != null && usageCount >= previous.usageLimit
+                    ? TokenStatus.USED
+                    : TokenStatus.PARTIALLY_USED;
+            StoredToken next = previous.withUsage(usageCount, status, now);
+            if (ref.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    private StoredToken current(String tokenValue) {
+        AtomicReference<StoredToken> ref = tokens.get(tokenValue);
+        return ref != null ? ref.get() : null;
+    }
+
+    private void removeIfExpired(String tokenValue) {
+        AtomicReference<StoredToken> ref = tokens.get(tokenValue);
+        if (ref == null) {
+            return;
+        }
+
+        StoredToken stored = ref.get();
+        LocalDateTime threshold = LocalDateTime.now().minusNanos(expiredRetentionMillis * 1_000_000L);
+        if (stored.expiryTime.isAfter(threshold)) {
+            long expiryMillis = stored.expiryTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            expiryWheel.schedule(tokenValue, expiryMillis + expiredRetentionMillis);
+            return;
+        }
+        if (tokens.remove(tokenValue, ref)) {
+            size.decrementAndGet();
+            tokensByKey.computeIfPresent(ActiveTokenLocks.key(stored.parameterValue, stored.tokenType),
+                    (key, tokenValues) -> {
+                        tokenValues.remove(tokenValue);
+                        return tokenValues.isEmpty() ? null : tokenValues;
+                    });
+        }
+    }
+
+    private void expireQuietly() {
+        try {
+            expiryWheel.advanceTo(System.currentTimeMillis(), this::removeIfExpired);
+        } catch (RuntimeException e) {
+            log.warn("In-memory token expiry failed", e);
+        }
+    }
+
+    private static final class InvalidateCursor {
+
+        private final Iterator<String> tokenValues;
+
+        private final LocalDateTime now;
+
+        private InvalidateCursor(Iterator<String> tokenValues, LocalDateTime now) {
+            this.tokenValues = tokenValues;
+            this.now = now;
+        }
+    }
+
+    private static final class Lease {
+
+        private final String owner;
+
+        private final LocalDateTime until;
+
+        private Lease(String owner, LocalDateTime until) {
+            this.owner = owner;
+            this.until = until;
+        }
+    }
+
+    private static final class StoredToken {
+
+        private final long id;
+        private final String tokenValue;
+        private final String parameterValue;
+        private final String tokenType;
+        private final TokenStatus status;
+        private final LocalDateTime expiryTime;
+        private final Integer usageLimit;
+        private final int usageCount;
+        private final String hashingMode;
+        private final String metadata;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final LocalDateTime usedAt;
+
+        private StoredToken(long id, String tokenValue, String parameterValue, String tokenType, TokenStatus status,
+                            LocalDateTime expiryTime, Integer usageLimit, int usageCount, String hashingMode,
+                            String metadata, LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime usedAt) {
+            this.id = id;
+            this.tokenValue = tokenValue;
+            this.parameterValue = parameterValue;
+            this.tokenType = tokenType;
+            this.status = status;
+            this.expiryTime = expiryTime;
+            this.usageLimit = usageLimit;
+            this.usageCount = usageCount;
+            this.hashingMode = hashingMode;
+            this.metadata = metadata;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.usedAt = usedAt;
+        }
+
+        private static StoredToken from(TokenEntity entity) {
+            return new StoredToken(entity.getId(), entity.getTokenValue(), entity.getParameterValue(),
+                    entity.getTokenType(), entity.getStatus(), entity.getExpiryTime(), entity.getUsageLimit(),
+                    entity.getUsageCount(), entity.getHashingMode(), entity.getMetadata(), entity.getCreatedAt(),
+                    entity.getUpdatedAt(), entity.getUsedAt());
+        }
+
+        private boolean isUsable(String parameter, String requestedTokenType, LocalDateTime now) {
+            return parameterValue.equals(parameter)
+                    && (status == TokenStatus.ACTIVE || status == TokenStatus.PARTIALLY_USED)
+                    && expiryTime.isAfter(now)
+                    && (usageLimit == null || usageCount < usageLimit)
+                    && (requestedTokenType == null || requestedTokenType.equals(tokenType));
+        }
+
+        private StoredToken withUsage(int newUsageCount, TokenStatus newStatus, LocalDateTime now) {
+            return new StoredToken(id, tokenValue, parameterValue, tokenType, newStatus, expiryTime, usageLimit,
+                    newUsageCount, hashingMode, metadata, createdAt, now, now);
+        }
+
+        private StoredToken withStatus(TokenStatus newStatus, LocalDateTime now) {
+            return new StoredToken(id, tokenValue, parameterValue, tokenType, newStatus, expiryTime, usageLimit,
+                    usageCount, hashingMode, metadata, createdAt, now, usedAt);
+        }
+
+        private TokenEntity toEntity() {
+            TokenEntity entity = new TokenEntity();
+            entity.setId(id);
+            entity.setTokenValue(tokenValue);
+            entity.setParameterValue(parameterValue);
+            entity.setTokenType(tokenType);
+            entity.setStatus(status);
+            entity.setExpiryTime(expiryTime);
+            entity.setUsageLimit(usageLimit);
+            entity.setUsageCount(usageCount);
+            entity.setHashingMode(hashingMode);
+            entity.setMetadata(metadata);
+            entity.setCreatedAt(createdAt);
+            entity.setUpdatedAt(updatedAt);
+            entity.setUsedAt(usedAt);
+            return entity;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.xeoscript.modules.customauthtoken.metrics;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.event.TokenLifecycleEventPublisher;
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.replica.TokenReadReplica;
+import com.xeoscript.modules.customauthtoken.services.TokenOperationObserver;
+import com.xeoscript.modules.customauthtoken.services.internal.ExpiredTokenCleanupScheduler;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNearCache;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNegativeLookupFilter;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenPool;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenValidationRateLimiter;
+import com.xeoscript.modules.customauthtoken.services.internal.UsageWriteBehindBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@RequiredArgsConstructor
+public class MicrometerTokenMetrics implements TokenOperationObserver {
+
+    static final String PREFIX = "custom.auth.token";
+
+    static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static final String NONE = "none";
+
+    private static final String VALID = "VALID";
+
+    private static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+    private final TokenDAO tokenDAO;
+    private final TokenProperties properties;
+    private final TokenNegativeLookupFilter negativeLookupFilter;
+    private final TokenNearCache nearCache;
+    private final UsageWriteBehindBuffer usageBuffer;
+    private final ExpiredTokenCleanupScheduler cleanupScheduler;
+    private final TokenPool tokenPool;
+    private final TokenValidationRateLimiter rateLimiter;
+    private final TokenLifecycleEventPublisher eventPublisher;
+    private final TokenReadReplica readReplica;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Set<String> tokenTypes = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean fixedTokenTypes;
+
+    private final AtomicLong activeTokens = new AtomicLong();
+    private final AtomicLong expiredTokens = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        for (String tokenType : properties.getMetricsTokenTypes().split(",")) {
+            if (!tokenType.trim().isEmpty()) {
+                tokenTypes.add(tokenType.trim());
+            }
+        }
+        fixedTokenTypes = !tokenTypes.isEmpty();
+
+        Gauge.builder(PREFIX + ".rows", activeTokens, AtomicLong::get)
+                .tag("state", "active")
+                .register(registry);
+        Gauge.builder(PREFIX + ".rows", expiredTokens, AtomicLong::get)
+                .tag("state", "expired")
+                .register(registry);
+        bindComponentMetrics();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long sampleSeconds = Math.max(1, properties.getMetricsSampleIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(this::sampleQuietly, 0, sampleSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onGenerated(String tokenType, HashingMode hashingMode, long durationNanos) {
+        String type = generatedTypeTag(tokenType);
+        String mode = hashingMode.name();
+        String key = type + '|' + mode;
+
+        counters.computeIfAbsent("generated|" + key, k -> Counter.builder(PREFIX + ".generated")
+                .tag("tokenType", type)
+                .tag("hashingMode", mode)
+                .register(registry)).increment();
+        timer("generate", key, type, VALID).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onValidated(String tokenType, ValidationFailureReason failureReason, long durationNanos) {
+        String type = typeTag(tokenType);
+        String outcome = failureReason != null ? failureReason.name() : VALID;
+        String key = type + '|' + outcome;
+
+        if (failureReason == null) {
+            counters.computeIfAbsent("validated|" + key, k -> Counter.builder(PREFIX + ".validated")
+                    .tag("tokenType", type)
+                    .register(registry)).increment();
+        } else {
+            counters.computeIfAbsent("failed|" + key, k -> Counter.builder(PREFIX + ".failed")
+                    .tag("tokenType", type)
+                    .tag("reason", outcome)
+                    .register(registry)).increment();
+        }
+        timer("validate", key, type, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onInvalidated(boolean invalidated, long durationNanos) {
+        String outcome = invalidated ? VALID : ValidationFailureReason.NOT_FOUND.name();
+
+        if (invalidated) {
+            counters.computeIfAbsent("invalidated", k -> Counter.builder(PREFIX + ".invalidated")
+                    .register(registry)).increment();
+        }
+        timer("invalidate", outcome, NONE, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onInvalidatedAll(long invalidatedCount, long durationNanos) {
+        counters.computeIfAbsent("invalidated", k -> Counter.builder(PREFIX + ".invalidated")
+                .register(registry)).increment(invalidatedCount);
+        timer("invalidate_all", VALID, NONE, VALID).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onCleanedUp(long deletedCount, long durationNanos) {
+        counters.computeIfAbsent("cleanup", k -> Counter.builder(PREFIX + ".cleanup.deleted")
+                .register(registry)).increment(deletedCount);
+        timer("cleanup", VALID, NONE, VALID).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void sample() {
+        LocalDateTime now = LocalDateTime.now();
+        activeTokens.set(tokenDAO.countActive(now));
+        expiredTokens.set(tokenDAO.countExpired(now));
+    }
+
+    private Timer timer(String operation, String key, String tokenType, String outcome) {
+        return timers.computeIfAbsent(operation + '|' + key, k -> Timer.builder(PREFIX + ".operation")
+                .tag("operation", operation)
+                .tag("tokenType", tokenType)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+
+    private void bindComponentMetrics() {
+        FunctionCounter.builder(PREFIX + ".negative.filter.lookups", negativeLookupFilter,
+                TokenNegativeLookupFilter::getLookupCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".negative.filter.misses", negativeLookupFilter,
+                TokenNegativeLookupFilter::getDefiniteMissCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".negative.filter.false.positives", negativeLookupFilter,
+                TokenNegativeLookupFilter::getFalsePositiveCount).register(registry);
+        Gauge.builder(PREFIX + ".negative.filter.memory", negativeLookupFilter,
+                TokenNegativeLookupFilter::getMemoryBytes).baseUnit("bytes").register(registry);
+
+        FunctionCounter.builder(PREFIX + ".near.cache.hits", nearCache, TokenNearCache::getHitCount)
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".near.cache.misses", nearCache, TokenNearCache::getMissCount)
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".near.cache.evictions", nearCache, TokenNearCache::getEvictionCount)
+                .register(registry);
+        Gauge.builder(PREFIX + ".near.cache.size", nearCache, TokenNearCache::size).register(registry);
+
+        Gauge.builder(PREFIX + ".write.behind.pending", usageBuffer, UsageWriteBehindBuffer::getPendingTokenCount)
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".write.behind.flushed.rows", usageBuffer,
+                UsageWriteBehindBuffer::getFlushedRowCount).register(registry);
+
+        Gauge.builder(PREFIX + ".pool.size", tokenPool, TokenPool::size).register(registry);
+        FunctionCounter.builder(PREFIX + ".pool.hits", tokenPool, TokenPool::getHitCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".pool.misses", tokenPool, TokenPool::getMissCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".pool.refills", tokenPool, TokenPool::getRefillCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".pool.refilled.tokens", tokenPool, TokenPool::getRefilledTokenCount)
+                .register(registry);
+        Gauge.builder(PREFIX + ".pool.last.refill", tokenPool, TokenPool::getLastRefillMillis)
+                .baseUnit("milliseconds").register(registry);
+
+        Gauge.builder(PREFIX + ".rate.limit.keys", rateLimiter, TokenValidationRateLimiter::size).register(registry);
+        FunctionCounter.builder(PREFIX + ".rate.limit.rejections", rateLimiter,
+                TokenValidationRateLimiter::getRejectionCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".rate.limit.evictions", rateLimiter,
+                TokenValidationRateLimiter::getEvictionCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".rate.limit.saturated", rateLimiter,
+                TokenValidationRateLimiter::getSaturatedRejectionCount).register(registry);
+
+        Gauge.builder(PREFIX + ".events.pending", eventPublisher, TokenLifecycleEventPublisher::getPendingCount)
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".events.published", eventPublisher,
+                TokenLifecycleEventPublisher::getPublishedCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".events.dropped", eventPublisher,
+                TokenLifecycleEventPublisher::getDroppedCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".events.sampled.out", eventPublisher,
+                TokenLifecycleEventPublisher::getSampledOutCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".events.delivered", eventPublisher,
+                TokenLifecycleEventPublisher::getDeliveredCount).register(registry);
+        FunctionCounter.builder(PREFIX + ".events.sink.failures", eventPublisher,
+                TokenLifecycleEventPublisher::getSinkFailureCount).register(registry);
+
+        if (readReplica.isEnabled()) {
+            FunctionCounter.builder(PREFIX + ".replica.lookups", readReplica, TokenReadReplica::getLookupCount)
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + ".replica.hits", readReplica, TokenReadReplica::getHitCount)
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + ".replica.fallbacks", readReplica, TokenReadReplica::getFallbackCount)
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + ".replica.trusted.misses", readReplica,
+                    TokenReadReplica::getTrustedMissCount).register(registry);
+            Gauge.builder(PREFIX + ".replica.lag", readReplica, TokenReadReplica::getLagMillis)
+                    .baseUnit("milliseconds").register(registry);
+            FunctionCounter.builder(PREFIX + ".replica.stale.reads", readReplica,
+                    TokenReadReplica::getStaleReadCount).register(registry);
+            FunctionCounter.builder(PREFIX + ".replica.errors", readReplica, TokenReadReplica::getErrorCount)
+                    .register(registry);
+        }
+
+        FunctionCounter.builder(PREFIX + ".cleanup.scheduled.deleted", cleanupScheduler,
+                ExpiredTokenCleanupScheduler::getDeletedRowCount).register(registry);
+        Gauge.builder(PREFIX + ".cleanup.backlog", cleanupScheduler, ExpiredTokenCleanupScheduler::getBacklog)
+                .register(registry);
+        Gauge.builder(PREFIX + ".cleanup.rows.per.second", cleanupScheduler,
+                ExpiredTokenCleanupScheduler::getLastPassRowsPerSecond).register(registry);
+    }
+
+    private void sampleQuietly() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.warn("Token row count sampling failed", e);
+        }
+    }
+
+    private String generatedTypeTag(String tokenType) {
+        if (tokenType != null && !fixedTokenTypes && !tokenTypes.contains(tokenType)
+                && tokenTypes.size() < properties.getMetricsMaxTokenTypes()) {
+            tokenTypes.add(tokenType);
+        }
+        return typeTag(tokenType);
+    }
+
+    private String typeTag(String tokenType) {
+        if (tokenType == null) {
+            return NONE;
+        }
+        return tokenTypes.contains(tokenType) ? tokenType : OTHER;
+    }
+}
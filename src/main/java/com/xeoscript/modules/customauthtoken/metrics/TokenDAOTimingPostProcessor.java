@@ -0,0 +1,106 @@
+package com.xeoscript.modules.customauthtoken.metrics;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class TokenDAOTimingPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+    private ListableBeanFactory beanFactory;
+
+    private ObjectProvider<MeterRegistry> registry;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = (ListableBeanFactory) beanFactory;
+        this.registry = beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof TokenDAO)) {
+            return bean;
+        }
+        if (beanFactory.getBeanNamesForType(MeterRegistry.class, true, false).length == 0) {
+            return bean;
+        }
+        return Proxy.newProxyInstance(TokenDAO.class.getClassLoader(), new Class<?>[]{TokenDAO.class},
+                new TimingHandler((TokenDAO) bean));
+    }
+
+    private final class TimingHandler implements InvocationHandler {
+
+        private final TokenDAO target;
+
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        private volatile MeterRegistry resolvedRegistry;
+
+        private TimingHandler(TokenDAO target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeTarget(method, args);
+            }
+
+            Timer timer = timer(method);
+            if (timer == null) {
+                return invokeTarget(method, args);
+            }
+
+            long started = System.nanoTime();
+            try {
+                return invokeTarget(method, args);
+            } finally {
+                timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Timer timer(Method method) {
+            Timer timer = timers.get(method);
+            if (timer != null) {
+                return timer;
+            }
+
+            MeterRegistry meterRegistry = resolvedRegistry;
+            if (meterRegistry == null) {
+                meterRegistry = registry.getIfAvailable();
+                if (meterRegistry == null) {
+                    return null;
+                }
+                resolvedRegistry = meterRegistry;
+            }
+
+            MeterRegistry timerRegistry = meterRegistry;
+            return timers.computeIfAbsent(method, m -> Timer.builder(MicrometerTokenMetrics.PREFIX + ".dao")
+                    .tag("method", m.getName())
+                    .publishPercentileHistogram()
+                    .publishPercentiles(MicrometerTokenMetrics.PERCENTILES)
+                    .register(timerRegistry));
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
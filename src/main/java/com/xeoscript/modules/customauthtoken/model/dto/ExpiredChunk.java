@@ -0,0 +1,23 @@
+package com.xeoscript.modules.customauthtoken.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpiredChunk {
+
+    private long deletedCount;
+
+    private LocalDateTime lastExpiryTime;
+
+    private Long lastId;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,31 @@
+package com.xeoscript.modules.customauthtoken.model.dto;
+
+import com.xeoscript.modules.customauthtoken.model.enums.TokenLifecycleEventType;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenLifecycleEvent {
+
+    private TokenLifecycleEventType type;
+
+    private LocalDateTime occurredAt;
+
+    private String parameterValue;
+
+    private String tokenType;
+
+    private String tokenHash;
+
+    private ValidationFailureReason failureReason;
+
+    private long affectedCount;
+}
@@ -0,0 +1,20 @@
+package com.xeoscript.modules.customauthtoken.model.dto;
+
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenStatusCount {
+
+    private String tokenType;
+
+    private TokenStatus status;
+
+    private long count;
+}
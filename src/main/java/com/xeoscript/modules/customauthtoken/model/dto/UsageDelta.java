@@ -0,0 +1,21 @@
+package com.xeoscript.modules.customauthtoken.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageDelta {
+
+    private String storedTokenValue;
+
+    private int usageCount;
+
+    private LocalDateTime lastUsedAt;
+}
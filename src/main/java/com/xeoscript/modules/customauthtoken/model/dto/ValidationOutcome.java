@@ -0,0 +1,36 @@
+package com.xeoscript.modules.customauthtoken.model.dto;
+
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationOutcome {
+
+    private boolean valid;
+
+    private String storedTokenValue;
+
+    private String parameterValue;
+
+    private String tokenType;
+
+    private LocalDateTime expiryTime;
+
+    private Integer usageLimit;
+
+    private int usageCount;
+
+    private ValidationFailureReason failureReason;
+
+    public Integer getRemainingUses() {
+        return usageLimit != null ? usageLimit - usageCount : null;
+    }
+}
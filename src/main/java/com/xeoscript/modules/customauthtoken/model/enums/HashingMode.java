@@ -4,5 +4,7 @@ public enum HashingMode {
 
     NONE,
 
-    SHA256
+    SHA256,
+
+    SIGNED
 }
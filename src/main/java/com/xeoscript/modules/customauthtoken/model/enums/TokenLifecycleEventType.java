@@ -0,0 +1,12 @@
+package com.xeoscript.modules.customauthtoken.model.enums;
+
+public enum TokenLifecycleEventType {
+
+    GENERATED,
+
+    VALIDATED,
+
+    VALIDATION_FAILED,
+
+    INVALIDATED
+}
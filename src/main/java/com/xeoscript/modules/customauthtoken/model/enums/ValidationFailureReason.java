@@ -12,5 +12,7 @@ public enum ValidationFailureReason {
 
     PARAMETER_MISMATCH,
 
-    TOKEN_TYPE_MISMATCH
+    TOKEN_TYPE_MISMATCH,
+
+    RATE_LIMITED
 }
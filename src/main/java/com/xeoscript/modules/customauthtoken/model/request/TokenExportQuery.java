@@ -0,0 +1,29 @@
+package com.xeoscript.modules.customauthtoken.model.request;
+
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenExportQuery {
+
+    private String tokenType;
+
+    private Set<TokenStatus> statuses;
+
+    private LocalDateTime createdFrom;
+
+    private LocalDateTime createdTo;
+
+    private LocalDateTime usedFrom;
+
+    private LocalDateTime usedTo;
+}
@@ -0,0 +1,582 @@
+package com.xeoscript.modules.customauthtoken.partition;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import com.xeoscript.modules.customauthtoken.util.TokenStatusCounts;
+import com.xeoscript.modules.customauthtoken.util.ValidationFailureClassifier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "partitioned")
+public class PartitionedTokenDAO implements TokenDAO {
+
+    private static final String UNION_ALL = " UNION ALL ";
+
+    private static final String FIND_SQL = "SELECT " + JdbcTokenDAO.TOKEN_COLUMNS + " FROM %s WHERE %s = ?";
+
+    private static final String FIND_BY_PARAMETER_SQL = FIND_SQL + " AND PARAMETER_VALUE = ?";
+
+    private static final String FIND_PAIR_SQL = "SELECT " + JdbcTokenDAO.TOKEN_COLUMNS
+            + ", %3$d AS PARTITION_INDEX FROM %1$s WHERE %2$s IN (?, ?)";
+
+    private static final String LOCATE_SQL = "SELECT %d, TOKEN_VALUE FROM %s WHERE %s IN (%s)";
+
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private final TokenPartitionRegistry partitionRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenQueryCounter queryCounter;
+
+    private volatile LookupPlan lookupPlan;
+
+    @Override
+    public void save(TokenEntity entity) {
+        partitionRegistry.partitionFor(entity.getExpiryTime()).getTokenDAO().save(entity);
+    }
+
+    @Override
+    @Transactional
+    public void saveAll(List<TokenEntity> entities) {
+        for (Map.Entry<TokenPartition, List<TokenEntity>> entry : groupByPartition(entities).entrySet()) {
+            entry.getKey().getTokenDAO().saveAll(entry.getValue());
+        }
+    }
+
+    @Override
+    @Transactional
+    public long saveAllSuperseding(List<TokenEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+
+        Map<TokenPartition, List<TokenEntity>> groups = groupByPartition(entities);
+        LocalDateTime now = LocalDateTime.now();
+        partitionRegistry.getLockTokenDAO().lockActiveKeys(entities, now);
+
+        long superseded = 0;
+        for (TokenPartition partition : partitionRegistry.getLivePartitions(now)) {
+            superseded += partition.getTokenDAO().supersedeActive(entities, now);
+        }
+        for (Map.Entry<TokenPartition, List<TokenEntity>> entry : groups.entrySet()) {
+            entry.getKey().getTokenDAO().saveAll(entry.getValue());
+        }
+        return superseded;
+    }
+
+    @Override
+    public TokenEntity findByTokenValue(String tokenValue) {
+        TokenEntity entity = find(tokenValue);
+        return entity != null || !partitionRegistry.refreshOnMiss(LocalDateTime.now()) ? entity : find(tokenValue);
+    }
+
+    @Override
+    public TokenEntity findByRawTokenValue(String rawTokenValue, String hashedTokenValue) {
+        LocalDateTime now = LocalDateTime.now();
+        LocatedRow row = findPair(rawTokenValue, hashedTokenValue, now);
+        if (row == null && partitionRegistry.refreshOnMiss(now)) {
+            row = findPair(rawTokenValue, hashedTokenValue, now);
+        }
+        return row != null ? row.entity : null;
+    }
+
+    @Override
+    @Transactional
+    public long atomicValidateAndIncrement(String tokenValue, String parameter,
+                                           String tokenType, LocalDateTime now) {
+        TokenPartition partition = locate(tokenValue, now, true);
+        return partition != null
+                ? partition.getTokenDAO().atomicValidateAndIncrement(tokenValue, parameter, tokenType, now)
+                : 0;
+    }
+
+    /**
+     * One union read finds the row together with its partition, then a guarded UPDATE on that partition spends
+     * the use: two statements instead of a locate, a locked read and an update. The UPDATE re-checks every usable
+     * condition, so losing a race to a concurrent validation still fails this one.
+     */
+    @Override
+    @Transactional
+    public ValidationOutcome validateAndIncrement(String rawTokenValue, String hashedTokenValue, String parameter,
+                                                  String tokenType, LocalDateTime now) {
+        LocatedRow row = findPair(rawTokenValue, hashedTokenValue, now);
+        if (row == null && partitionRegistry.refreshOnMiss(now)) {
+            row = findPair(rawTokenValue, hashedTokenValue, now);
+        }
+        if (row == null) {
+            return notFound();
+        }
+
+        TokenEntity entity = row.entity;
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                entity.getUsageLimit(), entity.getUsageCount(), parameter, tokenType, now);
+        if (reason == null && row.partition.getTokenDAO()
+                .atomicValidateAndIncrement(entity.getTokenValue(), parameter, tokenType, now) == 0) {
+            reason = ValidationFailureReason.USAGE_LIMIT_EXCEEDED;
+        }
+        if (reason != null) {
+            return ValidationOutcome.builder()
+                    .valid(false)
+                    .storedTokenValue(entity.getTokenValue())
+                    .usageLimit(entity.getUsageLimit())
+                    .usageCount(entity.getUsageCount())
+                    .failureReason(reason)
+                    .build();
+        }
+
+        return ValidationOutcome.builder()
+                .valid(true)
+                .storedTokenValue(entity.getTokenValue())
+                .parameterValue(entity.getParameterValue())
+                .tokenType(entity.getTokenType())
+                .expiryTime(entity.getExpiryTime())
+                .usageLimit(entity.getUsageLimit())
+                .usageCount(entity.getUsageCount() + 1)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public List<ValidationOutcome> validateAndIncrementAll(List<ValidateTokenRequest> requests,
+                                                           List<String> hashedTokenValues, LocalDateTime now) {
+        List<String> lookupValues = new ArrayList<>(requests.size() * 2);
+        for (int i = 0; i < requests.size(); i++) {
+            lookupValues.add(requests.get(i).getToken());
+            lookupValues.add(hashedTokenValues.get(i));
+        }
+        Map<String, TokenPartition> located = locate(lookupValues, partitionRegistry.getReadablePartitions(now));
+        if (!locatedAll(requests, hashedTokenValues, located) && partitionRegistry.refreshOnMiss(now)) {
+            located = locate(lookupValues, partitionRegistry.getReadablePartitions(now));
+        }
+
+        List<ValidationOutcome> outcomes = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        Map<TokenPartition, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TokenPartition partition = located.getOrDefault(requests.get(i).getToken(),
+                    located.get(hashedTokenValues.get(i)));
+            if (partition == null) {
+                outcomes.set(i, notFound());
+            } else {
+                groups.computeIfAbsent(partition, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<TokenPartition, List<Integer>> entry : groups.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            List<ValidateTokenRequest> partitionRequests = new ArrayList<>(indexes.size());
+            List<String> partitionHashedValues = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                partitionRequests.add(requests.get(index));
+                partitionHashedValues.add(hashedTokenValues.get(index));
+            }
+
+            List<ValidationOutcome> partitionOutcomes = entry.getKey().getTokenDAO()
+                    .validateAndIncrementAll(partitionRequests, partitionHashedValues, now);
+            for (int j = 0; j < indexes.size(); j++) {
+                outcomes.set(indexes.get(j), partitionOutcomes.get(j));
+            }
+        }
+
+        return outcomes;
+    }
+
+    @Override
+    @Transactional
+    public long applyUsageDeltas(List<UsageDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        List<String> storedValues = new ArrayList<>(deltas.size());
+        for (UsageDelta delta : deltas) {
+            storedValues.add(delta.getStoredTokenValue());
+        }
+        Map<String, TokenPartition> located = locate(storedValues,
+                partitionRegistry.getReadablePartitions(LocalDateTime.now()));
+
+        Map<TokenPartition, List<UsageDelta>> groups = new LinkedHashMap<>();
+        for (UsageDelta delta : deltas) {
+            TokenPartition partition = located.get(delta.getStoredTokenValue());
+            if (partition != null) {
+                groups.computeIfAbsent(partition, key -> new ArrayList<>()).add(delta);
+            }
+        }
+
+        long rows = 0;
+        for (Map.Entry<TokenPartition, List<UsageDelta>> entry : groups.entrySet()) {
+            rows += entry.getKey().getTokenDAO().applyUsageDeltas(entry.getValue());
+        }
+        return rows;
+    }
+
+    @Override
+    @Transactional
+    public long invalidate(String tokenValue) {
+        TokenPartition partition = locate(tokenValue, LocalDateTime.now(), false);
+        return partition != null ? partition.getTokenDAO().invalidate(tokenValue) : 0;
+    }
+
+    @Override
+    public long invalidateAllChunk(String parameter, String tokenType, LocalDateTime now, int limit) {
+        long invalidated = 0;
+        for (TokenPartition partition : partitionRegistry.getLivePartitions(now)) {
+            invalidated += partition.getTokenDAO().invalidateAllChunk(parameter, tokenType, now, limit);
+        }
+        return invalidated;
+    }
+
+    @Override
+    public long deleteExpired(LocalDateTime before) {
+        long dropped = 0;
+        for (TokenPartition partition : partitionRegistry.getDroppablePartitions(before)) {
+            dropped += partitionRegistry.drop(partition);
+        }
+        return dropped;
+    }
+
+    @Override
+    public long countExpired(LocalDateTime before) {
+        long count = 0;
+        for (TokenPartition partition : partitionRegistry.getPartitions()) {
+            if (partition.getStart().isBefore(before)) {
+                count += partition.getTokenDAO().countExpired(before);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        long count = 0;
+        for (TokenPartition partition : partitionRegistry.getLivePartitions(now)) {
+            count += partition.getTokenDAO().countActive(now);
+        }
+        return count;
+    }
+
+    @Override
+    public ExpiredChunk deleteExpiredChunk(LocalDateTime before, LocalDateTime afterExpiryTime, Long afterId,
+                                           int limit) {
+        List<TokenPartition> droppable = partitionRegistry.getDroppablePartitions(before);
+        if (droppable.isEmpty()) {
+            return ExpiredChunk.builder().build();
+        }
+
+        return ExpiredChunk.builder()
+                .deletedCount(partitionRegistry.drop(droppable.get(0)))
+                .hasMore(droppable.size() > 1)
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryAcquireLock(String lockName, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        return partitionRegistry.getLockTokenDAO().tryAcquireLock(lockName, owner, now, lockedUntil);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseLock(String lockName, String owner) {
+        partitionRegistry.getLockTokenDAO().releaseLock(lockName, owner);
+    }
+
+    @Override
+    public TokenEntity findByTokenValueAndParameter(String tokenValue, String parameter) {
+        TokenEntity entity = find(tokenValue, parameter);
+        return entity != null || !partitionRegistry.refreshOnMiss(LocalDateTime.now()) ? entity : find(tokenValue, parameter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamTokenValues(LocalDateTime createdSince, Consumer<String> consumer) {
+        long count = 0;
+        for (TokenPartition partition : partitionRegistry.getReadablePartitions(LocalDateTime.now())) {
+            count += partition.getTokenDAO().streamTokenValues(createdSince, consumer);
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamInvalidatedTokens(String hashingMode, LocalDateTime updatedSince, LocalDateTime expiringAfter,
+                                        BiConsumer<String, LocalDateTime> consumer) {
+        long count = 0;
+        for (TokenPartition partition : partitionRegistry.getLivePartitions(expiringAfter)) {
+            count += partition.getTokenDAO()
+                    .streamInvalidatedTokens(hashingMode, updatedSince, expiringAfter, consumer);
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamTokens(TokenExportQuery query, Consumer<TokenEntity> consumer) {
+        long count = 0;
+        for (TokenPartition partition : partitionRegistry.getPartitions()) {
+            count += partition.getTokenDAO().streamTokens(query, consumer);
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery query) {
+        List<List<TokenStatusCount>> partials = new ArrayList<>();
+        for (TokenPartition partition : partitionRegistry.getPartitions()) {
+            partials.add(partition.getTokenDAO().countByTypeAndStatus(query));
+        }
+        return TokenStatusCounts.merge(partials);
+    }
+
+    private Map<TokenPartition, List<TokenEntity>> groupByPartition(List<TokenEntity> entities) {
+        Map<TokenPartition, List<TokenEntity>> groups = new LinkedHashMap<>();
+        for (TokenEntity entity : entities) {
+            groups.computeIfAbsent(partitionRegistry.partitionFor(entity.getExpiryTime()), key -> new ArrayList<>())
+                    .add(entity);
+        }
+        return groups;
+    }
+
+    private TokenEntity find(String tokenValue) {
+        LookupPlan plan = lookupPlan(LocalDateTime.now());
+        if (plan.partitions.isEmpty()) {
+            return null;
+        }
+
+        queryCounter.increment();
+        List<TokenEntity> rows = jdbcTemplate.query(plan.findSql, statement -> {
+            for (int i = 0; i < plan.partitions.size(); i++) {
+                bindLookup(statement, i + 1, tokenValue, plan.keyed);
+            }
+        }, JdbcTokenDAO.TOKEN_ROW_MAPPER);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private LocatedRow findPair(String rawTokenValue, String hashedTokenValue, LocalDateTime now) {
+        LookupPlan plan = lookupPlan(now);
+        if (plan.partitions.isEmpty()) {
+            return null;
+        }
+
+        queryCounter.increment();
+        List<LocatedRow> rows = jdbcTemplate.query(plan.findPairSql, statement -> {
+            for (int i = 0; i < plan.partitions.size(); i++) {
+                bindLookup(statement, 2 * i + 1, rawTokenValue, plan.keyed);
+                bindLookup(statement, 2 * i + 2, hashedTokenValue, plan.keyed);
+            }
+        }, (resultSet, rowNum) -> new LocatedRow(plan.partitions.get(resultSet.getInt("PARTITION_INDEX")),
+                JdbcTokenDAO.TOKEN_ROW_MAPPER.mapRow(resultSet, rowNum)));
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        LocatedRow located = rows.get(0);
+        for (LocatedRow candidate : rows) {
+            if (candidate.entity.getTokenValue().equals(rawTokenValue)) {
+                located = candidate;
+            }
+        }
+        return located;
+    }
+
+    private TokenEntity find(String tokenValue, String parameter) {
+        LookupPlan plan = lookupPlan(LocalDateTime.now());
+        if (plan.partitions.isEmpty()) {
+            return null;
+        }
+
+        queryCounter.increment();
+        List<TokenEntity> rows = jdbcTemplate.query(plan.findByParameterSql, statement -> {
+            for (int i = 0; i < plan.partitions.size(); i++) {
+                bindLookup(statement, 2 * i + 1, tokenValue, plan.keyed);
+                statement.setString(2 * i + 2, parameter);
+            }
+        }, JdbcTokenDAO.TOKEN_ROW_MAPPER);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private TokenPartition locate(String tokenValue, LocalDateTime now, boolean live) {
+        List<String> lookupValues = Collections.singletonList(tokenValue);
+        TokenPartition partition = locate(lookupValues, partitions(now, live)).get(tokenValue);
+        if (partition == null && partitionRegistry.refreshOnMiss(now)) {
+            partition = locate(lookupValues, partitions(now, live)).get(tokenValue);
+        }
+        return partition;
+    }
+
+    private List<TokenPartition> partitions(LocalDateTime now, boolean live) {
+        return live ? partitionRegistry.getLivePartitions(now) : partitionRegistry.getReadablePartitions(now);
+    }
+
+    private static boolean locatedAll(List<ValidateTokenRequest> requests, List<String> hashedTokenValues,
+                                      Map<String, TokenPartition> located) {
+        for (int i = 0; i < requests.size(); i++) {
+            if (!located.containsKey(requests.get(i).getToken()) && !located.containsKey(hashedTokenValues.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, TokenPartition> locate(Collection<String> tokenValues, List<TokenPartition> partitions) {
+        Map<String, TokenPartition> located = new HashMap<>();
+        if (partitions.isEmpty() || tokenValues.isEmpty()) {
+            return located;
+        }
+
+        boolean keyed = keyLookups(partitions);
+        List<String> values = new ArrayList<>(new LinkedHashSet<>(tokenValues));
+        int chunkSize = Math.max(1, MAX_IN_LIST_SIZE / partitions.size());
+        for (int from = 0; from < values.size(); from += chunkSize) {
+            List<String> chunk = values.subList(from, Math.min(from + chunkSize, values.size()));
+
+            queryCounter.increment();
+            jdbcTemplate.query(locateSql(partitions, chunk.size(), keyed), statement -> {
+                int index = 1;
+                for (int p = 0; p < partitions.size(); p++) {
+                    for (String value : chunk) {
+                        bindLookup(statement, index++, value, keyed);
+                    }
+                }
+            }, resultSet -> {
+                located.put(resultSet.getString(2), partitions.get(resultSet.getInt(1)));
+            });
+        }
+        return located;
+    }
+
+    private String locateSql(List<TokenPartition> partitions, int count, boolean keyed) {
+        String placeholders = placeholders(count);
+        StringBuilder sql = new StringBuilder();
+        for (int p = 0; p < partitions.size(); p++) {
+            if (p > 0) {
+                sql.append(UNION_ALL);
+            }
+            sql.append(String.format(LOCATE_SQL, p, partitions.get(p).getTableName(), lookupColumn(keyed),
+                    placeholders));
+        }
+        return sql.toString();
+    }
+
+    private LookupPlan lookupPlan(LocalDateTime now) {
+        List<TokenPartition> partitions = partitionRegistry.getReadablePartitions(now);
+        boolean keyed = keyLookups(partitions);
+        LookupPlan plan = lookupPlan;
+        if (plan == null || plan.keyed != keyed || !plan.partitions.equals(partitions)) {
+            plan = new LookupPlan(partitions, keyed);
+            lookupPlan = plan;
+        }
+        return plan;
+    }
+
+    private static boolean keyLookups(List<TokenPartition> partitions) {
+        for (TokenPartition partition : partitions) {
+            if (!partition.getTokenDAO().isKeyLookups()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void bindLookup(PreparedStatement statement, int index, String tokenValue, boolean keyed)
+            throws SQLException {
+        if (keyed) {
+            statement.setBytes(index, TokenHasher.digest(tokenValue));
+        } else {
+            statement.setString(index, tokenValue);
+        }
+    }
+
+    private static String lookupColumn(boolean keyed) {
+        return keyed ? "TOKEN_KEY" : "TOKEN_VALUE";
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    private static ValidationOutcome notFound() {
+        return ValidationOutcome.builder()
+                .valid(false)
+                .failureReason(ValidationFailureReason.NOT_FOUND)
+                .build();
+    }
+
+    private static final class LookupPlan {
+
+        private final List<TokenPartition> partitions;
+
+        private final boolean keyed;
+
+        private final String findSql;
+
+        private final String findByParameterSql;
+
+        private final String findPairSql;
+
+        private LookupPlan(List<TokenPartition> partitions, boolean keyed) {
+            this.partitions = partitions;
+            this.keyed = keyed;
+            this.findSql = union(partitions, FIND_SQL, lookupColumn(keyed));
+            this.findByParameterSql = union(partitions, FIND_BY_PARAMETER_SQL, lookupColumn(keyed));
+            this.findPairSql = union(partitions, FIND_PAIR_SQL, lookupColumn(keyed));
+        }
+
+        private static String union(List<TokenPartition> partitions, String template, String lookupColumn) {
+            StringBuilder sql = new StringBuilder();
+            for (int p = 0; p < partitions.size(); p++) {
+                if (p > 0) {
+                    sql.append(UNION_ALL);
+                }
+                sql.append(String.format(template, partitions.get(p).getTableName(), lookupColumn, p));
+            }
+            return sql.toString();
+        }
+    }
+
+    private static final class LocatedRow {
+
+        private final TokenPartition partition;
+
+        private final TokenEntity entity;
+
+        private LocatedRow(TokenPartition partition, TokenEntity entity) {
+            this.partition = partition;
+            this.entity = entity;
+        }
+    }
+}
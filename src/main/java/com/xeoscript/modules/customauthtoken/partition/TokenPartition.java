@@ -0,0 +1,29 @@
+package com.xeoscript.modules.customauthtoken.partition;
+
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+public class TokenPartition {
+
+    private final String tableName;
+
+    private final TokenPartitionInterval interval;
+
+    private final LocalDateTime start;
+
+    private final LocalDateTime end;
+
+    private final JdbcTokenDAO tokenDAO;
+
+    public TokenPartition(String tableName, TokenPartitionInterval interval, LocalDateTime start,
+                          JdbcTokenDAO tokenDAO) {
+        this.tableName = tableName;
+        this.interval = interval;
+        this.start = start;
+        this.end = interval.next(start);
+        this.tokenDAO = tokenDAO;
+    }
+}
@@ -0,0 +1,58 @@
+package com.xeoscript.modules.customauthtoken.partition;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+public enum TokenPartitionInterval {
+
+    DAILY(ChronoUnit.DAYS, "yyyyMMdd"),
+
+    HOURLY(ChronoUnit.HOURS, "yyyyMMddHH");
+
+    private final ChronoUnit unit;
+
+    private final DateTimeFormatter formatter;
+
+    private final int suffixLength;
+
+    TokenPartitionInterval(ChronoUnit unit, String pattern) {
+        this.unit = unit;
+        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.suffixLength = pattern.length();
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return start.plus(1, unit);
+    }
+
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+
+    public String suffix(LocalDateTime start) {
+        return formatter.format(start);
+    }
+
+    public static TokenPartitionInterval forSuffix(String suffix) {
+        for (TokenPartitionInterval interval : values()) {
+            if (interval.suffixLength == suffix.length()) {
+                return interval;
+            }
+        }
+        return null;
+    }
+
+    public LocalDateTime parse(String suffix) {
+        int year = Integer.parseInt(suffix.substring(0, 4));
+        int month = Integer.parseInt(suffix.substring(4, 6));
+        int day = Integer.parseInt(suffix.substring(6, 8));
+        int hour = this == HOURLY ? Integer.parseInt(suffix.substring(8, 10)) : 0;
+        return LocalDateTime.of(year, month, day, hour, 0);
+    }
+}
@@ -0,0 +1,341 @@
+package com.xeoscript.modules.customauthtoken.partition;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "partitioned")
+public class TokenPartitionRegistry {
+
+    private static final String TABLE_PREFIX = JdbcTokenDAO.TABLE_NAME + "_P";
+
+    private static final Pattern TABLE_PATTERN = Pattern.compile(TABLE_PREFIX + "(\\d{8}|\\d{10})",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String LIST_TABLES_SQL = "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES"
+            + " WHERE UPPER(TABLE_NAME) LIKE '" + TABLE_PREFIX + "%'";
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM %s";
+
+    private static final Comparator<TokenPartition> PARTITION_ORDER = Comparator
+            .comparing(TokenPartition::getStart)
+            .thenComparing(TokenPartition::getEnd);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenQueryCounter queryCounter;
+    private final TokenProperties properties;
+    private final ObjectProvider<PlatformTransactionManager> transactionManagerProvider;
+
+    private final Map<String, TokenPartition> partitionsByName = new ConcurrentHashMap<>();
+
+    private final LongAdder createdPartitions = new LongAdder();
+    private final LongAdder droppedPartitions = new LongAdder();
+    private final LongAdder droppedRows = new LongAdder();
+    private final LongAdder missRefreshes = new LongAdder();
+
+    private final AtomicLong lastRefreshNanos = new AtomicLong(System.nanoTime());
+
+    private volatile List<TokenPartition> partitions = Collections.emptyList();
+
+    private TokenPartitionInterval interval;
+
+    private Duration retention;
+
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTokenDAO lockTokenDAO;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        interval = TokenPartitionInterval.valueOf(properties.getPartitionInterval().trim().toUpperCase(Locale.ROOT));
+        retention = interval.getDuration().multipliedBy(Math.max(0, properties.getPartitionRetentionCount()));
+        transactionManager = transactionManagerProvider.getIfAvailable(() ->
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        lockTokenDAO = new JdbcTokenDAO(jdbcTemplate, queryCounter, properties, JdbcTokenDAO.TABLE_NAME,
+                transactionManager);
+
+        maintain();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervalSeconds = Math.max(1, properties.getPartitionMaintenanceIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+
+        log.info("Partitioned token store started with {} {} partitions", partitions.size(), interval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void maintain() {
+        refresh();
+        precreate(LocalDateTime.now());
+    }
+
+    /**
+     * Re-reads the partition list after a lookup miss, but only when a bucket this node should know about is
+     * missing: one between the oldest known readable partition and the precreate horizon. Misses with every such
+     * bucket registered are genuine and cost nothing. Buckets beyond the horizon that other nodes create for long
+     * validity tokens are picked up by the maintenance refresh, so partition-precreate-count should cover the
+     * longest validity in use. At most one thread refreshes per partition-miss-refresh-interval-ms; the others
+     * return straight away instead of waiting on the registry.
+     */
+    public boolean refreshOnMiss(LocalDateTime now) {
+        List<TokenPartition> known = partitions;
+        if (!hasUnknownBucket(known, now)) {
+            return false;
+        }
+
+        long last = lastRefreshNanos.get();
+        long nowNanos = System.nanoTime();
+        long minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, properties.getPartitionMissRefreshIntervalMs()));
+        if (nowNanos - last < minIntervalNanos || !lastRefreshNanos.compareAndSet(last, nowNanos)) {
+            return false;
+        }
+
+        missRefreshes.increment();
+        refresh();
+        return partitions != known;
+    }
+
+    public TokenPartition partitionFor(LocalDateTime expiryTime) {
+        LocalDateTime start = interval.floor(expiryTime);
+        TokenPartition partition = partitionsByName.get(tableName(interval, start));
+        return partition != null ? partition : create(start);
+    }
+
+    public List<TokenPartition> getPartitions() {
+        return partitions;
+    }
+
+    public List<TokenPartition> getReadablePartitions(LocalDateTime now) {
+        LocalDateTime retiredBefore = now.minus(retention);
+        List<TokenPartition> current = partitions;
+        List<TokenPartition> readable = new ArrayList<>(current.size());
+        for (TokenPartition partition : current) {
+            if (partition.getEnd().isAfter(retiredBefore)) {
+                readable.add(partition);
+            }
+        }
+        return readable;
+    }
+
+    public List<TokenPartition> getLivePartitions(LocalDateTime now) {
+        List<TokenPartition> current = partitions;
+        List<TokenPartition> live = new ArrayList<>(current.size());
+        for (TokenPartition partition : current) {
+            if (partition.getEnd().isAfter(now)) {
+                live.add(partition);
+            }
+        }
+        return live;
+    }
+
+    public List<TokenPartition> getDroppablePartitions(LocalDateTime before) {
+        List<TokenPartition> droppable = new ArrayList<>();
+        for (TokenPartition partition : partitions) {
+            if (!partition.getEnd().plus(retention).plus(partition.getInterval().getDuration()).isAfter(before)) {
+                droppable.add(partition);
+            }
+        }
+        return droppable;
+    }
+
+    public long drop(TokenPartition partition) {
+        unregister(partition);
+
+        queryCounter.increment();
+        Long rows = jdbcTemplate.queryForObject(String.format(COUNT_SQL, partition.getTableName()), Long.class);
+
+        queryCounter.increment();
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            connection.setAutoCommit(true);
+            TokenPartitionSchema.drop(connection, partition.getTableName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Token partition " + partition.getTableName() + " could not be dropped", e);
+        }
+
+        droppedPartitions.increment();
+        droppedRows.add(rows != null ? rows : 0);
+        log.info("Dropped token partition {} with {} rows", partition.getTableName(), rows);
+        return rows != null ? rows : 0;
+    }
+
+    public JdbcTokenDAO getLockTokenDAO() {
+        return lockTokenDAO;
+    }
+
+    public long getCreatedPartitionCount() {
+        return createdPartitions.sum();
+    }
+
+    public long getDroppedPartitionCount() {
+        return droppedPartitions.sum();
+    }
+
+    public long getDroppedRowCount() {
+        return droppedRows.sum();
+    }
+
+    public long getMissRefreshCount() {
+        return missRefreshes.sum();
+    }
+
+    private boolean hasUnknownBucket(List<TokenPartition> known, LocalDateTime now) {
+        LocalDateTime start = interval.floor(now);
+        LocalDateTime retiredBefore = now.minus(retention);
+        for (TokenPartition partition : known) {
+            if (partition.getInterval() == interval && partition.getEnd().isAfter(retiredBefore)) {
+                if (partition.getStart().isBefore(start)) {
+                    start = partition.getStart();
+                }
+                break;
+            }
+        }
+
+        LocalDateTime horizon = interval.floor(now);
+        for (int i = 0; i < Math.max(0, properties.getPartitionPrecreateCount()); i++) {
+            horizon = interval.next(horizon);
+        }
+        for (; !start.isAfter(horizon); start = interval.next(start)) {
+            if (!partitionsByName.containsKey(tableName(interval, start))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void refresh() {
+        lastRefreshNanos.set(System.nanoTime());
+        Set<String> existing = new HashSet<>();
+        queryCounter.increment();
+        for (String table : jdbcTemplate.queryForList(LIST_TABLES_SQL, String.class)) {
+            Matcher matcher = TABLE_PATTERN.matcher(table);
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            TokenPartitionInterval tableInterval = TokenPartitionInterval.forSuffix(matcher.group(1));
+            LocalDateTime start = tableInterval.parse(matcher.group(1));
+            String name = tableName(tableInterval, start);
+            existing.add(name);
+            if (!partitionsByName.containsKey(name)) {
+                register(name, tableInterval, start);
+            }
+        }
+
+        for (TokenPartition partition : partitions) {
+            if (!existing.contains(partition.getTableName())) {
+                unregister(partition);
+            }
+        }
+    }
+
+    private void precreate(LocalDateTime now) {
+        LocalDateTime start = interval.floor(now);
+        for (int i = 0; i <= Math.max(0, properties.getPartitionPrecreateCount()); i++) {
+            if (!partitionsByName.containsKey(tableName(interval, start))) {
+                create(start);
+            }
+            start = interval.next(start);
+        }
+    }
+
+    private synchronized TokenPartition create(LocalDateTime start) {
+        String name = tableName(interval, start);
+        TokenPartition partition = partitionsByName.get(name);
+        if (partition != null) {
+            return partition;
+        }
+
+        queryCounter.increment();
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            connection.setAutoCommit(true);
+            TokenPartitionSchema.create(connection, name, interval.suffix(start), properties.isCompactTokenKey());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Token partition " + name + " could not be created", e);
+        }
+
+        createdPartitions.increment();
+        log.info("Created token partition {}", name);
+        return register(name, interval, start);
+    }
+
+    private synchronized TokenPartition register(String name, TokenPartitionInterval tableInterval,
+                                                 LocalDateTime start) {
+        TokenPartition partition = new TokenPartition(name, tableInterval, start,
+                new JdbcTokenDAO(jdbcTemplate, queryCounter, properties, name, transactionManager));
+        partitionsByName.put(name, partition);
+
+        List<TokenPartition> updated = new ArrayList<>(partitions);
+        updated.add(partition);
+        updated.sort(PARTITION_ORDER);
+        partitions = Collections.unmodifiableList(updated);
+        return partition;
+    }
+
+    private synchronized void unregister(TokenPartition partition) {
+        partitionsByName.remove(partition.getTableName());
+
+        List<TokenPartition> updated = new ArrayList<>(partitions);
+        updated.remove(partition);
+        partitions = Collections.unmodifiableList(updated);
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("Token partition maintenance failed", e);
+        }
+    }
+
+    private static String tableName(TokenPartitionInterval interval, LocalDateTime start) {
+        return TABLE_PREFIX + interval.suffix(start);
+    }
+}
@@ -0,0 +1,56 @@
+package com.xeoscript.modules.customauthtoken.partition;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public final class TokenPartitionSchema {
+
+    private static final String[] CREATE_STATEMENTS = {
+            "CREATE TABLE IF NOT EXISTS %1$s ("
+                    + " ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                    + " TOKEN_VALUE VARCHAR(512) NOT NULL,"
+                    + " TOKEN_KEY VARBINARY(32),"
+                    + " PARAMETER_VALUE VARCHAR(512) NOT NULL,"
+                    + " TOKEN_TYPE VARCHAR(100),"
+                    + " STATUS VARCHAR(20) NOT NULL,"
+                    + " EXPIRY_TIME TIMESTAMP NOT NULL,"
+                    + " USAGE_LIMIT INTEGER,"
+                    + " USAGE_COUNT INTEGER NOT NULL,"
+                    + " HASHING_MODE VARCHAR(20) NOT NULL,"
+                    + " METADATA VARCHAR(2000),"
+                    + " CREATED_AT TIMESTAMP NOT NULL,"
+                    + " UPDATED_AT TIMESTAMP NOT NULL,"
+                    + " USED_AT TIMESTAMP)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS IDX_TOKEN_KEY_%2$s ON %1$s (TOKEN_KEY)",
+            "CREATE INDEX IF NOT EXISTS IDX_PARAM_TYPE_%2$s ON %1$s (PARAMETER_VALUE, TOKEN_TYPE)",
+            "CREATE INDEX IF NOT EXISTS IDX_STATUS_UPDATED_AT_%2$s ON %1$s (STATUS, UPDATED_AT)",
+            "CREATE INDEX IF NOT EXISTS IDX_EXPIRY_TIME_%2$s ON %1$s (EXPIRY_TIME)"
+    };
+
+    private static final String VALUE_INDEX_STATEMENT = "CREATE UNIQUE INDEX IF NOT EXISTS IDX_TOKEN_VALUE_%2$s"
+            + " ON %1$s (TOKEN_VALUE)";
+
+    private static final String DROP_STATEMENT = "DROP TABLE IF EXISTS %s";
+
+    private TokenPartitionSchema() {
+    }
+
+    public static void create(Connection connection, String tableName, String suffix, boolean compactTokenKey)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : CREATE_STATEMENTS) {
+                statement.execute(String.format(sql, tableName, suffix));
+            }
+            if (!compactTokenKey) {
+                statement.execute(String.format(VALUE_INDEX_STATEMENT, tableName, suffix));
+            }
+        }
+    }
+
+    public static void drop(Connection connection, String tableName) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format(DROP_STATEMENT, tableName));
+        }
+    }
+}
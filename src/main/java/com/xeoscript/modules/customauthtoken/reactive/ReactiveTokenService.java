@@ -0,0 +1,45 @@
+package com.xeoscript.modules.customauthtoken.reactive;
+
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.services.AsyncTokenService;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveTokenService {
+
+    private final AsyncTokenService asyncTokenService;
+
+    public Mono<GeneratedToken> generate(TokenRequest request) {
+        return Mono.defer(() -> Mono.fromFuture(asyncTokenService.generate(request)));
+    }
+
+    public Flux<GeneratedToken> generateAll(Publisher<TokenRequest> requests) {
+        return Flux.from(requests).flatMapSequential(this::generate, asyncTokenService.getMaxInFlight());
+    }
+
+    public Mono<ValidationResult> validate(ValidateTokenRequest request) {
+        return Mono.defer(() -> Mono.fromFuture(asyncTokenService.validate(request)));
+    }
+
+    public Flux<ValidationResult> validateAll(Publisher<ValidateTokenRequest> requests) {
+        return Flux.from(requests).flatMapSequential(this::validate, asyncTokenService.getMaxInFlight());
+    }
+
+    public Mono<Void> invalidate(String token) {
+        return Mono.defer(() -> Mono.fromFuture(asyncTokenService.invalidate(token)));
+    }
+
+    public Mono<Long> invalidateAll(String parameter, String tokenType) {
+        return Mono.defer(() -> Mono.fromFuture(asyncTokenService.invalidateAll(parameter, tokenType)));
+    }
+
+    public Mono<Long> cleanupExpired() {
+        return Mono.defer(() -> Mono.fromFuture(asyncTokenService.cleanupExpired()));
+    }
+}
@@ -0,0 +1,23 @@
+package com.xeoscript.modules.customauthtoken.replica;
+
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ReplicaLookup {
+
+    public static final ReplicaLookup ABSENT = new ReplicaLookup(null, true);
+
+    public static final ReplicaLookup UNKNOWN = new ReplicaLookup(null, false);
+
+    private final TokenEntity entity;
+
+    private final boolean authoritative;
+
+    public static ReplicaLookup found(TokenEntity entity) {
+        return new ReplicaLookup(entity, true);
+    }
+}
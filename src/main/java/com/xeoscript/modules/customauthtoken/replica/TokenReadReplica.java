@@ -0,0 +1,258 @@
+package com.xeoscript.modules.customauthtoken.replica;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenReadReplica {
+
+    private static final String MAX_ID_SQL = "SELECT MAX(ID) FROM CUSTOM_AUTH_TOKEN";
+
+    private final TokenQueryCounter queryCounter;
+    private final TokenHasher tokenHasher;
+    private final TokenProperties properties;
+    private final ObjectProvider<DataSource> primaryDataSource;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder trustedMisses = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private DataSource dataSource;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private volatile JdbcTokenDAO tokenDAO;
+
+    private final Map<String, Long> recentlyGenerated = new ConcurrentHashMap<>();
+    private final Queue<String> generationOrder = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock pruneLock = new ReentrantLock();
+
+    private JdbcTemplate primaryJdbcTemplate;
+    private JdbcTemplate replicaJdbcTemplate;
+    private ScheduledExecutorService scheduler;
+
+    private volatile long caughtUpAtMillis;
+    private long previousPrimaryMaxId = -1;
+    private long previousSampledAtMillis;
+
+    @PostConstruct
+    public void start() {
+        String url = properties.getReadReplicaJdbcUrl().trim();
+        if (url.isEmpty()) {
+            return;
+        }
+
+        String store = properties.getStore().trim().toLowerCase(Locale.ROOT);
+        if (!"jpa".equals(store) && !"jdbc".equals(store)) {
+            throw new IllegalStateException("spring.custom-auth-token.read-replica-jdbc-url is only supported"
+                    + " by the jpa and jdbc stores, not '" + store + "'");
+        }
+
+        dataSource = DataSourceBuilder.create()
+                .url(url)
+                .username(properties.getReadReplicaUsername())
+                .password(properties.getReadReplicaPassword())
+                .build();
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource hikari = (HikariDataSource) dataSource;
+            hikari.setPoolName("custom-auth-token-read-replica");
+            hikari.setMaximumPoolSize(Math.max(1, properties.getReadReplicaPoolSize()));
+            hikari.setReadOnly(true);
+        }
+
+        readOnlyTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnlyTransactionTemplate.setReadOnly(true);
+        replicaJdbcTemplate = new JdbcTemplate(dataSource);
+        primaryJdbcTemplate = new JdbcTemplate(primaryDataSource.getObject());
+        tokenDAO = new JdbcTokenDAO(replicaJdbcTemplate, queryCounter, properties);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(10, properties.getReadReplicaLagCheckIntervalMs());
+        scheduler.scheduleWithFixedDelay(this::checkLagQuietly, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+
+        log.info("Token lookups and reports routed to read replica pool of {} connections",
+                Math.max(1, properties.getReadReplicaPoolSize()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (dataSource instanceof HikariDataSource) {
+            ((HikariDataSource) dataSource).close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return tokenDAO != null;
+    }
+
+    public <T> T inReadOnlyTransaction(Function<JdbcTokenDAO, T> work) {
+        return readOnlyTransactionTemplate.execute(status -> work.apply(tokenDAO));
+    }
+
+    public ReplicaLookup findByRawToken(String rawToken) {
+        lookups.increment();
+        try {
+            String hashedToken = tokenHasher.hash(rawToken);
+            TokenEntity entity = tokenDAO.findByRawTokenValue(rawToken, hashedToken);
+            if (entity != null) {
+                hits.increment();
+                return ReplicaLookup.found(entity);
+            }
+            if (isMissTrusted(rawToken, hashedToken)) {
+                trustedMisses.increment();
+                return ReplicaLookup.ABSENT;
+            }
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.debug("Read replica lookup failed, falling back to primary", e);
+        }
+
+        fallbacks.increment();
+        return ReplicaLookup.UNKNOWN;
+    }
+
+    public void recordGenerated(String storedTokenValue) {
+        if (tokenDAO == null) {
+            return;
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        recentlyGenerated.put(storedTokenValue, nowMillis);
+
+        generationOrder.add(storedTokenValue);
+
+        if (!pruneLock.tryLock()) {
+            return;
+        }
+        try {
+            long oldestMillis = nowMillis - Math.max(0, properties.getReadReplicaMaxLagMs());
+            String oldest;
+            while ((oldest = generationOrder.peek()) != null) {
+                Long generatedAt = recentlyGenerated.get(oldest);
+                if (generatedAt != null && generatedAt >= oldestMillis) {
+                    break;
+                }
+                generationOrder.poll();
+                if (generatedAt != null) {
+                    recentlyGenerated.remove(oldest, generatedAt);
+                }
+            }
+        } finally {
+            pruneLock.unlock();
+        }
+    }
+
+    public synchronized void checkLag() {
+        long sampledAtMillis = System.currentTimeMillis();
+        long primaryMaxId = maxId(primaryJdbcTemplate);
+        long replicaMaxId = maxId(replicaJdbcTemplate);
+
+        if (replicaMaxId >= primaryMaxId) {
+            caughtUpAtMillis = sampledAtMillis;
+        } else if (previousPrimaryMaxId >= 0 && replicaMaxId >= previousPrimaryMaxId) {
+            caughtUpAtMillis = previousSampledAtMillis;
+        }
+        previousPrimaryMaxId = primaryMaxId;
+        previousSampledAtMillis = sampledAtMillis;
+    }
+
+    public long getLagMillis() {
+        long caughtUpAt = caughtUpAtMillis;
+        return caughtUpAt > 0 ? System.currentTimeMillis() - caughtUpAt : -1;
+    }
+
+    public void recordStaleRead() {
+        staleReads.increment();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    public long getTrustedMissCount() {
+        return trustedMisses.sum();
+    }
+
+    public long getStaleReadCount() {
+        return staleReads.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    private boolean isMissTrusted(String rawToken, String hashedToken) {
+        long caughtUpAt = caughtUpAtMillis;
+        if (caughtUpAt == 0 || System.currentTimeMillis() - caughtUpAt > properties.getReadReplicaMaxLagMs()) {
+            return false;
+        }
+
+        Long generatedAt = recentlyGenerated.get(rawToken);
+        if (generatedAt == null) {
+            generatedAt = recentlyGenerated.get(hashedToken);
+        }
+        return generatedAt == null || generatedAt < caughtUpAt;
+    }
+
+    private long maxId(JdbcTemplate jdbcTemplate) {
+        queryCounter.increment();
+        Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    private void checkLagQuietly() {
+        try {
+            checkLag();
+        } catch (RuntimeException e) {
+            log.debug("Read replica lag check failed", e);
+        }
+    }
+}
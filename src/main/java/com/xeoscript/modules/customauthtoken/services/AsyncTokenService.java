@@ -0,0 +1,29 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncTokenService {
+
+    CompletableFuture<GeneratedToken> generate(TokenRequest request);
+
+    CompletableFuture<List<GeneratedToken>> generateAll(List<TokenRequest> requests);
+
+    CompletableFuture<ValidationResult> validate(ValidateTokenRequest request);
+
+    CompletableFuture<List<ValidationResult>> validateAll(Collection<ValidateTokenRequest> requests);
+
+    CompletableFuture<Void> invalidate(String token);
+
+    CompletableFuture<Long> invalidateAll(String parameter, String tokenType);
+
+    CompletableFuture<Long> cleanupExpired();
+
+    int getMaxInFlight();
+}
@@ -0,0 +1,182 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AsyncTokenServiceImpl implements AsyncTokenService {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final TokenService tokenService;
+    private final TokenProperties properties;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private ExecutorService executor;
+    private Semaphore inFlight;
+    private Semaphore admission;
+    private int maxInFlight;
+    private boolean virtualThreads;
+
+    @PostConstruct
+    public void start() {
+        maxInFlight = Math.max(1, properties.getAsyncPoolSize());
+        inFlight = new Semaphore(maxInFlight);
+        admission = new Semaphore(maxInFlight + Math.max(0, properties.getAsyncQueueCapacity()));
+
+        if (properties.isAsyncVirtualThreads()) {
+            executor = newVirtualThreadExecutor();
+        }
+        virtualThreads = executor != null;
+        if (!virtualThreads) {
+            AtomicInteger threadSequence = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxInFlight, maxInFlight,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "custom-auth-token-async-" + threadSequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+
+        log.debug("Async token service using {} with {} in-flight operations",
+                virtualThreads ? "virtual threads" : "a platform thread pool", maxInFlight);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public CompletableFuture<GeneratedToken> generate(TokenRequest request) {
+        return submit(() -> tokenService.generate(request));
+    }
+
+    @Override
+    public CompletableFuture<List<GeneratedToken>> generateAll(List<TokenRequest> requests) {
+        return submit(() -> tokenService.generateAll(requests));
+    }
+
+    @Override
+    public CompletableFuture<ValidationResult> validate(ValidateTokenRequest request) {
+        return submit(() -> tokenService.validate(request));
+    }
+
+    @Override
+    public CompletableFuture<List<ValidationResult>> validateAll(Collection<ValidateTokenRequest> requests) {
+        return submit(() -> tokenService.validateAll(requests));
+    }
+
+    @Override
+    public CompletableFuture<Void> invalidate(String token) {
+        return submit(() -> {
+            tokenService.invalidate(token);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> invalidateAll(String parameter, String tokenType) {
+        return submit(() -> tokenService.invalidateAll(parameter, tokenType));
+    }
+
+    @Override
+    public CompletableFuture<Long> cleanupExpired() {
+        return submit(tokenService::cleanupExpired);
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Async token service queue is full (" + admission.availablePermits() + " permits free)"));
+            return future;
+        }
+
+        submitted.increment();
+        try {
+            executor.execute(() -> run(operation, future));
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void run(Supplier<T> operation, CompletableFuture<T> future) {
+        try {
+            inFlight.acquireUninterruptibly();
+            try {
+                future.complete(operation.get());
+            } finally {
+                inFlight.release();
+            }
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+        } finally {
+            admission.release();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads not available, falling back to a platform thread pool");
+            return null;
+        }
+    }
+}
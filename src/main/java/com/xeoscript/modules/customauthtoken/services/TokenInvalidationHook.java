@@ -0,0 +1,19 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+/**
+ * Told about invalidations committed on this node, typically to relay them to the near caches of other nodes. The
+ * receiving side applies them with {@code TokenNearCache.evictRemote} and {@code evictRemoteMatching}, which do not
+ * call the hooks again.
+ */
+public interface TokenInvalidationHook {
+
+    void onInvalidated(String storedTokenValue);
+
+    /**
+     * Called after a bulk invalidation or a supersede commits, whether or not this node had a matching entry
+     * cached. A {@code null} argument matches any value, so a supersede of untyped tokens may reach entries of
+     * other types too.
+     */
+    default void onInvalidatedMatching(String parameterValue, String tokenType) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+
+public interface TokenOperationObserver {
+
+    TokenOperationObserver NOOP = new TokenOperationObserver() {
+    };
+
+    default void onGenerated(String tokenType, HashingMode hashingMode, long durationNanos) {
+    }
+
+    default void onValidated(String tokenType, ValidationFailureReason failureReason, long durationNanos) {
+    }
+
+    default void onInvalidated(boolean invalidated, long durationNanos) {
+    }
+
+    default void onInvalidatedAll(long invalidatedCount, long durationNanos) {
+    }
+
+    default void onCleanedUp(long deletedCount, long durationNanos) {
+    }
+}
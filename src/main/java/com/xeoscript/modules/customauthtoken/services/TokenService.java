@@ -5,13 +5,26 @@ import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
 import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
 import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface TokenService {
 
     GeneratedToken generate(TokenRequest request);
 
+    List<GeneratedToken> generateAll(List<TokenRequest> requests);
+
+    long generateAll(Iterator<TokenRequest> requests, Consumer<GeneratedToken> consumer);
+
     ValidationResult validate(ValidateTokenRequest request);
 
+    List<ValidationResult> validateAll(Collection<ValidateTokenRequest> requests);
+
     void invalidate(String token);
 
+    long invalidateAll(String parameter, String tokenType);
+
     long cleanupExpired();
 }
@@ -2,7 +2,10 @@ package com.xeoscript.modules.customauthtoken.services;
 
 import com.xeoscript.modules.customauthtoken.config.TokenProperties;
 import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.event.TokenLifecycleEventPublisher;
 import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.SignedTokenClaims;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
 import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
 import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
 import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
@@ -10,15 +13,43 @@ import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
 import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
 import com.xeoscript.modules.customauthtoken.model.response.GeneratedToken;
 import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.replica.ReplicaLookup;
+import com.xeoscript.modules.customauthtoken.replica.TokenReadReplica;
+import com.xeoscript.modules.customauthtoken.services.internal.CachedToken;
+import com.xeoscript.modules.customauthtoken.services.internal.ExpiredTokenCleanupScheduler;
+import com.xeoscript.modules.customauthtoken.services.internal.NearCacheTicket;
+import com.xeoscript.modules.customauthtoken.services.internal.PooledToken;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNearCache;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNegativeLookupFilter;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenPool;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenRevocationSet;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenValidationRateLimiter;
+import com.xeoscript.modules.customauthtoken.services.internal.UsageWriteBehindBuffer;
+import com.xeoscript.modules.customauthtoken.util.ActiveTokenLocks;
 import com.xeoscript.modules.customauthtoken.util.TokenGenerator;
 import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import com.xeoscript.modules.customauthtoken.util.TokenSigner;
+import com.xeoscript.modules.customauthtoken.util.ValidationFailureClassifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -29,10 +60,373 @@ public class TokenServiceImpl implements TokenService {
     private final TokenGenerator tokenGenerator;
     private final TokenHasher tokenHasher;
     private final TokenProperties properties;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final TokenNegativeLookupFilter negativeLookupFilter;
+    private final TokenNearCache nearCache;
+    private final UsageWriteBehindBuffer usageBuffer;
+    private final ObjectProvider<TokenOperationObserver> operationObservers;
+    private final TokenSigner tokenSigner;
+    private final TokenRevocationSet revocationSet;
+    private final TokenPool tokenPool;
+    private final TokenValidationRateLimiter rateLimiter;
+    private final TokenLifecycleEventPublisher eventPublisher;
+    private final TokenReadReplica readReplica;
+    private final ExpiredTokenCleanupScheduler cleanupScheduler;
+
+    private TokenOperationObserver operationObserver = TokenOperationObserver.NOOP;
+
+    @PostConstruct
+    public void resolveOperationObserver() {
+        operationObserver = operationObservers.getIfAvailable(() -> TokenOperationObserver.NOOP);
+    }
 
     @Override
     @Transactional
     public GeneratedToken generate(TokenRequest request) {
+        long started = System.nanoTime();
+        PreparedToken prepared = prepareToken(request, LocalDateTime.now());
+
+        if (properties.isAllowMultipleActive()) {
+            tokenDAO.save(prepared.entity);
+        } else {
+            supersedeAndSave(Collections.singletonList(prepared.entity));
+        }
+        negativeLookupFilter.put(prepared.entity.getTokenValue());
+        readReplica.recordGenerated(prepared.entity.getTokenValue());
+        operationObserver.onGenerated(prepared.entity.getTokenType(),
+                HashingMode.valueOf(prepared.entity.getHashingMode()), System.nanoTime() - started);
+        eventPublisher.publishGenerated(request.getParameter(), request.getTokenType(),
+                prepared.generatedToken.getToken());
+
+        log.debug("Token generated for parameter '{}', type '{}', expires at {}",
+                request.getParameter(), request.getTokenType(), prepared.entity.getExpiryTime());
+
+        return prepared.generatedToken;
+    }
+
+    @Override
+    public List<GeneratedToken> generateAll(List<TokenRequest> requests) {
+        List<GeneratedToken> generated = new ArrayList<>(requests.size());
+        generateAll(requests.iterator(), generated::add);
+        return generated;
+    }
+
+    @Override
+    public long generateAll(Iterator<TokenRequest> requests, Consumer<GeneratedToken> consumer) {
+        int batchSize = Math.max(1, properties.getGenerationBatchSize());
+        PlatformTransactionManager chunkTransactionManager = transactionManager.getIfAvailable();
+
+        long total = 0;
+        List<PreparedToken> chunk = new ArrayList<>(batchSize);
+        while (requests.hasNext()) {
+            long started = System.nanoTime();
+            chunk.clear();
+            LocalDateTime now = LocalDateTime.now();
+            while (requests.hasNext() && chunk.size() < batchSize) {
+                chunk.add(prepareToken(requests.next(), now));
+            }
+
+            List<TokenEntity> entities = new ArrayList<>(chunk.size());
+            for (PreparedToken prepared : chunk) {
+                entities.add(prepared.entity);
+            }
+            Runnable saveChunk = () -> {
+                if (properties.isAllowMultipleActive()) {
+                    tokenDAO.saveAll(entities);
+                } else {
+                    supersedeAndSave(entities);
+                }
+                for (TokenEntity entity : entities) {
+                    negativeLookupFilter.put(entity.getTokenValue());
+                    readReplica.recordGenerated(entity.getTokenValue());
+                }
+            };
+            if (chunkTransactionManager != null) {
+                new TransactionTemplate(chunkTransactionManager).executeWithoutResult(status -> saveChunk.run());
+            } else {
+                saveChunk.run();
+            }
+
+            long durationPerToken = (System.nanoTime() - started) / chunk.size();
+            for (PreparedToken prepared : chunk) {
+                operationObserver.onGenerated(prepared.entity.getTokenType(),
+                        HashingMode.valueOf(prepared.entity.getHashingMode()), durationPerToken);
+                eventPublisher.publishGenerated(prepared.entity.getParameterValue(),
+                        prepared.entity.getTokenType(), prepared.generatedToken.getToken());
+                consumer.accept(prepared.generatedToken);
+            }
+            total += chunk.size();
+        }
+
+        log.debug("Bulk generated {} tokens in chunks of {}", total, batchSize);
+        return total;
+    }
+
+    @Override
+    @Transactional
+    public ValidationResult validate(ValidateTokenRequest request) {
+        long started = System.nanoTime();
+        checkValidateRequest(request);
+        ValidationResult result = null;
+        try {
+            result = doValidate(request);
+        } finally {
+            releaseRateLimit(request, result);
+        }
+        operationObserver.onValidated(request.getTokenType(), result.getFailureReason(),
+                System.nanoTime() - started);
+        eventPublisher.publishValidated(request, result);
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public List<ValidationResult> validateAll(Collection<ValidateTokenRequest> requests) {
+        long started = System.nanoTime();
+        requests.forEach(this::checkValidateRequest);
+        List<ValidateTokenRequest> acquired = new ArrayList<>(requests.size());
+        List<ValidationResult> results = null;
+        try {
+            results = doValidateAll(requests, acquired);
+        } finally {
+            if (results == null) {
+                acquired.forEach(request -> releaseRateLimit(request, null));
+            }
+        }
+
+        if (!results.isEmpty()) {
+            long durationPerToken = (System.nanoTime() - started) / results.size();
+            Iterator<ValidateTokenRequest> iterator = requests.iterator();
+            for (ValidationResult result : results) {
+                ValidateTokenRequest request = iterator.next();
+                releaseRateLimit(request, result);
+                operationObserver.onValidated(request.getTokenType(), result.getFailureReason(),
+                        durationPerToken);
+                eventPublisher.publishValidated(request, result);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public void invalidate(String token) {
+        long started = System.nanoTime();
+        boolean invalidated = doInvalidate(token);
+        operationObserver.onInvalidated(invalidated, System.nanoTime() - started);
+        eventPublisher.publishInvalidated(token, invalidated);
+    }
+
+    @Override
+    public long invalidateAll(String parameter, String tokenType) {
+        long started = System.nanoTime();
+        long invalidated = doInvalidateAll(parameter, tokenType);
+        operationObserver.onInvalidatedAll(invalidated, System.nanoTime() - started);
+        eventPublisher.publishInvalidatedAll(parameter, tokenType, invalidated);
+        return invalidated;
+    }
+
+    @Override
+    public long cleanupExpired() {
+        long started = System.nanoTime();
+        long deletedCount = cleanupScheduler.purgeAll(LocalDateTime.now());
+        operationObserver.onCleanedUp(deletedCount, System.nanoTime() - started);
+        return deletedCount;
+    }
+
+    private ValidationResult doValidate(ValidateTokenRequest request) {
+        if (!rateLimiter.tryAcquire(request.getParameter(), request.getTokenType())) {
+            log.debug("Token validation rate limited for parameter '{}'", request.getParameter());
+            return rateLimitedResult();
+        }
+
+        if (tokenSigner.isSigned(request.getToken())) {
+            return validateSigned(request);
+        }
+
+        if (negativeLookupFilter.isDefinitelyAbsent(request.getToken())) {
+            log.debug("Token rejected by negative lookup filter");
+            return notFoundResult();
+        }
+
+        ValidationResult cachedResult = validateCached(request);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        if (properties.isSingleStatementValidation()) {
+            return validateInSingleStatement(request);
+        }
+
+        NearCacheTicket ticket = nearCache.ticket(request.getToken());
+        ReplicaLookup replicaLookup = readReplica.isEnabled() ? readReplica.findByRawToken(request.getToken()) : null;
+        TokenEntity entity = replicaLookup != null ? replicaLookup.getEntity() : null;
+        boolean replicaRead = entity != null;
+        if (replicaLookup == null || !replicaLookup.isAuthoritative()) {
+            entity = findByRawToken(request.getToken());
+        }
+
+        if (entity == null) {
+            log.debug("Token not found for validation");
+            negativeLookupFilter.recordFalsePositive();
+            return notFoundResult();
+        }
+
+        String storedTokenValue = entity.getTokenValue();
+        LocalDateTime now = LocalDateTime.now();
+
+        if (entity.getUsageLimit() == null && usageBuffer.isEnabled()) {
+            if (replicaRead) {
+                entity = tokenDAO.findByTokenValue(storedTokenValue);
+                if (entity == null) {
+                    return notFoundResult();
+                }
+            }
+            return validateWriteBehind(entity, request, now, ticket);
+        }
+
+        long updatedRows = tokenDAO.atomicValidateAndIncrement(
+                storedTokenValue, request.getParameter(), request.getTokenType(), now);
+
+        if (updatedRows == 0) {
+            return buildFailureResult(entity, request, now, replicaRead);
+        }
+
+        TokenEntity updated = tokenDAO.findByTokenValueAndParameter(
+                storedTokenValue, request.getParameter());
+
+        Integer remainingUses = null;
+        if (updated != null && updated.getUsageLimit() != null) {
+            remainingUses = updated.getUsageLimit() - updated.getUsageCount();
+        }
+
+        if (entity.getUsageLimit() == null) {
+            nearCache.put(ticket, storedTokenValue, entity.getParameterValue(), entity.getTokenType(),
+                    entity.getExpiryTime());
+        }
+
+        log.debug("Token validated successfully for parameter '{}'", request.getParameter());
+
+        return ValidationResult.builder()
+                .valid(true)
+                .remainingUses(remainingUses)
+                .build();
+    }
+
+    private List<ValidationResult> doValidateAll(Collection<ValidateTokenRequest> requests,
+                                                 List<ValidateTokenRequest> acquired) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<ValidationResult> results = new ArrayList<>(requests.size());
+        List<Integer> candidateIndexes = new ArrayList<>(requests.size());
+        List<ValidateTokenRequest> candidates = new ArrayList<>(requests.size());
+        List<String> hashedTokens = new ArrayList<>(requests.size());
+        List<NearCacheTicket> tickets = new ArrayList<>(requests.size());
+        for (ValidateTokenRequest request : requests) {
+            if (!rateLimiter.tryAcquire(request.getParameter(), request.getTokenType())) {
+                results.add(rateLimitedResult());
+                continue;
+            }
+            acquired.add(request);
+            if (tokenSigner.isSigned(request.getToken())) {
+                results.add(validateSigned(request));
+                continue;
+            }
+            if (negativeLookupFilter.isDefinitelyAbsent(request.getToken())) {
+                results.add(notFoundResult());
+                continue;
+            }
+            ValidationResult cachedResult = validateCached(request);
+            if (cachedResult != null) {
+                results.add(cachedResult);
+                continue;
+            }
+            candidateIndexes.add(results.size());
+            results.add(null);
+            candidates.add(request);
+            String hashedToken = tokenHasher.hash(request.getToken());
+            hashedTokens.add(hashedToken);
+            tickets.add(nearCache.ticket(request.getToken(), hashedToken));
+        }
+
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        List<ValidationOutcome> outcomes = tokenDAO.validateAndIncrementAll(
+                candidates, hashedTokens, LocalDateTime.now());
+
+        for (int i = 0; i < outcomes.size(); i++) {
+            results.set(candidateIndexes.get(i), toValidationResult(outcomes.get(i), candidates.get(i),
+                    tickets.get(i)));
+        }
+        return results;
+    }
+
+    private boolean doInvalidate(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            throw new IllegalArgumentException("Token must not be null or blank");
+        }
+
+        if (negativeLookupFilter.isDefinitelyAbsent(token)) {
+            log.warn("Token not found for invalidation");
+            return false;
+        }
+
+        String storedValue = resolveStoredTokenValue(token);
+        if (storedValue == null) {
+            log.warn("Token not found for invalidation");
+            return false;
+        }
+
+        long updated = tokenDAO.invalidate(storedValue);
+        nearCache.invalidate(storedValue);
+        if (tokenSigner.isSigned(token)) {
+            SignedTokenClaims claims = tokenSigner.verify(token);
+            if (claims != null) {
+                revocationSet.add(storedValue, claims.getExpiryTime());
+            }
+        }
+        if (updated == 0) {
+            log.warn("Token could not be invalidated (not found or already invalidated)");
+            return false;
+        }
+
+        log.debug("Token invalidated successfully");
+        return true;
+    }
+
+    private void supersedeAndSave(List<TokenEntity> entities) {
+        Map<String, TokenEntity> latest = new HashMap<>();
+        for (TokenEntity entity : entities) {
+            TokenEntity previous = latest.put(
+                    ActiveTokenLocks.key(entity.getParameterValue(), entity.getTokenType()), entity);
+            if (previous != null) {
+                previous.setStatus(TokenStatus.INVALIDATED);
+            }
+        }
+
+        long superseded = tokenDAO.saveAllSuperseding(entities);
+        if (superseded > 0) {
+            for (TokenEntity entity : latest.values()) {
+                nearCache.invalidateParameter(entity.getParameterValue(), entity.getTokenType());
+            }
+        }
+        log.debug("Superseded {} active tokens", superseded);
+    }
+
+    private void checkValidateRequest(ValidateTokenRequest request) {
+        if (request.getParameter() == null || request.getParameter().trim().isEmpty()) {
+            throw new IllegalArgumentException("Parameter must not be null or blank");
+        }
+        if (request.getToken() == null || request.getToken().trim().isEmpty()) {
+            throw new IllegalArgumentException("Token must not be null or blank");
+        }
+    }
+
+    private PreparedToken prepareToken(TokenRequest request, LocalDateTime now) {
         if (request.getParameter() == null || request.getParameter().trim().isEmpty()) {
             throw new IllegalArgumentException("Parameter must not be null or blank");
         }
@@ -54,14 +448,33 @@ public class TokenServiceImpl implements TokenService {
                 ? request.getHashingMode()
                 : (properties.isHashingEnabled() ? HashingMode.SHA256 : HashingMode.NONE);
 
-        String rawToken = tokenGenerator.generate(properties.getTokenLength());
+        LocalDateTime expiryTime = now.plus(validity);
 
-        String storedValue = hashingMode == HashingMode.SHA256
-                ? tokenHasher.hash(rawToken)
-                : rawToken;
+        String rawToken;
+        String precomputedHash = null;
+        if (hashingMode == HashingMode.SIGNED) {
+            if (request.getUsageLimit() != null && !request.isUnlimitedUsage()) {
+                throw new IllegalArgumentException("Signed tokens cannot have a usage limit");
+            }
+            usageLimit = null;
+            expiryTime = expiryTime.truncatedTo(ChronoUnit.SECONDS);
+            rawToken = tokenSigner.sign(request.getParameter(), request.getTokenType(), expiryTime);
+        } else {
+            PooledToken pooled = tokenPool.take(properties.getTokenLength());
+            if (pooled != null) {
+                rawToken = pooled.getRawToken();
+                precomputedHash = pooled.getHashedToken();
+            } else {
+                rawToken = tokenGenerator.generate(properties.getTokenLength());
+            }
+        }
 
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime expiryTime = now.plus(validity);
+        String storedValue;
+        if (hashingMode == HashingMode.NONE) {
+            storedValue = rawToken;
+        } else {
+            storedValue = precomputedHash != null ? precomputedHash : tokenHasher.hash(rawToken);
+        }
 
         TokenEntity entity = new TokenEntity();
         entity.setTokenValue(storedValue);
@@ -74,131 +487,231 @@ public class TokenServiceImpl implements TokenService {
         entity.setHashingMode(hashingMode.name());
         entity.setMetadata(request.getMetadata());
 
-        tokenDAO.save(entity);
-
-        log.debug("Token generated for parameter '{}', type '{}', expires at {}",
-                request.getParameter(), request.getTokenType(), expiryTime);
-
-        return GeneratedToken.builder()
+        GeneratedToken generatedToken = GeneratedToken.builder()
                 .token(rawToken)
                 .expiryTime(expiryTime)
                 .usageLimit(usageLimit)
                 .remainingUses(usageLimit)
                 .build();
+
+        return new PreparedToken(entity, generatedToken);
     }
 
-    @Override
-    @Transactional
-    public ValidationResult validate(ValidateTokenRequest request) {
-        if (request.getParameter() == null || request.getParameter().trim().isEmpty()) {
-            throw new IllegalArgumentException("Parameter must not be null or blank");
+    private ValidationResult validateInSingleStatement(ValidateTokenRequest request) {
+        String hashedToken = tokenHasher.hash(request.getToken());
+        NearCacheTicket ticket = nearCache.ticket(request.getToken(), hashedToken);
+        ValidationOutcome outcome = tokenDAO.validateAndIncrement(
+                request.getToken(), hashedToken, request.getParameter(), request.getTokenType(), LocalDateTime.now());
+
+        return toValidationResult(outcome, request, ticket);
+    }
+
+    private ValidationResult toValidationResult(ValidationOutcome outcome, ValidateTokenRequest request,
+                                                NearCacheTicket ticket) {
+        if (outcome.getFailureReason() == ValidationFailureReason.NOT_FOUND) {
+            negativeLookupFilter.recordFalsePositive();
         }
-        if (request.getToken() == null || request.getToken().trim().isEmpty()) {
-            throw new IllegalArgumentException("Token must not be null or blank");
+        if (!outcome.isValid()) {
+            log.debug("Token validation failed: {}", outcome.getFailureReason());
+            return ValidationResult.builder()
+                    .valid(false)
+                    .failureReason(outcome.getFailureReason())
+                    .build();
         }
 
-        TokenEntity entity = tokenDAO.findByTokenValue(request.getToken());
-        if (entity == null) {
-            entity = tokenDAO.findByTokenValue(tokenHasher.hash(request.getToken()));
+        if (outcome.getUsageLimit() == null) {
+            nearCache.put(ticket, outcome.getStoredTokenValue(), outcome.getParameterValue(),
+                    outcome.getTokenType(), outcome.getExpiryTime());
         }
 
-        if (entity == null) {
-            log.debug("Token not found for validation");
+        log.debug("Token validated successfully for parameter '{}'", request.getParameter());
+
+        return ValidationResult.builder()
+                .valid(true)
+                .remainingUses(outcome.getRemainingUses())
+                .build();
+    }
+
+    private ValidationResult validateSigned(ValidateTokenRequest request) {
+        SignedTokenClaims claims = tokenSigner.verify(request.getToken());
+        if (claims == null) {
+            log.debug("Signed token failed verification");
+            return notFoundResult();
+        }
+
+        ValidationFailureReason reason = classifySigned(claims, request);
+        if (reason != null) {
+            log.debug("Signed token validation failed: {}", reason);
             return ValidationResult.builder()
                     .valid(false)
-                    .failureReason(ValidationFailureReason.NOT_FOUND)
+                    .failureReason(reason)
                     .build();
         }
 
-        String storedTokenValue = entity.getTokenValue();
+        log.debug("Signed token validated for parameter '{}'", request.getParameter());
+        return ValidationResult.builder()
+                .valid(true)
+                .build();
+    }
+
+    private long doInvalidateAll(String parameter, String tokenType) {
+        if (parameter == null && tokenType == null) {
+            throw new IllegalArgumentException("Parameter or token type must be provided");
+        }
+        if (parameter != null && parameter.trim().isEmpty()) {
+            throw new IllegalArgumentException("Parameter must not be blank");
+        }
+        if (tokenType != null && tokenType.trim().isEmpty()) {
+            throw new IllegalArgumentException("Token type must not be blank");
+        }
+
+        int batchSize = Math.max(1, properties.getInvalidateAllBatchSize());
         LocalDateTime now = LocalDateTime.now();
+        long total = 0;
+        long invalidated;
+        do {
+            invalidated = tokenDAO.invalidateAllChunk(parameter, tokenType, now, batchSize);
+            total += invalidated;
+        } while (invalidated > 0);
+
+        nearCache.invalidateMatching(parameter, tokenType);
+        if (total > 0 && revocationSet.isReady()) {
+            revocationSet.sync();
+        }
 
-        long updatedRows = tokenDAO.atomicValidateAndIncrement(
-                storedTokenValue, request.getParameter(), request.getTokenType(), now);
+        log.info("Invalidated {} tokens in chunks of {}", total, batchSize);
+        return total;
+    }
 
-        if (updatedRows == 0) {
-            return buildFailureResult(entity, request, now);
+    private ValidationFailureReason classifySigned(SignedTokenClaims claims, ValidateTokenRequest request) {
+        if (isRevoked(tokenHasher.hash(request.getToken()))) {
+            return ValidationFailureReason.INVALIDATED;
+        }
+        if (!claims.getExpiryTime().isAfter(LocalDateTime.now())) {
+            return ValidationFailureReason.EXPIRED;
+        }
+        if (!tokenSigner.matchesParameter(claims, request.getParameter())) {
+            return ValidationFailureReason.PARAMETER_MISMATCH;
+        }
+        if (request.getTokenType() != null && !request.getTokenType().equals(claims.getTokenType())) {
+            return ValidationFailureReason.TOKEN_TYPE_MISMATCH;
         }
+        return null;
+    }
 
-        TokenEntity updated = tokenDAO.findByTokenValueAndParameter(
-                storedTokenValue, request.getParameter());
+    private boolean isRevoked(String storedTokenValue) {
+        if (revocationSet.isReady()) {
+            return revocationSet.contains(storedTokenValue);
+        }
 
-        Integer remainingUses = null;
-        if (updated != null && updated.getUsageLimit() != null) {
-            remainingUses = updated.getUsageLimit() - updated.getUsageCount();
+        TokenEntity entity = tokenDAO.findByTokenValue(storedTokenValue);
+        return entity != null && entity.getStatus() == TokenStatus.INVALIDATED;
+    }
+
+    private ValidationResult validateWriteBehind(TokenEntity entity, ValidateTokenRequest request,
+                                                 LocalDateTime now, NearCacheTicket ticket) {
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                null, 0, request.getParameter(), request.getTokenType(), now);
+        if (reason != null) {
+            return buildFailureResult(entity, request, now, false);
         }
 
-        log.debug("Token validated successfully for parameter '{}'", request.getParameter());
+        usageBuffer.record(entity.getTokenValue(), now);
+        nearCache.put(ticket, entity.getTokenValue(), entity.getParameterValue(), entity.getTokenType(),
+                entity.getExpiryTime());
+
+        log.debug("Token validated with deferred usage accounting for parameter '{}'", request.getParameter());
 
         return ValidationResult.builder()
                 .valid(true)
-                .remainingUses(remainingUses)
                 .build();
     }
 
-    @Override
-    @Transactional
-    public void invalidate(String token) {
-        if (token == null || token.trim().isEmpty()) {
-            throw new IllegalArgumentException("Token must not be null or blank");
+    private ValidationResult validateCached(ValidateTokenRequest request) {
+        CachedToken cached = nearCache.get(request.getToken());
+        if (cached == null) {
+            return null;
         }
 
-        String storedValue = resolveStoredTokenValue(token);
-        if (storedValue == null) {
-            log.warn("Token not found for invalidation");
-            return;
+        ValidationFailureReason reason = ValidationFailureClassifier.classify(
+                TokenStatus.ACTIVE, cached.getExpiryTime(), cached.getParameterValue(), cached.getTokenType(),
+                null, 0, request.getParameter(), request.getTokenType(), LocalDateTime.now());
+        if (reason == ValidationFailureReason.EXPIRED) {
+            nearCache.evict(cached.getStoredTokenValue());
+            return null;
         }
 
-        long updated = tokenDAO.invalidate(storedValue);
-        if (updated == 0) {
-            log.warn("Token could not be invalidated (not found or already invalidated)");
-        } else {
-            log.debug("Token invalidated successfully");
+        if (reason != null) {
+            log.debug("Token validation failed from near cache: {}", reason);
+            return ValidationResult.builder()
+                    .valid(false)
+                    .failureReason(reason)
+                    .build();
         }
-    }
 
-    @Override
-    @Transactional
-    public long cleanupExpired() {
-        long deletedCount = tokenDAO.deleteExpired(LocalDateTime.now());
-        log.info("Cleaned up {} expired tokens", deletedCount);
-        return deletedCount;
+        if (usageBuffer.isEnabled()) {
+            usageBuffer.record(cached.getStoredTokenValue(), LocalDateTime.now());
+        }
+
+        log.debug("Token validated from near cache for parameter '{}'", request.getParameter());
+        return ValidationResult.builder()
+                .valid(true)
+                .build();
     }
 
-    private String resolveStoredTokenValue(String rawToken) {
-        TokenEntity entity = tokenDAO.findByTokenValue(rawToken);
-        if (entity != null) {
-            return entity.getTokenValue();
+    /**
+     * Returns the unit spent by an attempt that succeeded or never reached a verdict (result is {@code null}
+     * when validation threw), so only genuine failures count against the caller.
+     */
+    private void releaseRateLimit(ValidateTokenRequest request, ValidationResult result) {
+        if (result == null || result.isValid()) {
+            rateLimiter.release(request.getParameter(), request.getTokenType());
         }
+    }
+
+    private ValidationResult rateLimitedResult() {
+        return ValidationResult.builder()
+                .valid(false)
+                .failureReason(ValidationFailureReason.RATE_LIMITED)
+                .build();
+    }
+
+    private ValidationResult notFoundResult() {
+        return ValidationResult.builder()
+                .valid(false)
+                .failureReason(ValidationFailureReason.NOT_FOUND)
+                .build();
+    }
 
-        entity = tokenDAO.findByTokenValue(tokenHasher.hash(rawToken));
-        if (entity != null) {
-            return entity.getTokenValue();
+    private String resolveStoredTokenValue(String rawToken) {
+        ReplicaLookup replicaLookup = readReplica.isEnabled() ? readReplica.findByRawToken(rawToken) : null;
+        if (replicaLookup != null && replicaLookup.isAuthoritative()) {
+            return replicaLookup.getEntity() != null ? replicaLookup.getEntity().getTokenValue() : null;
         }
+        TokenEntity entity = findByRawToken(rawToken);
+        return entity != null ? entity.getTokenValue() : null;
+    }
 
-        return null;
+    private TokenEntity findByRawToken(String rawToken) {
+        return tokenDAO.findByRawTokenValue(rawToken, tokenHasher.hash(rawToken));
     }
 
     private ValidationResult buildFailureResult(TokenEntity entity, ValidateTokenRequest request,
-                                                 LocalDateTime now) {
-        ValidationFailureReason reason;
-
-        if (entity.getStatus() == TokenStatus.USED) {
-            reason = ValidationFailureReason.USAGE_LIMIT_EXCEEDED;
-        } else if (entity.getStatus() == TokenStatus.INVALIDATED) {
-            reason = ValidationFailureReason.INVALIDATED;
-        } else if (!entity.getExpiryTime().isAfter(now)) {
-            reason = ValidationFailureReason.EXPIRED;
-        } else if (!entity.getParameterValue().equals(request.getParameter())) {
-            reason = ValidationFailureReason.PARAMETER_MISMATCH;
-        } else if (request.getTokenType() != null
-                && !request.getTokenType().equals(entity.getTokenType())) {
-            reason = ValidationFailureReason.TOKEN_TYPE_MISMATCH;
-        } else if (entity.getUsageLimit() != null
-                && entity.getUsageCount() >= entity.getUsageLimit()) {
-            reason = ValidationFailureReason.USAGE_LIMIT_EXCEEDED;
-        } else {
-            reason = ValidationFailureReason.EXPIRED;
+                                                 LocalDateTime now, boolean replicaRead) {
+        ValidationFailureReason reason = classifyFailure(entity, request, now);
+        if (reason == null && replicaRead) {
+            readReplica.recordStaleRead();
+            TokenEntity current = tokenDAO.findByTokenValue(entity.getTokenValue());
+            if (current != null) {
+                entity = current;
+                reason = classifyFailure(current, request, now);
+            }
+        }
+        if (reason == null) {
+            reason = entity.getUsageLimit() != null
+                    ? ValidationFailureReason.USAGE_LIMIT_EXCEEDED
+                    : ValidationFailureReason.INVALIDATED;
         }
 
         log.debug("Token validation failed: {}", reason);
@@ -208,4 +721,19 @@ public class TokenServiceImpl implements TokenService {
                 .failureReason(reason)
                 .build();
     }
+
+    private ValidationFailureReason classifyFailure(TokenEntity entity, ValidateTokenRequest request,
+                                                    LocalDateTime now) {
+        return ValidationFailureClassifier.classify(
+                entity.getStatus(), entity.getExpiryTime(), entity.getParameterValue(), entity.getTokenType(),
+                entity.getUsageLimit(), entity.getUsageCount(), request.getParameter(), request.getTokenType(), now);
+    }
+
+    @RequiredArgsConstructor
+    private static final class PreparedToken {
+
+        private final TokenEntity entity;
+
+        private final GeneratedToken generatedToken;
+    }
 }
@@ -0,0 +1,21 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class CachedToken {
+
+    private final String storedTokenValue;
+
+    private final String parameterValue;
+
+    private final String tokenType;
+
+    private final LocalDateTime expiryTime;
+
+    private final long evictAtMillis;
+}
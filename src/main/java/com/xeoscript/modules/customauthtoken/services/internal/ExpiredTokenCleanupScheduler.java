@@ -0,0 +1,209 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ExpiredTokenCleanupScheduler {
+
+    private static final String LOCK_NAME = "expired-token-cleanup";
+
+    private static final long LOCK_GRACE_SECONDS = 30;
+
+    private final TokenDAO tokenDAO;
+    private final TokenProperties properties;
+
+    private final String owner = resolveOwner();
+
+    private final LongAdder passes = new LongAdder();
+    private final LongAdder skippedPasses = new LongAdder();
+    private final LongAdder deletedRows = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+
+    private volatile long backlog;
+    private volatile long lastPassDeleted;
+    private volatile long lastPassMillis;
+    private volatile double lastPassRowsPerSecond;
+    private volatile boolean lastPassTruncated;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isCleanupEnabled()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervalMinutes = Math.max(1, properties.getCleanupIntervalMinutes());
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean runOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        long maxRuntimeMillis = Math.max(1, properties.getCleanupMaxRuntimeSeconds()) * 1000L;
+        LocalDateTime lockedUntil = now.plusSeconds(maxRuntimeMillis / 1000 + LOCK_GRACE_SECONDS);
+
+        if (!tryAcquireLock(now, lockedUntil)) {
+            skippedPasses.increment();
+            log.debug("Expired token cleanup skipped, lock held by another node");
+            return false;
+        }
+
+        try {
+            backlog = tokenDAO.countExpired(now);
+            purge(now, System.currentTimeMillis() + maxRuntimeMillis, Math.max(0, properties.getCleanupPauseMs()));
+            passes.increment();
+            return true;
+        } finally {
+            tokenDAO.releaseLock(LOCK_NAME, owner);
+        }
+    }
+
+    /**
+     * Deletes every token that expired before {@code before}, one keyset chunk per transaction, without the
+     * lease, runtime limit or pauses of a scheduled pass. Backs {@code TokenService.cleanupExpired}.
+     */
+    public long purgeAll(LocalDateTime before) {
+        return purge(before, Long.MAX_VALUE, 0);
+    }
+
+    public long getPassCount() {
+        return passes.sum();
+    }
+
+    public long getSkippedPassCount() {
+        return skippedPasses.sum();
+    }
+
+    public long getDeletedRowCount() {
+        return deletedRows.sum();
+    }
+
+    public long getChunkCount() {
+        return chunks.sum();
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    public long getLastPassDeleted() {
+        return lastPassDeleted;
+    }
+
+    public long getLastPassMillis() {
+        return lastPassMillis;
+    }
+
+    public double getLastPassRowsPerSecond() {
+        return lastPassRowsPerSecond;
+    }
+
+    public boolean isLastPassTruncated() {
+        return lastPassTruncated;
+    }
+
+    private long purge(LocalDateTime before, long deadline, long pauseMillis) {
+        int batchSize = Math.max(1, properties.getCleanupBatchSize());
+        long started = System.currentTimeMillis();
+
+        long deleted = 0;
+        boolean truncated = false;
+        LocalDateTime afterExpiryTime = null;
+        Long afterId = null;
+        try {
+            while (true) {
+                ExpiredChunk chunk = tokenDAO.deleteExpiredChunk(before, afterExpiryTime, afterId, batchSize);
+                chunks.increment();
+                deleted += chunk.getDeletedCount();
+                deletedRows.add(chunk.getDeletedCount());
+                backlog = Math.max(0, backlog - chunk.getDeletedCount());
+
+                if (!chunk.isHasMore()) {
+                    break;
+                }
+                if (System.currentTimeMillis() + pauseMillis >= deadline) {
+                    truncated = true;
+                    break;
+                }
+
+                afterExpiryTime = chunk.getLastExpiryTime();
+                afterId = chunk.getLastId();
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            truncated = true;
+        } finally {
+            long elapsed = Math.max(1, System.currentTimeMillis() - started);
+            lastPassDeleted = deleted;
+            lastPassMillis = elapsed;
+            lastPassRowsPerSecond = deleted * 1000.0 / elapsed;
+            lastPassTruncated = truncated;
+        }
+
+        log.info("Expired token cleanup deleted {} rows in {} ms ({} rows/s, backlog {}{})",
+                deleted, lastPassMillis, Math.round(lastPassRowsPerSecond), backlog,
+                truncated ? ", stopped at runtime limit" : "");
+        return deleted;
+    }
+
+    private boolean tryAcquireLock(LocalDateTime now, LocalDateTime lockedUntil) {
+        try {
+            return tokenDAO.tryAcquireLock(LOCK_NAME, owner, now, lockedUntil);
+        } catch (RuntimeException e) {
+            log.debug("Expired token cleanup lock acquisition failed", e);
+            return false;
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (RuntimeException e) {
+            log.warn("Expired token cleanup failed", e);
+        }
+    }
+
+    private static String resolveOwner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + ":" + UUID.randomUUID();
+    }
+}
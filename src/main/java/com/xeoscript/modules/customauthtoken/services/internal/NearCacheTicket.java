@@ -0,0 +1,15 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class NearCacheTicket {
+
+    private final String rawToken;
+
+    private final String hashedToken;
+
+    private final long generation;
+}
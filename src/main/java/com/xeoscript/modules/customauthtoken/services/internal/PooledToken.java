@@ -0,0 +1,13 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PooledToken {
+
+    private final String rawToken;
+
+    private final String hashedToken;
+}
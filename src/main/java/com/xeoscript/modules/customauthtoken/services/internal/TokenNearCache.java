@@ -0,0 +1,300 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.services.TokenInvalidationHook;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenNearCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final TokenHasher tokenHasher;
+    private final TokenProperties properties;
+    private final ObjectProvider<TokenInvalidationHook> invalidationHooks;
+
+    private final Map<String, CachedToken> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong bulkGeneration = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder discardedPuts = new LongAdder();
+
+    public boolean isEnabled() {
+        return properties.isNearCacheEnabled();
+    }
+
+    public CachedToken get(String rawToken) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        CachedToken cached = lookup(rawToken, nowMillis);
+        if (cached == null) {
+            cached = lookup(tokenHasher.hash(rawToken), nowMillis);
+        }
+
+        if (cached == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * Records the invalidation generation of a token before its row is read, so that a later {@link #put} can tell
+     * whether an invalidation raced with the read. Returns {@code null} when the cache is disabled.
+     */
+    public NearCacheTicket ticket(String rawToken) {
+        return isEnabled() ? ticket(rawToken, tokenHasher.hash(rawToken)) : null;
+    }
+
+    public NearCacheTicket ticket(String rawToken, String hashedToken) {
+        return isEnabled() ? new NearCacheTicket(rawToken, hashedToken, generation(rawToken, hashedToken)) : null;
+    }
+
+    /**
+     * Caches a validated token once the surrounding transaction commits, unless the token, or a bulk invalidation,
+     * moved its generation on since the ticket was taken. The generation is checked again after the entry is
+     * stored, because invalidations advance it before evicting.
+     */
+    public void put(NearCacheTicket ticket, String storedTokenValue, String parameterValue, String tokenType,
+                    LocalDateTime expiryTime) {
+        if (ticket == null || !isEnabled()) {
+            return;
+        }
+
+        afterCommit(() -> {
+            if (generation(ticket.getRawToken(), ticket.getHashedToken()) != ticket.getGeneration()) {
+                discardedPuts.increment();
+                return;
+            }
+            store(storedTokenValue, parameterValue, tokenType, expiryTime);
+            if (generation(ticket.getRawToken(), ticket.getHashedToken()) != ticket.getGeneration()) {
+                evict(storedTokenValue);
+                discardedPuts.increment();
+            }
+        });
+    }
+
+    public void evict(String storedTokenValue) {
+        if (entries.remove(storedTokenValue) != null) {
+            evictions.increment();
+        }
+    }
+
+    public void invalidate(String storedTokenValue) {
+        advance(storedTokenValue);
+        evict(storedTokenValue);
+        afterCommit(() -> {
+            advance(storedTokenValue);
+            evict(storedTokenValue);
+            notifyHooks(hook -> hook.onInvalidated(storedTokenValue));
+        });
+    }
+
+    /**
+     * Applies an invalidation that another node reported through its {@link TokenInvalidationHook}. The entry is
+     * evicted and its generation advanced straight away, since the other node has already committed, and the
+     * hooks are not told, so that a hook relaying invalidations between nodes does not echo them back.
+     */
+    public void evictRemote(String storedTokenValue) {
+        advance(storedTokenValue);
+        evict(storedTokenValue);
+    }
+
+    /**
+     * The bulk counterpart of {@link #evictRemote}, for a relayed
+     * {@link TokenInvalidationHook#onInvalidatedMatching}, where {@code null} matches any value.
+     */
+    public int evictRemoteMatching(String parameterValue, String tokenType) {
+        bulkGeneration.incrementAndGet();
+        return evictMatching(parameterValue, tokenType);
+    }
+
+    /**
+     * Evicts the local entries of a superseded parameter and token type, where a {@code null} token type only
+     * matches untyped tokens, and tells the hooks once the transaction commits whether or not anything was cached
+     * here.
+     */
+    public int invalidateParameter(String parameterValue, String tokenType) {
+        bulkGeneration.incrementAndGet();
+        int evicted = evictParameter(parameterValue, tokenType);
+        afterCommit(() -> {
+            bulkGeneration.incrementAndGet();
+            evictParameter(parameterValue, tokenType);
+            notifyHooks(hook -> hook.onInvalidatedMatching(parameterValue, tokenType));
+        });
+        return evicted;
+    }
+
+    /**
+     * Evicts the local entries matching a bulk invalidation, where {@code null} matches any value, and tells the
+     * hooks once the transaction commits whether or not anything was cached here.
+     */
+    public int invalidateMatching(String parameterValue, String tokenType) {
+        bulkGeneration.incrementAndGet();
+        int evicted = evictMatching(parameterValue, tokenType);
+        afterCommit(() -> {
+            bulkGeneration.incrementAndGet();
+            evictMatching(parameterValue, tokenType);
+            notifyHooks(hook -> hook.onInvalidatedMatching(parameterValue, tokenType));
+        });
+        return evicted;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getDiscardedPutCount() {
+        return discardedPuts.sum();
+    }
+
+    private void store(String storedTokenValue, String parameterValue, String tokenType, LocalDateTime expiryTime) {
+        long nowMillis = System.currentTimeMillis();
+        long expiryMillis = expiryTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long evictAtMillis = Math.min(expiryMillis, nowMillis + properties.getNearCacheTtlSeconds() * 1000L);
+        if (evictAtMillis <= nowMillis) {
+            return;
+        }
+
+        if (entries.size() >= properties.getNearCacheMaxEntries()) {
+            shrink(nowMillis);
+        }
+        entries.put(storedTokenValue, new CachedToken(
+                storedTokenValue, parameterValue, tokenType, expiryTime, evictAtMillis));
+    }
+
+    private long generation(String rawToken, String hashedToken) {
+        return bulkGeneration.get() + generations.get(stripe(rawToken)) + generations.get(stripe(hashedToken));
+    }
+
+    private void advance(String storedTokenValue) {
+        generations.incrementAndGet(stripe(storedTokenValue));
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private int evictParameter(String parameterValue, String tokenType) {
+        int evicted = 0;
+        for (CachedToken cached : entries.values()) {
+            if (cached.getParameterValue().equals(parameterValue)
+                    && Objects.equals(cached.getTokenType(), tokenType)
+                    && entries.remove(cached.getStoredTokenValue(), cached)) {
+                evictions.increment();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private int evictMatching(String parameterValue, String tokenType) {
+        int evicted = 0;
+        for (CachedToken cached : entries.values()) {
+            if ((parameterValue == null || cached.getParameterValue().equals(parameterValue))
+                    && (tokenType == null || tokenType.equals(cached.getTokenType()))
+                    && entries.remove(cached.getStoredTokenValue(), cached)) {
+                evictions.increment();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private void notifyHooks(Consumer<TokenInvalidationHook> notification) {
+        invalidationHooks.orderedStream().forEach(hook -> {
+            try {
+                notification.accept(hook);
+            } catch (RuntimeException e) {
+                log.warn("Token invalidation hook {} failed", hook.getClass().getName(), e);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private CachedToken lookup(String key, long nowMillis) {
+        CachedToken cached = entries.get(key);
+        if (cached != null && cached.getEvictAtMillis() <= nowMillis) {
+            entries.remove(key, cached);
+            evictions.increment();
+            return null;
+        }
+        return cached;
+    }
+
+    private void shrink(long nowMillis) {
+        int target = Math.max(0, properties.getNearCacheMaxEntries() - properties.getNearCacheMaxEntries() / 10 - 1);
+
+        Iterator<CachedToken> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getEvictAtMillis() <= nowMillis) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+
+        iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.util.TokenBloomFilter;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenNegativeLookupFilter {
+
+    private final TokenDAO tokenDAO;
+    private final TokenHasher tokenHasher;
+    private final TokenProperties properties;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    private volatile TokenBloomFilter current;
+    private volatile TokenBloomFilter building;
+    private volatile long lastRebuildMillis;
+    private volatile boolean enabled;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isNegativeFilterEnabled()) {
+            return;
+        }
+        if (!"memory".equalsIgnoreCase(properties.getStore().trim())) {
+            if (!properties.isNegativeFilterTrustMisses()) {
+                log.warn("Negative lookup filter disabled: it only sees tokens written through this node, so a miss"
+                        + " is only authoritative for the in-memory store, not '{}'. Set negative-filter-trust-misses"
+                        + " when this node is the only writer", properties.getStore());
+                return;
+            }
+            log.info("Negative lookup filter trusts misses for store '{}': tokens written by any other node will be"
+                    + " rejected until the next rebuild", properties.getStore());
+        }
+
+        enabled = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-negative-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long rebuildMinutes = Math.max(1, properties.getNegativeFilterRebuildIntervalMinutes());
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isDefinitelyAbsent(String rawToken) {
+        TokenBloomFilter filter = current;
+        if (filter == null) {
+            return false;
+        }
+
+        lookups.increment();
+        if (filter.mightContain(rawToken) || filter.mightContain(tokenHasher.hash(rawToken))) {
+            return false;
+        }
+
+        definiteMisses.increment();
+        return true;
+    }
+
+    public void put(String storedTokenValue) {
+        if (!enabled) {
+            return;
+        }
+
+        TokenBloomFilter filter = current;
+        if (filter != null) {
+            filter.put(storedTokenValue);
+        }
+        TokenBloomFilter next = building;
+        if (next != null) {
+            next.put(storedTokenValue);
+        }
+        insertions.increment();
+    }
+
+    public void recordFalsePositive() {
+        if (current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+
+        TokenBloomFilter next = new TokenBloomFilter(
+                properties.getNegativeFilterExpectedInsertions(),
+                properties.getNegativeFilterFalsePositiveRate(),
+                properties.getNegativeFilterMaxMemoryMb() * 8L * 1024 * 1024);
+        building = next;
+        try {
+            long loaded = tokenDAO.streamTokenValues(null, next::put);
+            current = next;
+            lastRebuildMillis = System.currentTimeMillis() - started;
+            rebuilds.increment();
+            log.info("Negative lookup filter rebuilt with {} tokens in {} ms ({} bytes, {} hash functions)",
+                    loaded, lastRebuildMillis, next.getMemoryBytes(), next.getHashFunctions());
+        } finally {
+            building = null;
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public long getDefiniteMissCount() {
+        return definiteMisses.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    public long getInsertionCount() {
+        return insertions.sum();
+    }
+
+    public long getRebuildCount() {
+        return rebuilds.sum();
+    }
+
+    public long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    public long getMemoryBytes() {
+        TokenBloomFilter filter = current;
+        return filter != null ? filter.getMemoryBytes() : 0;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        TokenBloomFilter filter = current;
+        return filter != null ? filter.getExpectedFalsePositiveRate() : 0;
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Negative lookup filter rebuild failed", e);
+        }
+    }
+}
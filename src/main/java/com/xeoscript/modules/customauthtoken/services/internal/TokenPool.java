@@ -0,0 +1,158 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.util.HexCodec;
+import com.xeoscript.modules.customauthtoken.util.MpmcRingBuffer;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenPool {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final TokenHasher tokenHasher;
+    private final TokenProperties properties;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LongAdder refilledTokens = new LongAdder();
+
+    private volatile MpmcRingBuffer<PooledToken> buffer;
+    private volatile Thread filler;
+    private volatile long lastRefillMillis;
+
+    private int tokenLength;
+    private int lowWatermark;
+    private int highWatermark;
+    private boolean prehash;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isTokenPoolEnabled()) {
+            return;
+        }
+
+        MpmcRingBuffer<PooledToken> ring = new MpmcRingBuffer<>(Math.max(2, properties.getTokenPoolSize()));
+        tokenLength = properties.getTokenLength();
+        highWatermark = Math.max(1, Math.min(ring.capacity(), properties.getTokenPoolHighWatermark()));
+        lowWatermark = Math.max(0, Math.min(highWatermark - 1, properties.getTokenPoolLowWatermark()));
+        prehash = properties.isTokenPoolPrehash();
+        buffer = ring;
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-pool-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::refillLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public PooledToken take(int requestedLength) {
+        MpmcRingBuffer<PooledToken> ring = buffer;
+        if (ring == null || requestedLength != tokenLength) {
+            return null;
+        }
+
+        PooledToken token = ring.poll();
+        if (token == null) {
+            misses.increment();
+            LockSupport.unpark(filler);
+            return null;
+        }
+
+        hits.increment();
+        if (ring.size() <= lowWatermark) {
+            LockSupport.unpark(filler);
+        }
+        return token;
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    public int size() {
+        MpmcRingBuffer<PooledToken> ring = buffer;
+        return ring != null ? ring.size() : 0;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRefillCount() {
+        return refills.sum();
+    }
+
+    public long getRefilledTokenCount() {
+        return refilledTokens.sum();
+    }
+
+    public long getLastRefillMillis() {
+        return lastRefillMillis;
+    }
+
+    private void refillLoop() {
+        filler = Thread.currentThread();
+        SecureRandom random = new SecureRandom();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (buffer.size() <= lowWatermark) {
+                    refill(random);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Token pool refill failed", e);
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void refill(SecureRandom random) {
+        long started = System.currentTimeMillis();
+        MpmcRingBuffer<PooledToken> ring = buffer;
+
+        int added = 0;
+        byte[] bytes = new byte[tokenLength];
+        while (ring.size() < highWatermark && !Thread.currentThread().isInterrupted()) {
+            random.nextBytes(bytes);
+            String rawToken = HexCodec.encode(bytes);
+            if (!ring.offer(new PooledToken(rawToken, prehash ? tokenHasher.hash(rawToken) : null))) {
+                break;
+            }
+            added++;
+        }
+
+        lastRefillMillis = System.currentTimeMillis() - started;
+        refills.increment();
+        refilledTokens.add(added);
+        log.debug("Token pool refilled with {} tokens in {} ms", added, lastRefillMillis);
+    }
+}
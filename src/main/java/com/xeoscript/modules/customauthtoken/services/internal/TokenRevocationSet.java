@@ -0,0 +1,110 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.util.TokenSigner;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TokenRevocationSet {
+
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+
+    private final TokenDAO tokenDAO;
+    private final TokenSigner tokenSigner;
+    private final TokenProperties properties;
+
+    private final Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder loaded = new LongAdder();
+
+    private volatile LocalDateTime lastSync;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!tokenSigner.isEnabled()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long syncSeconds = Math.max(1, properties.getRevocationSyncIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(this::syncQuietly, 0, syncSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isReady() {
+        return lastSync != null;
+    }
+
+    public boolean contains(String storedTokenValue) {
+        return revoked.containsKey(storedTokenValue);
+    }
+
+    public void add(String storedTokenValue, LocalDateTime expiryTime) {
+        revoked.put(storedTokenValue, expiryTime);
+    }
+
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime syncPoint = now.minusSeconds(SYNC_OVERLAP_SECONDS);
+
+        long count = tokenDAO.streamInvalidatedTokens(HashingMode.SIGNED.name(), lastSync, now, revoked::put);
+        revoked.values().removeIf(expiryTime -> expiryTime.isBefore(now));
+
+        if (lastSync == null) {
+            log.info("Revocation set loaded with {} signed tokens", count);
+        }
+        lastSync = syncPoint;
+        loaded.add(count);
+        syncs.increment();
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+    public long getLoadedCount() {
+        return loaded.sum();
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Revocation set sync failed", e);
+        }
+    }
+}
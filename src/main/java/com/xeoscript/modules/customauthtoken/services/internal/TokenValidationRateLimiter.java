@@ -0,0 +1,176 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@RequiredArgsConstructor
+public class TokenValidationRateLimiter {
+
+    private static final int EVICTION_SCAN = 64;
+
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final TokenProperties properties;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final Object evictionLock = new Object();
+
+    private Iterator<Map.Entry<String, AtomicLong>> evictionHand;
+
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder saturatedRejections = new LongAdder();
+
+    public boolean isEnabled() {
+        return properties.isRateLimitEnabled();
+    }
+
+    public boolean tryAcquire(String parameter, String tokenType) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        String key = key(parameter, tokenType);
+        long nowNanos = System.nanoTime();
+        long intervalNanos = intervalNanos();
+        long burstNanos = (burst() - 1) * intervalNanos;
+        while (true) {
+            AtomicLong drainedAt = bucket(key, nowNanos);
+            if (drainedAt == null) {
+                saturatedRejections.increment();
+                rejections.increment();
+                return false;
+            }
+
+            long current = drainedAt.get();
+            if (current == EVICTED) {
+                buckets.remove(key, drainedAt);
+                continue;
+            }
+            if (current - nowNanos > burstNanos) {
+                rejections.increment();
+                return false;
+            }
+            if (drainedAt.compareAndSet(current, Math.max(current, nowNanos) + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(String parameter, String tokenType) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        AtomicLong drainedAt = buckets.get(key(parameter, tokenType));
+        if (drainedAt == null) {
+            return;
+        }
+        long intervalNanos = intervalNanos();
+        long current;
+        do {
+            current = drainedAt.get();
+            if (current == EVICTED) {
+                return;
+            }
+        } while (!drainedAt.compareAndSet(current, current - intervalNanos));
+    }
+
+    public void reset(String parameter, String tokenType) {
+        buckets.remove(key(parameter, tokenType));
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getSaturatedRejectionCount() {
+        return saturatedRejections.sum();
+    }
+
+    private int burst() {
+        return Math.max(1, properties.getRateLimitMaxFailures());
+    }
+
+    private long intervalNanos() {
+        return Math.max(1, TimeUnit.SECONDS.toNanos(Math.max(1, properties.getRateLimitWindowSeconds())) / burst());
+    }
+
+    /**
+     * Existing keys are a plain map lookup. A new key is only admitted while the map is below rate-limit-max-keys
+     * or once room has been made, and returns {@code null} otherwise, which rejects the attempt: admitting it
+     * untracked would let an attacker who filled the map with throttled keys validate without any limit.
+     */
+    private AtomicLong bucket(String key, long nowNanos) {
+        AtomicLong drainedAt = buckets.get(key);
+        if (drainedAt != null) {
+            return drainedAt;
+        }
+
+        if (buckets.size() >= Math.max(1, properties.getRateLimitMaxKeys()) && !evictDrained(nowNanos)) {
+            return null;
+        }
+        AtomicLong created = new AtomicLong(nowNanos);
+        drainedAt = buckets.putIfAbsent(key, created);
+        return drainedAt != null ? drainedAt : created;
+    }
+
+    /**
+     * Advances a clock hand over the map, evicting every fully drained bucket it passes. Such a bucket has its
+     * whole burst back and is indistinguishable from a new one, so evicting it gives no key more attempts; a
+     * bucket that is throttled or part spent is never evicted, whatever its age, so cycling through more keys
+     * than the map holds cannot reset a limit. The swap to {@link #EVICTED} tells a caller still holding the
+     * bucket to look it up again.
+     */
+    private boolean evictDrained(long nowNanos) {
+        synchronized (evictionLock) {
+            boolean evicted = false;
+            for (int scanned = 0; scanned < EVICTION_SCAN; scanned++) {
+                if (evictionHand == null || !evictionHand.hasNext()) {
+                    evictionHand = buckets.entrySet().iterator();
+                    if (!evictionHand.hasNext()) {
+                        return true;
+                    }
+                }
+
+                Map.Entry<String, AtomicLong> entry = evictionHand.next();
+                AtomicLong drainedAt = entry.getValue();
+                long current = drainedAt.get();
+                if (current != EVICTED && current - nowNanos <= 0 && drainedAt.compareAndSet(current, EVICTED)) {
+                    buckets.remove(entry.getKey(), drainedAt);
+                    evictions.increment();
+                    evicted = true;
+                }
+            }
+            return evicted;
+        }
+    }
+
+    private static String key(String parameter, String tokenType) {
+        return tokenType != null ? parameter + KEY_SEPARATOR + tokenType : parameter;
+    }
+}
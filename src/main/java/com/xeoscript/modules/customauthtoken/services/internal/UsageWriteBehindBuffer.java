@@ -0,0 +1,200 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UsageWriteBehindBuffer {
+
+    private final TokenDAO tokenDAO;
+    private final TokenProperties properties;
+
+    private final Map<String, PendingUsage> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private volatile long lastFlushMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-usage-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(10, properties.getWriteBehindFlushIntervalMs());
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    public boolean isEnabled() {
+        return properties.isWriteBehindUsageEnabled();
+    }
+
+    public void record(String storedTokenValue, LocalDateTime usedAt) {
+        add(storedTokenValue, 1, usedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        recorded.increment();
+
+        if (pending.size() > properties.getWriteBehindMaxPendingTokens()
+                && scheduler != null && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    public synchronized long flush() {
+        flushRequested.set(false);
+        long started = System.currentTimeMillis();
+
+        List<UsageDelta> deltas = new ArrayList<>();
+        for (Map.Entry<String, PendingUsage> entry : pending.entrySet()) {
+            PendingUsage usage = entry.getValue();
+            long count = usage.retire();
+            pending.remove(entry.getKey(), usage);
+            if (count == 0) {
+                continue;
+            }
+
+            deltas.add(UsageDelta.builder()
+                    .storedTokenValue(entry.getKey())
+                    .usageCount((int) Math.min(Integer.MAX_VALUE, count))
+                    .lastUsedAt(LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(usage.lastUsedMillis.get()), ZoneId.systemDefault()))
+                    .build());
+        }
+
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        deltas.sort(Comparator.comparing(UsageDelta::getStoredTokenValue));
+        long rows;
+        try {
+            rows = tokenDAO.applyUsageDeltas(deltas);
+        } catch (RuntimeException e) {
+            for (UsageDelta delta : deltas) {
+                add(delta.getStoredTokenValue(), delta.getUsageCount(),
+                        delta.getLastUsedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+            throw e;
+        }
+
+        flushedRows.add(rows);
+        flushes.increment();
+        lastFlushMillis = System.currentTimeMillis() - started;
+        log.debug("Flushed usage for {} unlimited tokens in {} ms", deltas.size(), lastFlushMillis);
+        return rows;
+    }
+
+    public int getPendingTokenCount() {
+        return pending.size();
+    }
+
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    public long getFlushedRowCount() {
+        return flushedRows.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    /**
+     * Every flush swaps each counter out of the map. A writer that fetched a counter just before the flush retired
+     * it sees the retirement in the result of its own add and retries on a fresh counter, so no use is lost however
+     * long the writer stalls in between, and the map only ever holds the tokens used since the last flush.
+     */
+    private void add(String storedTokenValue, long count, long usedMillis) {
+        while (true) {
+            PendingUsage usage = pending.computeIfAbsent(storedTokenValue, key -> new PendingUsage());
+            if (usage.add(count, usedMillis)) {
+                return;
+            }
+            pending.remove(storedTokenValue, usage);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Usage write-behind flush failed", e);
+        }
+    }
+
+    /**
+     * The count is a single word so that retiring it and adding to it are ordered: the flush takes the count and
+     * leaves a negative sentinel in one atomic swap, and every later add lands on the sentinel and reports failure
+     * instead of being counted.
+     */
+    private static final class PendingUsage {
+
+        private static final long RETIRED = Long.MIN_VALUE;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final LongAccumulator lastUsedMillis = new LongAccumulator(Math::max, 0);
+
+        private boolean add(long delta, long usedMillis) {
+            lastUsedMillis.accumulate(usedMillis);
+            return count.getAndAdd(delta) >= 0;
+        }
+
+        private long retire() {
+            return count.getAndSet(RETIRED);
+        }
+    }
+}
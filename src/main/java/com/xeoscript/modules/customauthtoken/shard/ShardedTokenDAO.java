@@ -0,0 +1,424 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.dto.ExpiredChunk;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import com.xeoscript.modules.customauthtoken.model.dto.ValidationOutcome;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenExportQuery;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.util.TokenStatusCounts;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "sharded")
+public class ShardedTokenDAO implements TokenDAO {
+
+    private final TokenShardRegistry shardRegistry;
+    private final TokenProperties properties;
+
+    private List<TokenShard> shards;
+
+    private ThreadPoolExecutor fanOutExecutor;
+
+    /**
+     * The fan-out pool is sized by shard-fan-out-threads rather than by the shard count and never queues: when
+     * every thread is busy the caller runs the shard work itself, so a caller holding a key lock transaction
+     * never waits behind unrelated fan-outs.
+     */
+    @PostConstruct
+    public void start() {
+        shards = shardRegistry.getShards();
+
+        int threads = properties.getShardFanOutThreads();
+        if (threads <= 0) {
+            return;
+        }
+
+        AtomicInteger threadSequence = new AtomicInteger();
+        fanOutExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "custom-auth-token-shard-" + threadSequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        fanOutExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void save(TokenEntity entity) {
+        shardRegistry.shardFor(entity.getTokenValue()).inTransaction(shard -> {
+            shard.getTokenDAO().save(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public void saveAll(List<TokenEntity> entities) {
+        Map<TokenShard, List<TokenEntity>> groups = new LinkedHashMap<>();
+        for (TokenEntity entity : entities) {
+            groups.computeIfAbsent(shardRegistry.shardFor(entity.getTokenValue()), key -> new ArrayList<>()).add(entity);
+        }
+
+        fanOut(new ArrayList<>(groups.keySet()), shard -> shard.inTransaction(current -> {
+            current.getTokenDAO().saveAll(groups.get(current));
+            return null;
+        }));
+    }
+
+    /**
+     * Shards commit independently, so the new tokens are inserted before older ones are superseded. A failure
+     * part way through can leave both generations active, but never a parameter without any active token. The
+     * key locks are held on a separate pool so that waiting generators cannot starve the inserts of connections.
+     */
+    @Override
+    public long saveAllSuperseding(List<TokenEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+
+        Map<TokenShard, List<TokenEntity>> groups = new LinkedHashMap<>();
+        for (TokenEntity entity : entities) {
+            groups.computeIfAbsent(shardRegistry.shardFor(entity.getTokenValue()), key -> new ArrayList<>()).add(entity);
+        }
+
+        return shardRegistry.getLockShard().inTransaction(locked -> {
+            LocalDateTime now = LocalDateTime.now();
+            locked.getTokenDAO().lockActiveKeys(entities, now);
+
+            fanOut(new ArrayList<>(groups.keySet()), shard -> shard.inTransaction(current -> {
+                current.getTokenDAO().saveAll(groups.get(current));
+                return null;
+            }));
+            return sum(fanOut(shards, shard -> shard.inTransaction(current ->
+                    current.getTokenDAO().supersedeActive(entities, now))));
+        });
+    }
+
+    @Override
+    public TokenEntity findByTokenValue(String tokenValue) {
+        TokenEntity entity = null;
+        for (TokenShard shard : shardRegistry.shardsFor(tokenValue)) {
+            entity = shard.inReadOnlyTransaction(current -> current.getTokenDAO().findByTokenValue(tokenValue));
+            if (entity != null) {
+                break;
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    public TokenEntity findByRawTokenValue(String rawTokenValue, String hashedTokenValue) {
+        for (TokenShard shard : candidateShards(rawTokenValue, hashedTokenValue)) {
+            TokenEntity entity = shard.inReadOnlyTransaction(current ->
+                    current.getTokenDAO().findByRawTokenValue(rawTokenValue, hashedTokenValue));
+            if (entity != null) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long atomicValidateAndIncrement(String tokenValue, String parameter,
+                                           String tokenType, LocalDateTime now) {
+        long updated = 0;
+        for (TokenShard shard : shardRegistry.shardsFor(tokenValue)) {
+            updated = shard.inTransaction(current ->
+                    current.getTokenDAO().atomicValidateAndIncrement(tokenValue, parameter, tokenType, now));
+            if (updated > 0) {
+                break;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public ValidationOutcome validateAndIncrement(String rawTokenValue, String hashedTokenValue, String parameter,
+                                                  String tokenType, LocalDateTime now) {
+        ValidationOutcome outcome = null;
+        for (TokenShard shard : candidateShards(rawTokenValue, hashedTokenValue)) {
+            outcome = shard.inTransaction(current -> current.getTokenDAO()
+                    .validateAndIncrement(rawTokenValue, hashedTokenValue, parameter, tokenType, now));
+            if (!isNotFound(outcome)) {
+                break;
+            }
+        }
+        return outcome;
+    }
+
+    @Override
+    public List<ValidationOutcome> validateAndIncrementAll(List<ValidateTokenRequest> requests,
+                                                           List<String> hashedTokenValues, LocalDateTime now) {
+        List<ValidationOutcome> outcomes = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<List<TokenShard>> candidates = new ArrayList<>(requests.size());
+        List<Integer> pending = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            candidates.add(candidateShards(requests.get(i).getToken(), hashedTokenValues.get(i)));
+            pending.add(i);
+        }
+
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            Map<TokenShard, List<Integer>> groups = new LinkedHashMap<>();
+            for (int index : pending) {
+                groups.computeIfAbsent(candidates.get(index).get(attempt), key -> new ArrayList<>()).add(index);
+            }
+
+            fanOut(new ArrayList<>(groups.keySet()), shard -> shard.inTransaction(current -> {
+                List<Integer> indexes = groups.get(current);
+                List<ValidateTokenRequest> shardRequests = new ArrayList<>(indexes.size());
+                List<String> shardHashedValues = new ArrayList<>(indexes.size());
+                for (int index : indexes) {
+                    shardRequests.add(requests.get(index));
+                    shardHashedValues.add(hashedTokenValues.get(index));
+                }
+
+                List<ValidationOutcome> shardOutcomes = current.getTokenDAO()
+                        .validateAndIncrementAll(shardRequests, shardHashedValues, now);
+                for (int j = 0; j < indexes.size(); j++) {
+                    outcomes.set(indexes.get(j), shardOutcomes.get(j));
+                }
+                return null;
+            }));
+
+            List<Integer> next = new ArrayList<>();
+            for (int index : pending) {
+                if (isNotFound(outcomes.get(index)) && candidates.get(index).size() > attempt + 1) {
+                    next.add(index);
+                }
+            }
+            pending = next;
+        }
+
+        return outcomes;
+    }
+
+    @Override
+    public long applyUsageDeltas(List<UsageDelta> deltas) {
+        Map<TokenShard, List<UsageDelta>> groups = new LinkedHashMap<>();
+        for (UsageDelta delta : deltas) {
+            for (TokenShard shard : shardRegistry.shardsFor(delta.getStoredTokenValue())) {
+                groups.computeIfAbsent(shard, key -> new ArrayList<>()).add(delta);
+            }
+        }
+
+        long rows = 0;
+        for (Long updated : fanOut(new ArrayList<>(groups.keySet()), shard -> shard.inTransaction(current ->
+                current.getTokenDAO().applyUsageDeltas(groups.get(current))))) {
+            rows += updated;
+        }
+        return rows;
+    }
+
+    @Override
+    public long invalidate(String tokenValue) {
+        long updated = 0;
+        for (TokenShard shard : shardRegistry.shardsFor(tokenValue)) {
+            updated = shard.inTransaction(current -> current.getTokenDAO().invalidate(tokenValue));
+            if (updated > 0) {
+                break;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public long invalidateAllChunk(String parameter, String tokenType, LocalDateTime now, int limit) {
+        return sum(fanOut(shards, shard -> shard.inTransaction(current ->
+                current.getTokenDAO().invalidateAllChunk(parameter, tokenType, now, limit))));
+    }
+
+    @Override
+    public long deleteExpired(LocalDateTime before) {
+        return sum(fanOut(shards, shard -> shard.inTransaction(current ->
+                current.getTokenDAO().deleteExpired(before))));
+    }
+
+    @Override
+    public long countExpired(LocalDateTime before) {
+        return sum(fanOut(shards, shard -> shard.inReadOnlyTransaction(current ->
+                current.getTokenDAO().countExpired(before))));
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        return sum(fanOut(shards, shard -> shard.inReadOnlyTransaction(current ->
+                current.getTokenDAO().countActive(now))));
+    }
+
+    @Override
+    public ExpiredChunk deleteExpiredChunk(LocalDateTime before, LocalDateTime afterExpiryTime, Long afterId,
+                                           int limit) {
+        List<ExpiredChunk> chunks = fanOut(shards, shard -> shard.inTransaction(current ->
+                current.getTokenDAO().deleteExpiredChunk(before, null, null, limit)));
+
+        long deleted = 0;
+        boolean hasMore = false;
+        for (ExpiredChunk chunk : chunks) {
+            deleted += chunk.getDeletedCount();
+            hasMore |= chunk.isHasMore();
+        }
+        return ExpiredChunk.builder()
+                .deletedCount(deleted)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Override
+    public boolean tryAcquireLock(String lockName, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        return shards.get(0).inTransaction(shard ->
+                shard.getTokenDAO().tryAcquireLock(lockName, owner, now, lockedUntil));
+    }
+
+    @Override
+    public void releaseLock(String lockName, String owner) {
+        shards.get(0).inTransaction(shard -> {
+            shard.getTokenDAO().releaseLock(lockName, owner);
+            return null;
+        });
+    }
+
+    @Override
+    public TokenEntity findByTokenValueAndParameter(String tokenValue, String parameter) {
+        TokenEntity entity = null;
+        for (TokenShard shard : shardRegistry.shardsFor(tokenValue)) {
+            entity = shard.inReadOnlyTransaction(current ->
+                    current.getTokenDAO().findByTokenValueAndParameter(tokenValue, parameter));
+            if (entity != null) {
+                break;
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    public long streamTokenValues(LocalDateTime createdSince, Consumer<String> consumer) {
+        long count = 0;
+        for (TokenShard shard : shards) {
+            count += shard.inReadOnlyTransaction(current ->
+                    current.getTokenDAO().streamTokenValues(createdSince, consumer));
+        }
+        return count;
+    }
+
+    @Override
+    public long streamInvalidatedTokens(String hashingMode, LocalDateTime updatedSince, LocalDateTime expiringAfter,
+                                        BiConsumer<String, LocalDateTime> consumer) {
+        long count = 0;
+        for (TokenShard shard : shards) {
+            count += shard.inReadOnlyTransaction(current -> current.getTokenDAO()
+                    .streamInvalidatedTokens(hashingMode, updatedSince, expiringAfter, consumer));
+        }
+        return count;
+    }
+
+    @Override
+    public long streamTokens(TokenExportQuery query, Consumer<TokenEntity> consumer) {
+        long count = 0;
+        for (TokenShard shard : shards) {
+            count += shard.inReadOnlyTransaction(current -> current.getTokenDAO().streamTokens(query, consumer));
+        }
+        return count;
+    }
+
+    @Override
+    public List<TokenStatusCount> countByTypeAndStatus(TokenExportQuery query) {
+        return TokenStatusCounts.merge(fanOut(shards, shard -> shard.inReadOnlyTransaction(current ->
+                current.getTokenDAO().countByTypeAndStatus(query))));
+    }
+
+    private List<TokenShard> candidateShards(String rawTokenValue, String hashedTokenValue) {
+        String primary = properties.isHashingEnabled() ? hashedTokenValue : rawTokenValue;
+        String secondary = properties.isHashingEnabled() ? rawTokenValue : hashedTokenValue;
+
+        List<TokenShard> candidates = new ArrayList<>(shardRegistry.shardsFor(primary));
+        for (TokenShard shard : shardRegistry.shardsFor(secondary)) {
+            if (!candidates.contains(shard)) {
+                candidates.add(shard);
+            }
+        }
+        return candidates;
+    }
+
+    private <T> List<T> fanOut(List<TokenShard> targets, Function<TokenShard, T> work) {
+        if (targets.size() == 1 || fanOutExecutor == null) {
+            List<T> results = new ArrayList<>(targets.size());
+            for (TokenShard shard : targets) {
+                results.add(work.apply(shard));
+            }
+            return results;
+        }
+
+        int last = targets.size() - 1;
+        List<Future<T>> futures = new ArrayList<>(last);
+        for (TokenShard shard : targets.subList(0, last)) {
+            futures.add(fanOutExecutor.submit(() -> work.apply(shard)));
+        }
+        T lastResult = work.apply(targets.get(last));
+
+        List<T> results = new ArrayList<>(targets.size());
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        results.add(lastResult);
+        return results;
+    }
+
+    private static boolean isNotFound(ValidationOutcome outcome) {
+        return !outcome.isValid() && outcome.getFailureReason() == ValidationFailureReason.NOT_FOUND;
+    }
+
+    private static long sum(List<Long> values) {
+        long total = 0;
+        for (Long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard operation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Shard operation failed", e.getCause());
+        }
+    }
+}
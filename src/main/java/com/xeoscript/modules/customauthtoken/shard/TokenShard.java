@@ -0,0 +1,46 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.function.Function;
+
+@Getter
+public class TokenShard {
+
+    private final int index;
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTokenDAO tokenDAO;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public TokenShard(int index, DataSource dataSource, JdbcTemplate jdbcTemplate, JdbcTokenDAO tokenDAO) {
+        this.index = index;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenDAO = tokenDAO;
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    public <T> T inTransaction(Function<TokenShard, T> work) {
+        return transactionTemplate.execute(status -> work.apply(this));
+    }
+
+    public <T> T inReadOnlyTransaction(Function<TokenShard, T> work) {
+        return readOnlyTransactionTemplate.execute(status -> work.apply(this));
+    }
+}
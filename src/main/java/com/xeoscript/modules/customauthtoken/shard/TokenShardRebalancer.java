@@ -0,0 +1,302 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves rows to the shard the current layout routes them to. To grow from N to N+1 shards, append the new
+ * JDBC URL to shard-jdbc-urls and set shard-previous-count to N on every node, so lookups also check the old
+ * layout. Then run the rebalance once, either by setting shard-rebalance-on-startup on a single node or by
+ * calling {@link #rebalance()} from an operator endpoint or job. Once it logs completion, reset
+ * shard-previous-count to 0.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "sharded")
+public class TokenShardRebalancer {
+
+    private static final String ROW_COLUMNS = "ID, TOKEN_VALUE, TOKEN_KEY, PARAMETER_VALUE, TOKEN_TYPE,"
+            + " STATUS, EXPIRY_TIME, USAGE_LIMIT, USAGE_COUNT, HASHING_MODE, METADATA, CREATED_AT, UPDATED_AT, USED_AT";
+
+    private static final String SELECT_BATCH_SQL = "SELECT " + ROW_COLUMNS
+            + " FROM CUSTOM_AUTH_TOKEN WHERE ID > ? ORDER BY ID";
+
+    private static final String LOCK_ROWS_SQL = "SELECT " + ROW_COLUMNS
+            + " FROM CUSTOM_AUTH_TOKEN WHERE ID IN (%s) ORDER BY ID FOR UPDATE";
+
+    private static final String SELECT_EXISTING_SQL = "SELECT TOKEN_VALUE FROM CUSTOM_AUTH_TOKEN"
+            + " WHERE TOKEN_KEY IN (%s)";
+
+    private static final String INSERT_SQL = "INSERT INTO CUSTOM_AUTH_TOKEN"
+            + " (TOKEN_VALUE, TOKEN_KEY, PARAMETER_VALUE, TOKEN_TYPE, STATUS, EXPIRY_TIME, USAGE_LIMIT, USAGE_COUNT,"
+            + " HASHING_MODE, METADATA, CREATED_AT, UPDATED_AT, USED_AT)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_SQL = "DELETE FROM CUSTOM_AUTH_TOKEN WHERE ID IN (%s)";
+
+    private static final RowMapper<TokenEntity> ROW_MAPPER = (resultSet, rowNum) -> {
+        TokenEntity entity = new TokenEntity();
+        entity.setId(resultSet.getLong(1));
+        entity.setTokenValue(resultSet.getString(2));
+        entity.setTokenKey(resultSet.getBytes(3));
+        entity.setParameterValue(resultSet.getString(4));
+        entity.setTokenType(resultSet.getString(5));
+        entity.setStatus(TokenStatus.valueOf(resultSet.getString(6)));
+        entity.setExpiryTime(resultSet.getTimestamp(7).toLocalDateTime());
+        int usageLimit = resultSet.getInt(8);
+        entity.setUsageLimit(resultSet.wasNull() ? null : usageLimit);
+        entity.setUsageCount(resultSet.getInt(9));
+        entity.setHashingMode(resultSet.getString(10));
+        entity.setMetadata(resultSet.getString(11));
+        entity.setCreatedAt(resultSet.getTimestamp(12).toLocalDateTime());
+        entity.setUpdatedAt(resultSet.getTimestamp(13).toLocalDateTime());
+        Timestamp usedAt = resultSet.getTimestamp(14);
+        entity.setUsedAt(usedAt != null ? usedAt.toLocalDateTime() : null);
+        return entity;
+    };
+
+    private final TokenShardRegistry shardRegistry;
+    private final TokenQueryCounter queryCounter;
+    private final TokenProperties properties;
+
+    private final LongAdder scannedRows = new LongAdder();
+    private final LongAdder movedRows = new LongAdder();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isShardRebalanceOnStartup()) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "custom-auth-token-shard-rebalance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::rebalanceQuietly);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public long rebalance() {
+        int batchSize = Math.max(1, properties.getShardRebalanceBatchSize());
+        long pauseMillis = Math.max(0, properties.getShardRebalancePauseMs());
+        long started = System.currentTimeMillis();
+
+        long moved = 0;
+        try {
+            for (TokenShard source : shardRegistry.getShards()) {
+                moved += rebalanceShard(source, batchSize, pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Token shard rebalance interrupted after moving {} rows", moved);
+            return moved;
+        }
+
+        log.info("Token shard rebalance moved {} rows across {} shards in {} ms{}", moved,
+                shardRegistry.getShards().size(), System.currentTimeMillis() - started,
+                shardRegistry.getPreviousShardCount() > 0 ? ", shard-previous-count can be reset to 0" : "");
+        return moved;
+    }
+
+    public long getScannedRowCount() {
+        return scannedRows.sum();
+    }
+
+    public long getMovedRowCount() {
+        return movedRows.sum();
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (RuntimeException e) {
+            log.warn("Token shard rebalance failed", e);
+        }
+    }
+
+    private long rebalanceShard(TokenShard source, int batchSize, long pauseMillis) throws InterruptedException {
+        long moved = 0;
+        long afterId = 0;
+        while (true) {
+            List<TokenEntity> rows = readBatch(source, afterId, batchSize);
+            scannedRows.add(rows.size());
+            if (rows.isEmpty()) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+
+            Map<TokenShard, List<TokenEntity>> misplaced = new LinkedHashMap<>();
+            for (TokenEntity row : rows) {
+                TokenShard target = shardRegistry.shardFor(row.getTokenValue());
+                if (target != source) {
+                    misplaced.computeIfAbsent(target, key -> new ArrayList<>()).add(row);
+                }
+            }
+
+            for (Map.Entry<TokenShard, List<TokenEntity>> entry : misplaced.entrySet()) {
+                long count = move(source, entry.getKey(), entry.getValue());
+                moved += count;
+                movedRows.add(count);
+            }
+
+            if (rows.size() < batchSize) {
+                break;
+            }
+            if (pauseMillis > 0 && !misplaced.isEmpty()) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+
+        if (moved > 0) {
+            log.info("Token shard {} moved {} rows to other shards", source.getIndex(), moved);
+        }
+        return moved;
+    }
+
+    private List<TokenEntity> readBatch(TokenShard source, long afterId, int batchSize) {
+        queryCounter.increment();
+        return source.inReadOnlyTransaction(shard -> shard.getJdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_BATCH_SQL);
+            statement.setMaxRows(batchSize);
+            statement.setLong(1, afterId);
+            return statement;
+        }, ROW_MAPPER));
+    }
+
+    private long move(TokenShard source, TokenShard target, List<TokenEntity> candidates) {
+        List<Object> ids = ids(candidates);
+        return source.inTransaction(shard -> {
+            queryCounter.increment();
+            List<TokenEntity> locked = shard.getJdbcTemplate().query(
+                    String.format(LOCK_ROWS_SQL, placeholders(ids.size())), ROW_MAPPER, ids.toArray());
+            if (locked.isEmpty()) {
+                return 0L;
+            }
+
+            copy(target, locked);
+            List<Object> lockedIds = ids(locked);
+            queryCounter.increment();
+            shard.getJdbcTemplate().update(String.format(DELETE_SQL, placeholders(lockedIds.size())),
+                    lockedIds.toArray());
+            return (long) locked.size();
+        });
+    }
+
+    private void copy(TokenShard target, List<TokenEntity> rows) {
+        target.inTransaction(shard -> {
+            Set<String> existing = new HashSet<>();
+            queryCounter.increment();
+            shard.getJdbcTemplate().query(String.format(SELECT_EXISTING_SQL, placeholders(rows.size())),
+                    resultSet -> {
+                        existing.add(resultSet.getString(1));
+                    }, tokenKeys(rows).toArray());
+
+            List<TokenEntity> missing = new ArrayList<>(rows.size());
+            for (TokenEntity row : rows) {
+                if (!existing.contains(row.getTokenValue())) {
+                    missing.add(row);
+                }
+            }
+            if (missing.isEmpty()) {
+                return null;
+            }
+
+            queryCounter.increment();
+            shard.getJdbcTemplate().batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    bindInsert(statement, missing.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return missing.size();
+                }
+            });
+            return null;
+        });
+    }
+
+    private static List<Object> ids(List<TokenEntity> rows) {
+        List<Object> ids = new ArrayList<>(rows.size());
+        for (TokenEntity row : rows) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+
+    private static void bindInsert(PreparedStatement statement, TokenEntity row) throws SQLException {
+        statement.setString(1, row.getTokenValue());
+        statement.setBytes(2, tokenKey(row));
+        statement.setString(3, row.getParameterValue());
+        statement.setString(4, row.getTokenType());
+        statement.setString(5, row.getStatus().name());
+        statement.setTimestamp(6, Timestamp.valueOf(row.getExpiryTime()));
+        if (row.getUsageLimit() != null) {
+            statement.setInt(7, row.getUsageLimit());
+        } else {
+            statement.setNull(7, Types.INTEGER);
+        }
+        statement.setInt(8, row.getUsageCount());
+        statement.setString(9, row.getHashingMode());
+        statement.setString(10, row.getMetadata());
+        statement.setTimestamp(11, Timestamp.valueOf(row.getCreatedAt()));
+        statement.setTimestamp(12, Timestamp.valueOf(row.getUpdatedAt()));
+        statement.setTimestamp(13, row.getUsedAt() != null ? Timestamp.valueOf(row.getUsedAt()) : null);
+    }
+
+    private static List<byte[]> tokenKeys(List<TokenEntity> rows) {
+        List<byte[]> keys = new ArrayList<>(rows.size());
+        for (TokenEntity row : rows) {
+            keys.add(tokenKey(row));
+        }
+        return keys;
+    }
+
+    private static byte[] tokenKey(TokenEntity row) {
+        return row.getTokenKey() != null ? row.getTokenKey() : TokenHasher.digest(row.getTokenValue());
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+}
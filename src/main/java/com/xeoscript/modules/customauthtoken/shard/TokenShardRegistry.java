@@ -0,0 +1,126 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "spring.custom-auth-token", name = "store", havingValue = "sharded")
+public class TokenShardRegistry {
+
+    private final TokenQueryCounter queryCounter;
+    private final TokenProperties properties;
+
+    private final List<TokenShard> shards = new ArrayList<>();
+
+    private TokenShard lockShard;
+
+    private int previousShardCount;
+
+    @PostConstruct
+    public void start() {
+        for (String url : properties.getShardJdbcUrls().split(",")) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+
+            DataSource dataSource = createDataSource(url.trim(), String.valueOf(shards.size()));
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            if (properties.isShardInitializeSchema()) {
+                TokenShardSchema.initialize(jdbcTemplate, properties.isCompactTokenKey());
+            }
+            shards.add(new TokenShard(shards.size(), dataSource, jdbcTemplate,
+                    new JdbcTokenDAO(jdbcTemplate, queryCounter, properties)));
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("spring.custom-auth-token.shard-jdbc-urls must list at least one JDBC URL");
+        }
+
+        DataSource lockDataSource = createDataSource(properties.getShardJdbcUrls().split(",")[0].trim(), "locks");
+        JdbcTemplate lockJdbcTemplate = new JdbcTemplate(lockDataSource);
+        lockShard = new TokenShard(0, lockDataSource, lockJdbcTemplate,
+                new JdbcTokenDAO(lockJdbcTemplate, queryCounter, properties));
+
+        previousShardCount = properties.getShardPreviousCount();
+        if (previousShardCount > shards.size()) {
+            throw new IllegalStateException("shard-previous-count " + previousShardCount
+                    + " exceeds the " + shards.size() + " configured shards");
+        }
+
+        log.info("Sharded token store started with {} shards{}", shards.size(),
+                previousShardCount > 0 ? ", falling back to the " + previousShardCount + "-shard layout" : "");
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (TokenShard shard : shards) {
+            close(shard);
+        }
+        if (lockShard != null) {
+            close(lockShard);
+        }
+    }
+
+    public List<TokenShard> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    public TokenShard getLockShard() {
+        return lockShard;
+    }
+
+    public int getPreviousShardCount() {
+        return previousShardCount;
+    }
+
+    public TokenShard shardFor(String storedTokenValue) {
+        return shards.get(TokenShardRouter.shardFor(storedTokenValue, shards.size()));
+    }
+
+    public List<TokenShard> shardsFor(String storedTokenValue) {
+        TokenShard shard = shardFor(storedTokenValue);
+        if (previousShardCount <= 0) {
+            return Collections.singletonList(shard);
+        }
+
+        TokenShard previous = shards.get(TokenShardRouter.shardFor(storedTokenValue, previousShardCount));
+        return previous == shard ? Collections.singletonList(shard) : Arrays.asList(shard, previous);
+    }
+
+    private DataSource createDataSource(String url, String poolSuffix) {
+        DataSource dataSource = DataSourceBuilder.create()
+                .url(url)
+                .username(properties.getShardUsername())
+                .password(properties.getShardPassword())
+                .build();
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource hikari = (HikariDataSource) dataSource;
+            hikari.setPoolName("custom-auth-token-shard-" + poolSuffix);
+            hikari.setMaximumPoolSize(Math.max(1, properties.getShardPoolSize()));
+        }
+        return dataSource;
+    }
+
+    private static void close(TokenShard shard) {
+        if (shard.getDataSource() instanceof HikariDataSource) {
+            ((HikariDataSource) shard.getDataSource()).close();
+        }
+    }
+}
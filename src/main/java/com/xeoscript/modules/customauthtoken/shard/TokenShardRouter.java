@@ -0,0 +1,35 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+
+public final class TokenShardRouter {
+
+    private static final long JUMP_MULTIPLIER = 2862933555777941757L;
+
+    private TokenShardRouter() {
+    }
+
+    public static int shardFor(String storedTokenValue, int shardCount) {
+        if (shardCount <= 1) {
+            return 0;
+        }
+
+        byte[] digest = TokenHasher.digest(storedTokenValue);
+        long key = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            key = (key << 8) | (digest[i] & 0xff);
+        }
+        return jump(key, shardCount);
+    }
+
+    private static int jump(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * JUMP_MULTIPLIER + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
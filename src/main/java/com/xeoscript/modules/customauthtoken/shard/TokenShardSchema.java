@@ -0,0 +1,48 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public final class TokenShardSchema {
+
+    private static final String[] STATEMENTS = {
+            "CREATE TABLE IF NOT EXISTS CUSTOM_AUTH_TOKEN ("
+                    + " ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                    + " TOKEN_VALUE VARCHAR(512) NOT NULL,"
+                    + " TOKEN_KEY VARBINARY(32),"
+                    + " PARAMETER_VALUE VARCHAR(512) NOT NULL,"
+                    + " TOKEN_TYPE VARCHAR(100),"
+                    + " STATUS VARCHAR(20) NOT NULL,"
+                    + " EXPIRY_TIME TIMESTAMP NOT NULL,"
+                    + " USAGE_LIMIT INTEGER,"
+                    + " USAGE_COUNT INTEGER NOT NULL,"
+                    + " HASHING_MODE VARCHAR(20) NOT NULL,"
+                    + " METADATA VARCHAR(2000),"
+                    + " CREATED_AT TIMESTAMP NOT NULL,"
+                    + " UPDATED_AT TIMESTAMP NOT NULL,"
+                    + " USED_AT TIMESTAMP)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS IDX_TOKEN_KEY ON CUSTOM_AUTH_TOKEN (TOKEN_KEY)",
+            "CREATE INDEX IF NOT EXISTS IDX_PARAM_TYPE ON CUSTOM_AUTH_TOKEN (PARAMETER_VALUE, TOKEN_TYPE)",
+            "CREATE INDEX IF NOT EXISTS IDX_STATUS_UPDATED_AT ON CUSTOM_AUTH_TOKEN (STATUS, UPDATED_AT)",
+            "CREATE INDEX IF NOT EXISTS IDX_EXPIRY_TIME ON CUSTOM_AUTH_TOKEN (EXPIRY_TIME)",
+            "CREATE TABLE IF NOT EXISTS CUSTOM_AUTH_TOKEN_LOCK ("
+                    + " LOCK_NAME VARCHAR(64) NOT NULL PRIMARY KEY,"
+                    + " LOCKED_BY VARCHAR(255) NOT NULL,"
+                    + " LOCKED_AT TIMESTAMP NOT NULL,"
+                    + " LOCKED_UNTIL TIMESTAMP NOT NULL)"
+    };
+
+    private static final String VALUE_INDEX_STATEMENT = "CREATE UNIQUE INDEX IF NOT EXISTS IDX_TOKEN_VALUE"
+            + " ON CUSTOM_AUTH_TOKEN (TOKEN_VALUE)";
+
+    private TokenShardSchema() {
+    }
+
+    public static void initialize(JdbcTemplate jdbcTemplate, boolean compactTokenKey) {
+        for (String statement : STATEMENTS) {
+            jdbcTemplate.execute(statement);
+        }
+        if (!compactTokenKey) {
+            jdbcTemplate.execute(VALUE_INDEX_STATEMENT);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.xeoscript.modules.customauthtoken.util;
+
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public final class ActiveTokenLocks {
+
+    public static final int STRIPES = 256;
+
+    /**
+     * Lock rows are derived from the key rather than striped: a generateAll chunk of a few hundred parameters
+     * would otherwise hold nearly every stripe and serialize generation across the cluster. With 2^24 slots two
+     * concurrent chunks of 500 keys share a row with probability under 2%, while the lock table stays bounded.
+     */
+    public static final int LOCK_SLOTS = 1 << 24;
+
+    public static final String LOCK_OWNER = "active-token-supersede";
+
+    private static final String LOCK_NAME_FORMAT = "active-key-%06x";
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private ActiveTokenLocks() {
+    }
+
+    public static String key(String parameter, String tokenType) {
+        return tokenType != null ? parameter + KEY_SEPARATOR + tokenType : parameter;
+    }
+
+    public static int stripe(String parameter, String tokenType) {
+        int hash = key(parameter, tokenType).hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    public static String lockName(String parameter, String tokenType) {
+        byte[] digest = TokenHasher.digest(key(parameter, tokenType));
+        int slot = ((digest[0] & 0xff) << 16 | (digest[1] & 0xff) << 8 | (digest[2] & 0xff)) & (LOCK_SLOTS - 1);
+        return String.format(LOCK_NAME_FORMAT, slot);
+    }
+
+    public static SortedSet<String> lockNames(List<TokenEntity> entities) {
+        SortedSet<String> lockNames = new TreeSet<>();
+        for (TokenEntity entity : entities) {
+            lockNames.add(lockName(entity.getParameterValue(), entity.getTokenType()));
+        }
+        return lockNames;
+    }
+
+    public static SortedSet<Integer> stripes(List<TokenEntity> entities) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (TokenEntity entity : entities) {
+            stripes.add(stripe(entity.getParameterValue(), entity.getTokenType()));
+        }
+        return stripes;
+    }
+
+    public static Collection<TokenEntity> distinctKeys(List<TokenEntity> entities) {
+        Map<String, TokenEntity> keys = new LinkedHashMap<>();
+        for (TokenEntity entity : entities) {
+            keys.putIfAbsent(key(entity.getParameterValue(), entity.getTokenType()), entity);
+        }
+        return new ArrayList<>(keys.values());
+    }
+}
@@ -0,0 +1,33 @@
+package com.xeoscript.modules.customauthtoken.util;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.SQLException;
+
+public final class DuplicateKeys {
+
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private DuplicateKeys() {
+    }
+
+    /**
+     * Whether {@code e} was caused by an insert that collided with an existing row: either Spring already
+     * translated it to a {@link DuplicateKeyException}, or some cause is an {@link SQLException} in SQLState
+     * class 23. Anything else, such as a lost connection or a lock timeout, is not.
+     */
+    public static boolean isDuplicateKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DuplicateKeyException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.xeoscript.modules.customauthtoken.util;
+
+import java.util.Arrays;
+
+public final class HexCodec {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    public static String encode(byte[] bytes) {
+        return new String(encodeToChars(bytes, 0, bytes.length));
+    }
+
+    public static char[] encodeToChars(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i] & 0xff;
+            chars[i * 2] = DIGITS[b >>> 4];
+            chars[i * 2 + 1] = DIGITS[b & 0x0f];
+        }
+        return chars;
+    }
+
+    public static byte[] decode(CharSequence hex) {
+        byte[] bytes = decodeOrNull(hex);
+        if (bytes == null) {
+            throw new IllegalArgumentException("Value is not a valid hex string");
+        }
+        return bytes;
+    }
+
+    public static byte[] decodeOrNull(CharSequence hex) {
+        int length = hex.length();
+        if ((length & 1) != 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = valueOf(hex.charAt(i * 2));
+            int low = valueOf(hex.charAt(i * 2 + 1));
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    private static int valueOf(char c) {
+        return c < VALUES.length ? VALUES[c] : -1;
+    }
+}
@@ -10,16 +10,12 @@ public class TokenGenerator {
     private final SecureRandom secureRandom = new SecureRandom();
 
     public String generate(int byteLength) {
-        byte[] bytes = new byte[byteLength];
-        secureRandom.nextBytes(bytes);
-        return bytesToHex(bytes);
+        return HexCodec.encode(generateBytes(byteLength));
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
+    public byte[] generateBytes(int byteLength) {
+        byte[] bytes = new byte[byteLength];
+        secureRandom.nextBytes(bytes);
+        return bytes;
     }
 }
@@ -9,27 +9,63 @@ import java.security.NoSuchAlgorithmException;
 @Component
 public class TokenHasher {
 
+    private static final String ALGORITHM = "SHA-256";
+
+    private static final ThreadLocal<DigestState> DIGEST_STATE = ThreadLocal.withInitial(DigestState::new);
+
     public String hash(String rawToken) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(rawToken.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hashBytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
+        return HexCodec.encode(hashBytes(rawToken));
+    }
+
+    public byte[] hashBytes(String rawToken) {
+        return digest(rawToken);
+    }
+
+    public static byte[] digest(String rawToken) {
+        DigestState state = DIGEST_STATE.get();
+        MessageDigest digest = state.digest;
+        int length = rawToken.length();
+
+        byte[] buffer = state.buffer(length);
+        for (int i = 0; i < length; i++) {
+            char c = rawToken.charAt(i);
+            if (c > 0x7f) {
+                return digest.digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            }
+            buffer[i] = (byte) c;
         }
+
+        digest.update(buffer, 0, length);
+        return digest.digest();
     }
 
     public boolean matches(String rawToken, String hashedToken) {
-        byte[] computedHash = hash(rawToken).getBytes(StandardCharsets.UTF_8);
-        byte[] expectedHash = hashedToken.getBytes(StandardCharsets.UTF_8);
-        return MessageDigest.isEqual(computedHash, expectedHash);
+        byte[] expectedHash = HexCodec.decodeOrNull(hashedToken);
+        if (expectedHash == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(hashBytes(rawToken), expectedHash);
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    private static final class DigestState {
+
+        private final MessageDigest digest;
+
+        private byte[] buffer = new byte[128];
+
+        private DigestState() {
+            try {
+                digest = MessageDigest.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 algorithm not available", e);
+            }
+        }
+
+        private byte[] buffer(int length) {
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            return buffer;
         }
-        return result.toString();
     }
 }
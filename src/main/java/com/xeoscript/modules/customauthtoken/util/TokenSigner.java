@@ -0,0 +1,150 @@
+package com.xeoscript.modules.customauthtoken.util;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.model.dto.SignedTokenClaims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+
+@Component
+@RequiredArgsConstructor
+public class TokenSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final char SEPARATOR = '.';
+
+    private static final int NONCE_LENGTH = 16;
+
+    private static final int PARAMETER_TAG_LENGTH = 8;
+
+    private static final int HEADER_LENGTH = Long.BYTES + NONCE_LENGTH + PARAMETER_TAG_LENGTH;
+
+    private static final int MIN_KEY_LENGTH = 32;
+
+    private static final byte PARAMETER_DOMAIN = 0x01;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final TokenProperties properties;
+    private final TokenGenerator tokenGenerator;
+
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    private volatile SecretKeySpec key;
+
+    public boolean isEnabled() {
+        String configured = properties.getSigningKey();
+        return configured != null && !configured.isEmpty();
+    }
+
+    public boolean isSigned(String token) {
+        return token.indexOf(SEPARATOR) > 0;
+    }
+
+    public String sign(String parameter, String tokenType, LocalDateTime expiryTime) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Signed tokens require spring.custom-auth-token.signing-key");
+        }
+
+        byte[] type = tokenType != null ? tokenType.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_LENGTH + type.length);
+        payload.putLong(expiryTime.atZone(ZoneId.systemDefault()).toEpochSecond());
+        payload.put(tokenGenerator.generateBytes(NONCE_LENGTH));
+        payload.put(parameterTag(parameter));
+        payload.put(type);
+
+        byte[] payloadBytes = payload.array();
+        return ENCODER.encodeToString(payloadBytes) + SEPARATOR + ENCODER.encodeToString(mac(payloadBytes));
+    }
+
+    public SignedTokenClaims verify(String token) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        int separator = token.indexOf(SEPARATOR);
+        if (separator <= 0 || separator != token.lastIndexOf(SEPARATOR)) {
+            return null;
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length < HEADER_LENGTH || !MessageDigest.isEqual(mac(payload), signature)) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long expiryEpochSecond = buffer.getLong();
+        int typeLength = payload.length - HEADER_LENGTH;
+
+        return SignedTokenClaims.builder()
+                .expiryTime(LocalDateTime.ofInstant(Instant.ofEpochSecond(expiryEpochSecond), ZoneId.systemDefault()))
+                .tokenType(typeLength > 0
+                        ? new String(payload, HEADER_LENGTH, typeLength, StandardCharsets.UTF_8)
+                        : null)
+                .parameterTag(Arrays.copyOfRange(payload, Long.BYTES + NONCE_LENGTH, HEADER_LENGTH))
+                .build();
+    }
+
+    public boolean matchesParameter(SignedTokenClaims claims, String parameter) {
+        return MessageDigest.isEqual(claims.getParameterTag(), parameterTag(parameter));
+    }
+
+    private byte[] parameterTag(String parameter) {
+        Mac mac = macs.get();
+        mac.update(PARAMETER_DOMAIN);
+        return Arrays.copyOf(mac.doFinal(parameter.getBytes(StandardCharsets.UTF_8)), PARAMETER_TAG_LENGTH);
+    }
+
+    private byte[] mac(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key());
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+
+    private SecretKeySpec key() {
+        SecretKeySpec resolved = key;
+        if (resolved == null) {
+            byte[] secret;
+            try {
+                secret = Base64.getDecoder().decode(properties.getSigningKey());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("signing-key must be Base64 encoded", e);
+            }
+            if (secret.length < MIN_KEY_LENGTH) {
+                throw new IllegalStateException("signing-key must decode to at least " + MIN_KEY_LENGTH + " bytes");
+            }
+            resolved = new SecretKeySpec(secret, ALGORITHM);
+            key = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,52 @@
+package com.xeoscript.modules.customauthtoken.util;
+
+import com.xeoscript.modules.customauthtoken.model.dto.TokenStatusCount;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class TokenStatusCounts {
+
+    private static final Comparator<String> TOKEN_TYPE_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private TokenStatusCounts() {
+    }
+
+    public static Map<String, Map<TokenStatus, Long>> newTable() {
+        return new TreeMap<>(TOKEN_TYPE_ORDER);
+    }
+
+    public static void add(Map<String, Map<TokenStatus, Long>> table, String tokenType, TokenStatus status,
+                           long count) {
+        table.computeIfAbsent(tokenType, key -> new TreeMap<>()).merge(status, count, Long::sum);
+    }
+
+    public static List<TokenStatusCount> merge(Collection<List<TokenStatusCount>> partials) {
+        Map<String, Map<TokenStatus, Long>> table = newTable();
+        for (List<TokenStatusCount> partial : partials) {
+            for (TokenStatusCount count : partial) {
+                add(table, count.getTokenType(), count.getStatus(), count.getCount());
+            }
+        }
+        return toList(table);
+    }
+
+    public static List<TokenStatusCount> toList(Map<String, Map<TokenStatus, Long>> table) {
+        List<TokenStatusCount> counts = new ArrayList<>();
+        for (Map.Entry<String, Map<TokenStatus, Long>> type : table.entrySet()) {
+            for (Map.Entry<TokenStatus, Long> status : type.getValue().entrySet()) {
+                counts.add(TokenStatusCount.builder()
+                        .tokenType(type.getKey())
+                        .status(status.getKey())
+                        .count(status.getValue())
+                        .build());
+            }
+        }
+        return counts;
+    }
+}
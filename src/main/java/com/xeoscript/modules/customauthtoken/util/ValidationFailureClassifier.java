@@ -0,0 +1,38 @@
+package com.xeoscript.modules.customauthtoken.util;
+
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+
+import java.time.LocalDateTime;
+
+public final class ValidationFailureClassifier {
+
+    private ValidationFailureClassifier() {
+    }
+
+    public static ValidationFailureReason classify(TokenStatus status, LocalDateTime expiryTime,
+                                                   String parameterValue, String tokenType,
+                                                   Integer usageLimit, int usageCount,
+                                                   String requestedParameter, String requestedTokenType,
+                                                   LocalDateTime now) {
+        if (status == TokenStatus.USED) {
+            return ValidationFailureReason.USAGE_LIMIT_EXCEEDED;
+        }
+        if (status == TokenStatus.INVALIDATED) {
+            return ValidationFailureReason.INVALIDATED;
+        }
+        if (status == TokenStatus.EXPIRED || !expiryTime.isAfter(now)) {
+            return ValidationFailureReason.EXPIRED;
+        }
+        if (!parameterValue.equals(requestedParameter)) {
+            return ValidationFailureReason.PARAMETER_MISMATCH;
+        }
+        if (requestedTokenType != null && !requestedTokenType.equals(tokenType)) {
+            return ValidationFailureReason.TOKEN_TYPE_MISMATCH;
+        }
+        if (usageLimit != null && usageCount >= usageLimit) {
+            return ValidationFailureReason.USAGE_LIMIT_EXCEEDED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,16 @@
+-- Creates the table written by the JDBC lifecycle event sink (event-jdbc-sink-enabled=true).
+-- Not needed while that sink is disabled.
+CREATE TABLE IF NOT EXISTS CUSTOM_AUTH_TOKEN_EVENT (
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    EVENT_TYPE VARCHAR(30) NOT NULL,
+    OCCURRED_AT TIMESTAMP NOT NULL,
+    PARAMETER_VALUE VARCHAR(512),
+    TOKEN_TYPE VARCHAR(100),
+    TOKEN_HASH VARCHAR(64),
+    FAILURE_REASON VARCHAR(40),
+    AFFECTED_COUNT BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS IDX_EVENT_OCCURRED_AT ON CUSTOM_AUTH_TOKEN_EVENT (OCCURRED_AT);
+
+CREATE INDEX IF NOT EXISTS IDX_EVENT_PARAM_TYPE ON CUSTOM_AUTH_TOKEN_EVENT (PARAMETER_VALUE, TOKEN_TYPE);
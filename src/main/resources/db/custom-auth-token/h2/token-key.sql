@@ -0,0 +1,5 @@
+-- Adds the compact 32-byte TOKEN_KEY column and its unique index to CUSTOM_AUTH_TOKEN.
+-- Run before upgrading any node; TokenKeyMigrator backfills the column afterwards.
+ALTER TABLE CUSTOM_AUTH_TOKEN ADD COLUMN IF NOT EXISTS TOKEN_KEY VARBINARY(32);
+
+CREATE UNIQUE INDEX IF NOT EXISTS IDX_TOKEN_KEY ON CUSTOM_AUTH_TOKEN (TOKEN_KEY);
@@ -0,0 +1,14 @@
+-- Creates the table written by the JDBC lifecycle event sink (event-jdbc-sink-enabled=true).
+-- Not needed while that sink is disabled.
+CREATE TABLE IF NOT EXISTS CUSTOM_AUTH_TOKEN_EVENT (
+    ID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    EVENT_TYPE VARCHAR(30) NOT NULL,
+    OCCURRED_AT DATETIME(6) NOT NULL,
+    PARAMETER_VALUE VARCHAR(512),
+    TOKEN_TYPE VARCHAR(100),
+    TOKEN_HASH VARCHAR(64),
+    FAILURE_REASON VARCHAR(40),
+    AFFECTED_COUNT BIGINT NOT NULL,
+    INDEX IDX_EVENT_OCCURRED_AT (OCCURRED_AT),
+    INDEX IDX_EVENT_PARAM_TYPE (PARAMETER_VALUE, TOKEN_TYPE)
+);
@@ -0,0 +1,6 @@
+-- Adds the compact 32-byte TOKEN_KEY column and its unique index to CUSTOM_AUTH_TOKEN.
+-- Run before upgrading any node; TokenKeyMigrator backfills the column afterwards.
+-- ALGORITHM=INSTANT needs MySQL 8.0.12 or later; drop it on older servers to fall back to an online rebuild.
+ALTER TABLE CUSTOM_AUTH_TOKEN ADD COLUMN TOKEN_KEY VARBINARY(32) NULL, ALGORITHM=INSTANT;
+
+CREATE UNIQUE INDEX IDX_TOKEN_KEY ON CUSTOM_AUTH_TOKEN (TOKEN_KEY) ALGORITHM=INPLACE LOCK=NONE;
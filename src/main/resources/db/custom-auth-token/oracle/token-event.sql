@@ -0,0 +1,16 @@
+-- Creates the table written by the JDBC lifecycle event sink (event-jdbc-sink-enabled=true).
+-- Not needed while that sink is disabled. Identity columns need Oracle 12c or later.
+CREATE TABLE CUSTOM_AUTH_TOKEN_EVENT (
+    ID NUMBER(19) GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    EVENT_TYPE VARCHAR2(30 CHAR) NOT NULL,
+    OCCURRED_AT TIMESTAMP NOT NULL,
+    PARAMETER_VALUE VARCHAR2(512 CHAR),
+    TOKEN_TYPE VARCHAR2(100 CHAR),
+    TOKEN_HASH VARCHAR2(64 CHAR),
+    FAILURE_REASON VARCHAR2(40 CHAR),
+    AFFECTED_COUNT NUMBER(19) NOT NULL
+);
+
+CREATE INDEX IDX_EVENT_OCCURRED_AT ON CUSTOM_AUTH_TOKEN_EVENT (OCCURRED_AT);
+
+CREATE INDEX IDX_EVENT_PARAM_TYPE ON CUSTOM_AUTH_TOKEN_EVENT (PARAMETER_VALUE, TOKEN_TYPE);
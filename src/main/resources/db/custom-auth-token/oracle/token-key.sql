@@ -0,0 +1,6 @@
+-- Adds the compact 32-byte TOKEN_KEY column and its unique index to CUSTOM_AUTH_TOKEN.
+-- Run before upgrading any node; TokenKeyMigrator backfills the column afterwards.
+-- Rows without a key are not entered in the unique index, so the backfill can run while it exists.
+ALTER TABLE CUSTOM_AUTH_TOKEN ADD (TOKEN_KEY RAW(32));
+
+CREATE UNIQUE INDEX IDX_TOKEN_KEY ON CUSTOM_AUTH_TOKEN (TOKEN_KEY) ONLINE;
@@ -0,0 +1,8 @@
+-- Creates the lock table used for the expired token cleanup lease and for serializing the supersede of
+-- active tokens per parameter. Required by the jpa and jdbc stores.
+CREATE TABLE CUSTOM_AUTH_TOKEN_LOCK (
+    LOCK_NAME VARCHAR2(64 CHAR) NOT NULL PRIMARY KEY,
+    LOCKED_BY VARCHAR2(255 CHAR) NOT NULL,
+    LOCKED_AT TIMESTAMP NOT NULL,
+    LOCKED_UNTIL TIMESTAMP NOT NULL
+);
@@ -0,0 +1,3 @@
+-- Drops the TOKEN_VALUE index. Run only once every node has compact-token-key=true and TokenKeyMigrator
+-- has logged that every token has a TOKEN_KEY. Cannot run inside a transaction block.
+DROP INDEX CONCURRENTLY IF EXISTS IDX_TOKEN_VALUE;
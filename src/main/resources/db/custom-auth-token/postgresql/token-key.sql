@@ -0,0 +1,7 @@
+-- Adds the compact 32-byte TOKEN_KEY column and its unique index to CUSTOM_AUTH_TOKEN.
+-- Run before upgrading any node; TokenKeyMigrator backfills the column afterwards.
+-- Adding a nullable column without a default only touches the catalog.
+ALTER TABLE CUSTOM_AUTH_TOKEN ADD COLUMN IF NOT EXISTS TOKEN_KEY BYTEA;
+
+-- CONCURRENTLY keeps writes flowing while the index builds; it cannot run inside a transaction block.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS IDX_TOKEN_KEY ON CUSTOM_AUTH_TOKEN (TOKEN_KEY);
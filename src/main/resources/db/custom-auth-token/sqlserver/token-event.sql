@@ -0,0 +1,19 @@
+-- Creates the table written by the JDBC lifecycle event sink (event-jdbc-sink-enabled=true).
+-- Not needed while that sink is disabled.
+CREATE TABLE CUSTOM_AUTH_TOKEN_EVENT (
+    ID BIGINT IDENTITY(1, 1) PRIMARY KEY,
+    EVENT_TYPE VARCHAR(30) NOT NULL,
+    OCCURRED_AT DATETIME2 NOT NULL,
+    PARAMETER_VALUE VARCHAR(512),
+    TOKEN_TYPE VARCHAR(100),
+    TOKEN_HASH VARCHAR(64),
+    FAILURE_REASON VARCHAR(40),
+    AFFECTED_COUNT BIGINT NOT NULL
+);
+GO
+
+CREATE INDEX IDX_EVENT_OCCURRED_AT ON CUSTOM_AUTH_TOKEN_EVENT (OCCURRED_AT);
+GO
+
+CREATE INDEX IDX_EVENT_PARAM_TYPE ON CUSTOM_AUTH_TOKEN_EVENT (PARAMETER_VALUE, TOKEN_TYPE);
+GO
@@ -0,0 +1,10 @@
+-- Adds the compact 32-byte TOKEN_KEY column and its unique index to CUSTOM_AUTH_TOKEN.
+-- Run before upgrading any node; TokenKeyMigrator backfills the column afterwards.
+ALTER TABLE CUSTOM_AUTH_TOKEN ADD TOKEN_KEY VARBINARY(32) NULL;
+GO
+
+-- SQL Server treats NULLs as equal in a unique index, so the index is filtered until the backfill completes.
+-- ONLINE = ON needs Enterprise edition; remove it elsewhere and run the statement in a quiet period.
+CREATE UNIQUE INDEX IDX_TOKEN_KEY ON CUSTOM_AUTH_TOKEN (TOKEN_KEY) WHERE TOKEN_KEY IS NOT NULL
+    WITH (ONLINE = ON);
+GO
@@ -0,0 +1,9 @@
+-- Creates the lock table used for the expired token cleanup lease and for serializing the supersede of
+-- active tokens per parameter. Required by the jpa and jdbc stores.
+CREATE TABLE CUSTOM_AUTH_TOKEN_LOCK (
+    LOCK_NAME VARCHAR(64) NOT NULL PRIMARY KEY,
+    LOCKED_BY VARCHAR(255) NOT NULL,
+    LOCKED_AT DATETIME2 NOT NULL,
+    LOCKED_UNTIL DATETIME2 NOT NULL
+);
+GO
@@ -0,0 +1,7 @@
+package com.xeoscript.modules.customauthtoken;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class TokenTestApplication {
+}
@@ -0,0 +1,187 @@
+package com.xeoscript.modules.customauthtoken.event;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.model.dto.TokenLifecycleEvent;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenLifecycleEventPublisherTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch sinkEntered = new CountDownLatch(1);
+
+    private final CountDownLatch sinkReleased = new CountDownLatch(1);
+
+    private TokenLifecycleEventPublisher publisher;
+
+    @AfterEach
+    void stop() {
+        sinkReleased.countDown();
+        publisher.stop();
+    }
+
+    @Test
+    void fullBatchesAreDispatchedWithoutWaitingForTheInterval() throws InterruptedException {
+        start(TokenEventOverflowPolicy.DROP, 1024, 10, 60000, 10, false);
+
+        publish(25);
+        await(() -> publisher.getDeliveredCount(), 20);
+        assertEquals(Arrays.asList(10, 10), batchSizes);
+
+        publisher.stop();
+        assertEquals(25, publisher.getDeliveredCount());
+        assertEquals(Arrays.asList(10, 10, 5), batchSizes);
+    }
+
+    @Test
+    void partialBatchIsDispatchedAfterTheInterval() throws InterruptedException {
+        start(TokenEventOverflowPolicy.DROP, 1024, 100, 50, 10, false);
+
+        publish(3);
+        await(() -> publisher.getDeliveredCount(), 3);
+        assertEquals(Arrays.asList(3), batchSizes);
+    }
+
+    @Test
+    void dropDiscardsEventsOnceTheBufferIsFull() throws InterruptedException {
+        start(TokenEventOverflowPolicy.DROP, 4, 1, 1, 10, true);
+        blockConsumer();
+
+        publish(7);
+        assertEquals(5, publisher.getPublishedCount());
+        assertEquals(3, publisher.getDroppedCount());
+
+        sinkReleased.countDown();
+        await(() -> publisher.getDeliveredCount(), 5);
+    }
+
+    @Test
+    void blockWaitsForSpaceInsteadOfDropping() throws Exception {
+        start(TokenEventOverflowPolicy.BLOCK, 4, 1, 1, 10, true);
+        blockConsumer();
+        publish(4);
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> publish(1));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        sinkReleased.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        await(() -> publisher.getDeliveredCount(), 6);
+        assertEquals(0, publisher.getDroppedCount());
+    }
+
+    @Test
+    void sampleKeepsOneInRateOnceHalfFull() throws InterruptedException {
+        start(TokenEventOverflowPolicy.SAMPLE, 8, 1, 1, 2, true);
+        blockConsumer();
+
+        publish(10);
+        assertEquals(3, publisher.getSampledOutCount());
+        assertEquals(8, publisher.getPublishedCount());
+        assertEquals(0, publisher.getDroppedCount());
+
+        sinkReleased.countDown();
+        await(() -> publisher.getDeliveredCount(), 8);
+    }
+
+    @Test
+    void eventsInsideATransactionWaitForCommit() throws InterruptedException {
+        start(TokenEventOverflowPolicy.DROP, 1024, 1, 1, 10, false);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            publish(2);
+            assertEquals(0, publisher.getPublishedCount());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(2, publisher.getPublishedCount());
+        await(() -> publisher.getDeliveredCount(), 2);
+    }
+
+    @Test
+    void eventsOfARolledBackTransactionAreNeverPublished() {
+        start(TokenEventOverflowPolicy.DROP, 1024, 1, 1, 10, false);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            publish(2);
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(0, publisher.getPublishedCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(TokenEventOverflowPolicy policy, int capacity, int batchSize, long flushIntervalMs,
+                       int sampleRate, boolean blockingSink) {
+        TokenProperties properties = mock(TokenProperties.class);
+        when(properties.isEventPublisherEnabled()).thenReturn(true);
+        when(properties.getEventBufferCapacity()).thenReturn(capacity);
+        when(properties.getEventBatchSize()).thenReturn(batchSize);
+        when(properties.getEventFlushIntervalMs()).thenReturn(flushIntervalMs);
+        when(properties.getEventOverflowPolicy()).thenReturn(policy.name());
+        when(properties.getEventSampleRate()).thenReturn(sampleRate);
+
+        TokenLifecycleEventSink sink = events -> record(events, blockingSink);
+        ObjectProvider<TokenLifecycleEventSink> sinks = mock(ObjectProvider.class);
+        when(sinks.orderedStream()).thenAnswer(invocation -> Stream.of(sink));
+
+        publisher = new TokenLifecycleEventPublisher(new TokenHasher(), properties, sinks);
+        publisher.start();
+    }
+
+    private void record(List<TokenLifecycleEvent> events, boolean blockingSink) {
+        sinkEntered.countDown();
+        if (blockingSink) {
+            try {
+                sinkReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        batchSizes.add(events.size());
+    }
+
+    private void blockConsumer() throws InterruptedException {
+        publish(1);
+        assertTrue(sinkEntered.await(5, TimeUnit.SECONDS));
+    }
+
+    private void publish(int count) {
+        for (int i = 0; i < count; i++) {
+            publisher.publishGenerated("user@example.com", null, "token-" + i);
+        }
+    }
+
+    private static void await(LongSupplier value, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (value.getAsLong() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, value.getAsLong());
+    }
+}
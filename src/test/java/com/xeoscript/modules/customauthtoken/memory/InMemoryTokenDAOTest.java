@@ -0,0 +1,57 @@
+package com.xeoscript.modules.customauthtoken.memory;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryTokenDAOTest {
+
+    private final InMemoryTokenDAO tokenDAO = new InMemoryTokenDAO(new TokenQueryCounter(), 1000, 0);
+
+    @Test
+    void invalidateAllByTypeResumesWhereThePreviousChunkStopped() {
+        for (int i = 0; i < 10; i++) {
+            tokenDAO.save(token("token-" + i, "user-" + i, "EMAIL"));
+        }
+        tokenDAO.save(token("other", "user-0", "SMS"));
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(4, tokenDAO.invalidateAllChunk(null, "EMAIL", now, 4));
+        assertEquals(4, tokenDAO.invalidateAllChunk(null, "EMAIL", now, 4));
+        assertEquals(2, tokenDAO.invalidateAllChunk(null, "EMAIL", now, 4));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(TokenStatus.INVALIDATED, tokenDAO.findByTokenValue("token-" + i).getStatus());
+        }
+        assertEquals(TokenStatus.ACTIVE, tokenDAO.findByTokenValue("other").getStatus());
+    }
+
+    @Test
+    void exactlyFullLastChunkEndsWithAnEmptyChunk() {
+        for (int i = 0; i < 4; i++) {
+            tokenDAO.save(token("token-" + i, "user-" + i, "EMAIL"));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(4, tokenDAO.invalidateAllChunk(null, "EMAIL", now, 4));
+        assertEquals(0, tokenDAO.invalidateAllChunk(null, "EMAIL", now, 4));
+    }
+
+    private static TokenEntity token(String tokenValue, String parameter, String tokenType) {
+        TokenEntity entity = new TokenEntity();
+        entity.setTokenValue(tokenValue);
+        entity.setParameterValue(parameter);
+        entity.setTokenType(tokenType);
+        entity.setStatus(TokenStatus.ACTIVE);
+        entity.setExpiryTime(LocalDateTime.now().plusHours(1));
+        entity.setUsageLimit(1);
+        entity.setHashingMode(HashingMode.NONE.name());
+        return entity;
+    }
+}
@@ -0,0 +1,101 @@
+package com.xeoscript.modules.customauthtoken.metrics;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.event.TokenLifecycleEventPublisher;
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.replica.TokenReadReplica;
+import com.xeoscript.modules.customauthtoken.services.internal.ExpiredTokenCleanupScheduler;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNearCache;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNegativeLookupFilter;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenPool;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenValidationRateLimiter;
+import com.xeoscript.modules.customauthtoken.services.internal.UsageWriteBehindBuffer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MicrometerTokenMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private MicrometerTokenMetrics metrics;
+
+    @AfterEach
+    void stop() {
+        metrics.stop();
+    }
+
+    @Test
+    void validationTagsOnlyGeneratedTokenTypes() {
+        metrics = start("", 2);
+
+        metrics.onGenerated("EMAIL", HashingMode.NONE, 1);
+        for (int i = 0; i < 1000; i++) {
+            metrics.onValidated("probe-" + i, ValidationFailureReason.NOT_FOUND, 1);
+        }
+        metrics.onValidated("EMAIL", null, 1);
+        metrics.onValidated(null, ValidationFailureReason.NOT_FOUND, 1);
+
+        assertEquals(setOf("EMAIL", "other", "none"), tokenTypeTags());
+    }
+
+    @Test
+    void generatedTokenTypesAreCapped() {
+        metrics = start("", 2);
+
+        for (int i = 0; i < 10; i++) {
+            metrics.onGenerated("type-" + i, HashingMode.NONE, 1);
+        }
+
+        assertEquals(setOf("type-0", "type-1", "other"), tokenTypeTags());
+    }
+
+    @Test
+    void allowListIgnoresGeneratedTokenTypes() {
+        metrics = start("EMAIL, SMS", 50);
+
+        metrics.onGenerated("PUSH", HashingMode.NONE, 1);
+        metrics.onValidated("PUSH", null, 1);
+        metrics.onValidated("SMS", null, 1);
+
+        assertEquals(setOf("SMS", "other"), tokenTypeTags());
+    }
+
+    private MicrometerTokenMetrics start(String tokenTypes, int maxTokenTypes) {
+        TokenProperties properties = mock(TokenProperties.class);
+        when(properties.getMetricsTokenTypes()).thenReturn(tokenTypes);
+        when(properties.getMetricsMaxTokenTypes()).thenReturn(maxTokenTypes);
+        when(properties.getMetricsSampleIntervalSeconds()).thenReturn(3600);
+
+        MicrometerTokenMetrics started = new MicrometerTokenMetrics(registry, mock(TokenDAO.class), properties,
+                mock(TokenNegativeLookupFilter.class), mock(TokenNearCache.class),
+                mock(UsageWriteBehindBuffer.class), mock(ExpiredTokenCleanupScheduler.class),
+                mock(TokenPool.class), mock(TokenValidationRateLimiter.class),
+                mock(TokenLifecycleEventPublisher.class), mock(TokenReadReplica.class));
+        started.start();
+        return started;
+    }
+
+    private Set<String> tokenTypeTags() {
+        return registry.getMeters().stream()
+                .map(Meter::getId)
+                .map(id -> id.getTag("tokenType"))
+                .filter(tag -> tag != null)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> setOf(String... values) {
+        return Stream.of(values).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,152 @@
+package com.xeoscript.modules.customauthtoken.partition;
+
+import com.xeoscript.modules.customauthtoken.TokenTestApplication;
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jdbc.JdbcTokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import com.xeoscript.modules.customauthtoken.util.HexCodec;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPartitionRegistryTest {
+
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    private ConfigurableApplicationContext context;
+
+    private TokenPartitionRegistry registry;
+
+    private TokenDAO tokenDAO;
+
+    private TokenQueryCounter queryCounter;
+
+    @BeforeEach
+    void start() {
+        context = new SpringApplicationBuilder(TokenTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:h2:mem:partitioned-" + DATABASE_SEQUENCE.incrementAndGet()
+                                + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.custom-auth-token.store=partitioned",
+                        "spring.custom-auth-token.partition-miss-refresh-interval-ms=0")
+                .run();
+        registry = context.getBean(TokenPartitionRegistry.class);
+        tokenDAO = context.getBean(TokenDAO.class);
+        queryCounter = context.getBean(TokenQueryCounter.class);
+    }
+
+    @AfterEach
+    void close() {
+        context.close();
+    }
+
+    @Test
+    void precreatesTodayAndTheNextTwoDays() {
+        List<TokenPartition> partitions = registry.getPartitions();
+        LocalDateTime today = TokenPartitionInterval.DAILY.floor(LocalDateTime.now());
+
+        assertEquals(3, partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            assertEquals(today.plusDays(i), partitions.get(i).getStart());
+        }
+        assertEquals(3, registry.getCreatedPartitionCount());
+    }
+
+    @Test
+    void createsPartitionBeyondTheHorizonAndValidatesInTwoStatements() {
+        long created = registry.getCreatedPartitionCount();
+        String token = context.getBean(TokenService.class).generate(TokenRequest.builder()
+                .parameter("user@example.com")
+                .validityDuration(Duration.ofDays(5))
+                .build()).getToken();
+
+        assertEquals(created + 1, registry.getCreatedPartitionCount());
+        assertEquals(4, registry.getPartitions().size());
+
+        queryCounter.reset();
+        String hashed = HexCodec.encode(TokenHasher.digest(token));
+        assertNotNull(tokenDAO.findByRawTokenValue(token, hashed));
+        assertEquals(1, queryCounter.reset());
+
+        assertTrue(tokenDAO.validateAndIncrement(token, hashed, "user@example.com", null, LocalDateTime.now())
+                .isValid());
+        assertEquals(2, queryCounter.reset());
+    }
+
+    @Test
+    void dropRemovesTheTableAndItsRows() {
+        TokenPartition today = registry.getPartitions().get(0);
+        save(today.getTokenDAO(), "dropped", LocalDateTime.now().plusMinutes(1));
+
+        assertEquals(1, registry.drop(today));
+        assertEquals(2, registry.getPartitions().size());
+        assertEquals(1, registry.getDroppedPartitionCount());
+        assertNull(tokenDAO.findByTokenValue("dropped"));
+    }
+
+    @Test
+    void genuineMissDoesNotRefresh() {
+        long refreshes = registry.getMissRefreshCount();
+
+        assertNull(tokenDAO.findByTokenValue("unknown"));
+        assertFalse(registry.refreshOnMiss(LocalDateTime.now()));
+        assertEquals(refreshes, registry.getMissRefreshCount());
+    }
+
+    @Test
+    void missOnAnUnknownBucketRefreshes() throws Exception {
+        TokenPartition tomorrow = registry.getPartitions().get(1);
+        registry.drop(tomorrow);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        TokenProperties properties = context.getBean(TokenProperties.class);
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            TokenPartitionSchema.create(connection, tomorrow.getTableName(),
+                    tomorrow.getInterval().suffix(tomorrow.getStart()), properties.isCompactTokenKey());
+        }
+        save(new JdbcTokenDAO(jdbcTemplate, queryCounter, properties, tomorrow.getTableName(),
+                context.getBean(PlatformTransactionManager.class)), "elsewhere", tomorrow.getStart().plusHours(1));
+
+        long refreshes = registry.getMissRefreshCount();
+        assertNotNull(tokenDAO.findByTokenValue("elsewhere"));
+        assertEquals(refreshes + 1, registry.getMissRefreshCount());
+        assertEquals(3, registry.getPartitions().size());
+    }
+
+    private static void save(JdbcTokenDAO partitionDAO, String tokenValue, LocalDateTime expiryTime) {
+        TokenEntity entity = new TokenEntity();
+        entity.setTokenValue(tokenValue);
+        entity.setParameterValue("user@example.com");
+        entity.setStatus(TokenStatus.ACTIVE);
+        entity.setExpiryTime(expiryTime);
+        entity.setHashingMode("NONE");
+        partitionDAO.save(entity);
+    }
+}
@@ -0,0 +1,137 @@
+package com.xeoscript.modules.customauthtoken.replica;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.HashingMode;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import com.xeoscript.modules.customauthtoken.shard.TokenShardSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-primary;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.custom-auth-token.read-replica-jdbc-url=" + TokenReadReplicaTest.REPLICA_URL,
+        "spring.custom-auth-token.read-replica-max-lag-ms=" + TokenReadReplicaTest.MAX_LAG_MS,
+        "spring.custom-auth-token.read-replica-lag-check-interval-ms=3600000"
+})
+class TokenReadReplicaTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-secondary;DB_CLOSE_DELAY=-1";
+
+    static final long MAX_LAG_MS = 200;
+
+    private final JdbcTemplate replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL));
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TokenReadReplica readReplica;
+
+    @Autowired
+    private TokenDAO tokenDAO;
+
+    @Autowired
+    private JdbcTemplate primaryJdbcTemplate;
+
+    @Autowired
+    private TokenQueryCounter queryCounter;
+
+    @BeforeEach
+    void catchUp() {
+        replicate();
+        readReplica.checkLag();
+        queryCounter.reset();
+    }
+
+    @Test
+    void caughtUpReplicaAnswersMissWithoutPrimary() {
+        long fallbacks = readReplica.getFallbackCount();
+
+        assertEquals(ValidationFailureReason.NOT_FOUND, validate("user@example.com", "unknown").getFailureReason());
+
+        assertEquals(1, queryCounter.reset());
+        assertEquals(fallbacks, readReplica.getFallbackCount());
+    }
+
+    @Test
+    void replicatedTokenIsReadFromReplica() {
+        String token = generate("replicated@example.com");
+        replicate();
+        readReplica.checkLag();
+        long hits = readReplica.getHitCount();
+
+        assertTrue(validate("replicated@example.com", token).isValid());
+        assertEquals(hits + 1, readReplica.getHitCount());
+    }
+
+    @Test
+    void locallyGeneratedTokenFallsBackUntilReplicated() {
+        long fallbacks = readReplica.getFallbackCount();
+        String token = generate("local@example.com");
+
+        assertTrue(validate("local@example.com", token).isValid());
+        assertEquals(fallbacks + 1, readReplica.getFallbackCount());
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() throws InterruptedException {
+        saveFromAnotherNode("remote-token", "remote@example.com");
+        readReplica.checkLag();
+        Thread.sleep(MAX_LAG_MS * 2);
+        long fallbacks = readReplica.getFallbackCount();
+
+        assertTrue(validate("remote@example.com", "remote-token").isValid());
+        assertEquals(fallbacks + 1, readReplica.getFallbackCount());
+    }
+
+    private String generate(String parameter) {
+        return tokenService.generate(TokenRequest.builder().parameter(parameter).usageLimit(5).build()).getToken();
+    }
+
+    private ValidationResult validate(String parameter, String token) {
+        return tokenService.validate(ValidateTokenRequest.builder().parameter(parameter).token(token).build());
+    }
+
+    private void saveFromAnotherNode(String token, String parameter) {
+        TokenEntity entity = new TokenEntity();
+        entity.setTokenValue(token);
+        entity.setParameterValue(parameter);
+        entity.setStatus(TokenStatus.ACTIVE);
+        entity.setExpiryTime(LocalDateTime.now().plusHours(1));
+        entity.setUsageLimit(5);
+        entity.setHashingMode(HashingMode.NONE.name());
+        tokenDAO.save(entity);
+    }
+
+    private void replicate() {
+        TokenShardSchema.initialize(replicaJdbcTemplate, false);
+        replicaJdbcTemplate.update("DELETE FROM CUSTOM_AUTH_TOKEN");
+        for (Map<String, Object> row : primaryJdbcTemplate.queryForList("SELECT * FROM CUSTOM_AUTH_TOKEN")) {
+            List<String> columns = new ArrayList<>(row.keySet());
+            replicaJdbcTemplate.update("INSERT INTO CUSTOM_AUTH_TOKEN (" + String.join(", ", columns)
+                            + ") VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")",
+                    row.values().toArray());
+        }
+    }
+}
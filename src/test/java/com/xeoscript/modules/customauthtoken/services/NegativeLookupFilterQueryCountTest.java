@@ -0,0 +1,67 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import com.xeoscript.modules.customauthtoken.services.internal.TokenNegativeLookupFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.custom-auth-token.negative-filter-enabled=true",
+        "spring.custom-auth-token.negative-filter-trust-misses=true"
+})
+class NegativeLookupFilterQueryCountTest {
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TokenNegativeLookupFilter negativeLookupFilter;
+
+    @Autowired
+    private TokenQueryCounter queryCounter;
+
+    private String token;
+
+    @BeforeEach
+    void generate() throws InterruptedException {
+        while (!negativeLookupFilter.isReady()) {
+            Thread.sleep(10);
+        }
+        token = tokenService.generate(TokenRequest.builder().parameter("user@example.com").usageLimit(1).build())
+                .getToken();
+        queryCounter.reset();
+    }
+
+    @Test
+    void definiteMissIssuesNoQueries() {
+        long misses = negativeLookupFilter.getDefiniteMissCount();
+
+        assertEquals(ValidationFailureReason.NOT_FOUND, validate("user@example.com", "unknown").getFailureReason());
+        assertEquals(0, queryCounter.reset());
+        assertEquals(misses + 1, negativeLookupFilter.getDefiniteMissCount());
+    }
+
+    @Test
+    void invalidatingUnknownTokenIssuesNoQueries() {
+        tokenService.invalidate("unknown");
+        assertEquals(0, queryCounter.reset());
+    }
+
+    @Test
+    void tokenGeneratedAfterRebuildStillValidates() {
+        assertTrue(validate("user@example.com", token).isValid());
+    }
+
+    private ValidationResult validate(String parameter, String token) {
+        return tokenService.validate(ValidateTokenRequest.builder().parameter(parameter).token(token).build());
+    }
+}
@@ -0,0 +1,151 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+import com.xeoscript.modules.customauthtoken.TokenTestApplication;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.TransientDataAccessException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TokenUsageLimitConcurrencyTest {
+
+    private static final int THREADS = 64;
+
+    private static final int ATTEMPTS_PER_THREAD = 4;
+
+    private static final int USAGE_LIMIT = 25;
+
+    private static final int ROUNDS = 3;
+
+    private static final int MAX_RETRIES = 5;
+
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    static Stream<Arguments> stores() {
+        return Stream.of(
+                Arguments.of("jpa", false),
+                Arguments.of("jpa", true),
+                Arguments.of("jdbc", false),
+                Arguments.of("jdbc", true),
+                Arguments.of("memory", false),
+                Arguments.of("memory", true));
+    }
+
+    @ParameterizedTest(name = "store={0}, single-statement-validation={1}")
+    @MethodSource("stores")
+    void concurrentValidationsSucceedExactlyUsageLimitTimes(String store, boolean singleStatement) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        try (ConfigurableApplicationContext context = start(store, singleStatement)) {
+            TokenService tokenService = context.getBean(TokenService.class);
+            TokenDAO tokenDAO = context.getBean(TokenDAO.class);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                runRound(tokenService, tokenDAO, workers, "stress-" + round);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void runRound(TokenService tokenService, TokenDAO tokenDAO, ExecutorService workers,
+                                 String parameter) throws Exception {
+        String token = tokenService.generate(TokenRequest.builder()
+                        .parameter(parameter)
+                        .usageLimit(USAGE_LIMIT)
+                        .validityDuration(Duration.ofHours(1))
+                        .build())
+                .getToken();
+        ValidateTokenRequest request = ValidateTokenRequest.builder()
+                .parameter(parameter)
+                .token(token)
+                .build();
+
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger exhausted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(workers.submit(() -> {
+                start.await();
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    ValidationResult result = validateWithRetry(tokenService, request);
+                    if (result.isValid()) {
+                        successes.incrementAndGet();
+                    } else {
+                        assertEquals(ValidationFailureReason.USAGE_LIMIT_EXCEEDED, result.getFailureReason());
+                        exhausted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertEquals(USAGE_LIMIT, successes.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - USAGE_LIMIT, exhausted.get());
+
+        TokenEntity stored = tokenDAO.findByTokenValue(token);
+        assertNotNull(stored);
+        assertEquals(USAGE_LIMIT, stored.getUsageCount());
+        assertEquals(TokenStatus.USED, stored.getStatus());
+    }
+
+    private static ValidationResult validateWithRetry(TokenService tokenService, ValidateTokenRequest request) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return tokenService.validate(request);
+            } catch (TransientDataAccessException e) {
+                if (attempt >= MAX_RETRIES) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String store, boolean singleStatement) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:usage-limit-" + DATABASE_SEQUENCE.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        properties.put("spring.datasource.hikari.maximum-pool-size", THREADS);
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.custom-auth-token.store", store);
+        properties.put("spring.custom-auth-token.single-statement-validation", singleStatement);
+
+        return new SpringApplicationBuilder(TokenTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,133 @@
+package com.xeoscript.modules.customauthtoken.services;
+
+import com.xeoscript.modules.customauthtoken.TokenTestApplication;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.model.enums.ValidationFailureReason;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.model.request.ValidateTokenRequest;
+import com.xeoscript.modules.customauthtoken.model.response.ValidationResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenValidationQueryCountTest {
+
+    private static final Map<Mode, ConfigurableApplicationContext> CONTEXTS = new EnumMap<>(Mode.class);
+
+    enum Mode {
+        DEFAULT(false, 3, 1, 2),
+        SINGLE_STATEMENT(true, 1, 1, 1);
+
+        private final boolean singleStatement;
+
+        private final long success;
+
+        private final long notFound;
+
+        private final long failure;
+
+        Mode(boolean singleStatement, long success, long notFound, long failure) {
+            this.singleStatement = singleStatement;
+            this.success = success;
+            this.notFound = notFound;
+            this.failure = failure;
+        }
+    }
+
+    @AfterAll
+    static void close() {
+        CONTEXTS.values().forEach(ConfigurableApplicationContext::close);
+        CONTEXTS.clear();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void success(Mode mode) {
+        TokenService tokenService = tokenService(mode);
+        String token = generate(mode);
+
+        assertTrue(validate(tokenService, "user@example.com", token).isValid());
+        assertEquals(mode.success, queryCounter(mode).reset());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void unknownToken(Mode mode) {
+        TokenService tokenService = tokenService(mode);
+        generate(mode);
+
+        assertEquals(ValidationFailureReason.NOT_FOUND,
+                validate(tokenService, "user@example.com", "unknown").getFailureReason());
+        assertEquals(mode.notFound, queryCounter(mode).reset());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void parameterMismatch(Mode mode) {
+        TokenService tokenService = tokenService(mode);
+        String token = generate(mode);
+
+        ValidationResult result = validate(tokenService, "other@example.com", token);
+
+        assertFalse(result.isValid());
+        assertEquals(ValidationFailureReason.PARAMETER_MISMATCH, result.getFailureReason());
+        assertEquals(mode.failure, queryCounter(mode).reset());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void exhaustedToken(Mode mode) {
+        TokenService tokenService = tokenService(mode);
+        String token = generate(mode);
+
+        assertTrue(validate(tokenService, "user@example.com", token).isValid());
+        queryCounter(mode).reset();
+
+        assertEquals(ValidationFailureReason.USAGE_LIMIT_EXCEEDED,
+                validate(tokenService, "user@example.com", token).getFailureReason());
+        assertEquals(mode.failure, queryCounter(mode).reset());
+    }
+
+    private static String generate(Mode mode) {
+        String token = tokenService(mode)
+                .generate(TokenRequest.builder().parameter("user@example.com").usageLimit(1).build())
+                .getToken();
+        queryCounter(mode).reset();
+        return token;
+    }
+
+    private static ValidationResult validate(TokenService tokenService, String parameter, String token) {
+        return tokenService.validate(ValidateTokenRequest.builder().parameter(parameter).token(token).build());
+    }
+
+    private static TokenService tokenService(Mode mode) {
+        return context(mode).getBean(TokenService.class);
+    }
+
+    private static TokenQueryCounter queryCounter(Mode mode) {
+        return context(mode).getBean(TokenQueryCounter.class);
+    }
+
+    private static ConfigurableApplicationContext context(Mode mode) {
+        return CONTEXTS.computeIfAbsent(mode, key -> new SpringApplicationBuilder(TokenTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:h2:mem:query-count-" + key.name().toLowerCase()
+                                + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.custom-auth-token.single-statement-validation=" + key.singleStatement)
+                .run());
+    }
+}
@@ -0,0 +1,130 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.services.TokenInvalidationHook;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TokenNearCacheTest {
+
+    private final TokenInvalidationHook hook = mock(TokenInvalidationHook.class);
+
+    private TokenNearCache nearCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void start() {
+        TokenProperties properties = mock(TokenProperties.class);
+        when(properties.isNearCacheEnabled()).thenReturn(true);
+        when(properties.getNearCacheMaxEntries()).thenReturn(100);
+        when(properties.getNearCacheTtlSeconds()).thenReturn(60);
+
+        ObjectProvider<TokenInvalidationHook> hooks = mock(ObjectProvider.class);
+        when(hooks.orderedStream()).thenAnswer(invocation -> Stream.of(hook));
+
+        nearCache = new TokenNearCache(new TokenHasher(), properties, hooks);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bulkInvalidationNotifiesHooksWithNothingCached() {
+        assertEquals(0, nearCache.invalidateMatching("user@example.com", null));
+        verify(hook).onInvalidatedMatching("user@example.com", null);
+    }
+
+    @Test
+    void supersedeNotifiesHooksWithNothingCached() {
+        assertEquals(0, nearCache.invalidateParameter("user@example.com", "EMAIL"));
+        verify(hook).onInvalidatedMatching("user@example.com", "EMAIL");
+    }
+
+    @Test
+    void hooksWaitForCommit() {
+        nearCache.put(nearCache.ticket("stored"), "stored", "user@example.com", null,
+                LocalDateTime.now().plusMinutes(5));
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertEquals(1, nearCache.invalidateMatching("user@example.com", null));
+        nearCache.invalidate("other");
+        assertNull(nearCache.get("stored"));
+        verify(hook, never()).onInvalidatedMatching("user@example.com", null);
+        verify(hook, never()).onInvalidated("other");
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(hook).onInvalidatedMatching("user@example.com", null);
+        verify(hook).onInvalidated("other");
+    }
+
+    @Test
+    void putIsDiscardedWhenInvalidationRacesTheRead() {
+        NearCacheTicket ticket = nearCache.ticket("raw");
+        TransactionSynchronizationManager.initSynchronization();
+        nearCache.put(ticket, ticket.getHashedToken(), "user@example.com", null, LocalDateTime.now().plusMinutes(5));
+        assertNull(nearCache.get("raw"));
+
+        nearCache.invalidate(ticket.getHashedToken());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertNull(nearCache.get("raw"));
+        assertEquals(1, nearCache.getDiscardedPutCount());
+    }
+
+    @Test
+    void remoteEvictionDoesNotEchoToHooks() {
+        nearCache.put(nearCache.ticket("stored"), "stored", "user@example.com", null,
+                LocalDateTime.now().plusMinutes(5));
+        nearCache.put(nearCache.ticket("other"), "other", "admin@example.com", "EMAIL",
+                LocalDateTime.now().plusMinutes(5));
+
+        nearCache.evictRemote("stored");
+        assertEquals(1, nearCache.evictRemoteMatching(null, "EMAIL"));
+
+        assertNull(nearCache.get("stored"));
+        assertNull(nearCache.get("other"));
+        verifyNoInteractions(hook);
+    }
+
+    @Test
+    void putIsDiscardedWhenRemoteEvictionRacesTheRead() {
+        NearCacheTicket ticket = nearCache.ticket("raw");
+        TransactionSynchronizationManager.initSynchronization();
+        nearCache.put(ticket, ticket.getHashedToken(), "user@example.com", null, LocalDateTime.now().plusMinutes(5));
+
+        nearCache.evictRemote(ticket.getHashedToken());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertNull(nearCache.get("raw"));
+        assertEquals(1, nearCache.getDiscardedPutCount());
+    }
+
+    @Test
+    void putWithoutRaceIsCached() {
+        NearCacheTicket ticket = nearCache.ticket("raw");
+        nearCache.put(ticket, ticket.getHashedToken(), "user@example.com", null, LocalDateTime.now().plusMinutes(5));
+
+        assertNotNull(nearCache.get("raw"));
+    }
+}
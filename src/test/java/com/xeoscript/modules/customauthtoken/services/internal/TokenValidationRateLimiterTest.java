@@ -0,0 +1,91 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenValidationRateLimiterTest {
+
+    @Test
+    void rejectsOnceBurstIsSpent() {
+        TokenValidationRateLimiter limiter = start(3, 100000);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("user@example.com", null));
+        }
+        assertFalse(limiter.tryAcquire("user@example.com", null));
+        assertTrue(limiter.tryAcquire("user@example.com", "EMAIL"));
+        assertEquals(1, limiter.getRejectionCount());
+    }
+
+    @Test
+    void releasedUnitsCanBeSpentAgain() {
+        TokenValidationRateLimiter limiter = start(2, 100000);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("user@example.com", null));
+            limiter.release("user@example.com", null);
+        }
+        assertTrue(limiter.tryAcquire("user@example.com", null));
+        assertTrue(limiter.tryAcquire("user@example.com", null));
+        assertFalse(limiter.tryAcquire("user@example.com", null));
+    }
+
+    @Test
+    void floodingNewKeysDoesNotEvictThrottledBuckets() {
+        TokenValidationRateLimiter limiter = start(3, 64 * 4);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("victim", null);
+        }
+        for (int i = 0; i < 10000; i++) {
+            limiter.tryAcquire("attacker-" + i, null);
+            assertFalse(limiter.tryAcquire("victim", null));
+        }
+        assertEquals(0, limiter.getEvictionCount());
+        assertTrue(limiter.getSaturatedRejectionCount() > 0);
+        assertTrue(limiter.size() <= 64 * 4);
+    }
+
+    @Test
+    void cyclingMoreKeysThanTheLimiterHoldsDoesNotResetThem() {
+        TokenValidationRateLimiter limiter = start(1, 64 * 4);
+
+        int acquired = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 64 * 8; i++) {
+                if (limiter.tryAcquire("attacker-" + i, null)) {
+                    acquired++;
+                }
+            }
+        }
+        assertEquals(64 * 4, acquired);
+    }
+
+    @Test
+    void drainedBucketsMakeRoomForNewKeys() {
+        TokenValidationRateLimiter limiter = start(3, 64 * 4);
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(limiter.tryAcquire("user-" + i, null));
+            limiter.release("user-" + i, null);
+        }
+        assertTrue(limiter.getEvictionCount() > 0);
+        assertEquals(0, limiter.getSaturatedRejectionCount());
+        assertTrue(limiter.size() <= 64 * 4);
+    }
+
+    private static TokenValidationRateLimiter start(int maxFailures, int maxKeys) {
+        TokenProperties properties = mock(TokenProperties.class);
+        when(properties.isRateLimitEnabled()).thenReturn(true);
+        when(properties.getRateLimitMaxFailures()).thenReturn(maxFailures);
+        when(properties.getRateLimitWindowSeconds()).thenReturn(300);
+        when(properties.getRateLimitMaxKeys()).thenReturn(maxKeys);
+        return new TokenValidationRateLimiter(properties);
+    }
+}
@@ -0,0 +1,75 @@
+package com.xeoscript.modules.customauthtoken.services.internal;
+
+import com.xeoscript.modules.customauthtoken.config.TokenProperties;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.model.dto.UsageDelta;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UsageWriteBehindBufferTest {
+
+    private static final int THREADS = 8;
+
+    private static final int RECORDS_PER_THREAD = 50_000;
+
+    private static final int TOKENS = 4;
+
+    private final ConcurrentHashMap<String, LongAdder> applied = new ConcurrentHashMap<>();
+
+    @Test
+    void noUseIsLostWhileFlushesRetireCounters() throws Exception {
+        TokenDAO tokenDAO = mock(TokenDAO.class);
+        when(tokenDAO.applyUsageDeltas(anyList())).thenAnswer(invocation -> {
+            List<UsageDelta> deltas = invocation.getArgument(0);
+            for (UsageDelta delta : deltas) {
+                applied.computeIfAbsent(delta.getStoredTokenValue(), key -> new LongAdder())
+                        .add(delta.getUsageCount());
+            }
+            return (long) deltas.size();
+        });
+        TokenProperties properties = mock(TokenProperties.class);
+        when(properties.getWriteBehindMaxPendingTokens()).thenReturn(Integer.MAX_VALUE);
+        UsageWriteBehindBuffer buffer = new UsageWriteBehindBuffer(tokenDAO, properties);
+
+        ExecutorService writers = Executors.newFixedThreadPool(THREADS);
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                done.add(CompletableFuture.runAsync(() -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                        buffer.record("token-" + (i % TOKENS), now);
+                    }
+                }, writers));
+            }
+            while (done.stream().anyMatch(future -> !future.isDone())) {
+                buffer.flush();
+            }
+            for (CompletableFuture<Void> future : done) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+        buffer.flush();
+
+        long total = applied.values().stream().mapToLong(LongAdder::sum).sum();
+        assertEquals((long) THREADS * RECORDS_PER_THREAD, total);
+        assertEquals(total, buffer.getRecordedCount());
+        assertEquals(0, buffer.getPendingTokenCount());
+    }
+}
@@ -0,0 +1,180 @@
+package com.xeoscript.modules.customauthtoken.shard;
+
+import com.xeoscript.modules.customauthtoken.TokenTestApplication;
+import com.xeoscript.modules.customauthtoken.dao.TokenDAO;
+import com.xeoscript.modules.customauthtoken.dao.TokenQueryCounter;
+import com.xeoscript.modules.customauthtoken.jpa.entity.TokenEntity;
+import com.xeoscript.modules.customauthtoken.model.enums.TokenStatus;
+import com.xeoscript.modules.customauthtoken.model.request.TokenRequest;
+import com.xeoscript.modules.customauthtoken.services.TokenService;
+import com.xeoscript.modules.customauthtoken.util.HexCodec;
+import com.xeoscript.modules.customauthtoken.util.TokenHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedTokenDAOTest {
+
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM CUSTOM_AUTH_TOKEN WHERE TOKEN_VALUE = ?";
+
+    private static final String COUNT_ALL_SQL = "SELECT COUNT(*) FROM CUSTOM_AUTH_TOKEN";
+
+    private final String database = "sharded-" + DATABASE_SEQUENCE.incrementAndGet();
+
+    private ConfigurableApplicationContext context;
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void tokensAreStoredOnTheirRoutedShard() {
+        start(3, 0);
+        List<String> tokens = generate(30);
+
+        List<TokenShard> shards = context.getBean(TokenShardRegistry.class).getShards();
+        for (String token : tokens) {
+            int routed = TokenShardRouter.shardFor(token, shards.size());
+            for (TokenShard shard : shards) {
+                assertEquals(shard.getIndex() == routed ? 1 : 0, count(shard, token));
+            }
+        }
+        for (TokenShard shard : shards) {
+            assertTrue(countAll(shard) > 0);
+        }
+    }
+
+    @Test
+    void validateAndInvalidateTouchOneShard() {
+        start(3, 0);
+        String token = generate(1).get(0);
+        TokenDAO tokenDAO = context.getBean(TokenDAO.class);
+        TokenQueryCounter queryCounter = context.getBean(TokenQueryCounter.class);
+        queryCounter.reset();
+
+        String hashed = HexCodec.encode(TokenHasher.digest(token));
+        assertTrue(tokenDAO.validateAndIncrement(token, hashed, "user-0@example.com", null, LocalDateTime.now())
+                .isValid());
+        assertEquals(2, queryCounter.reset());
+
+        assertEquals(1, tokenDAO.invalidate(token));
+        assertEquals(1, queryCounter.reset());
+    }
+
+    @Test
+    void deleteExpiredRunsOnEveryShard() {
+        start(3, 0);
+        List<TokenShard> shards = context.getBean(TokenShardRegistry.class).getShards();
+        for (TokenShard shard : shards) {
+            for (int i = 0; i < 5; i++) {
+                saveExpired(shard, "expired-" + shard.getIndex() + "-" + i);
+            }
+        }
+        generate(10);
+
+        assertEquals(15, context.getBean(TokenDAO.class).deleteExpired(LocalDateTime.now()));
+        long remaining = 0;
+        for (TokenShard shard : shards) {
+            remaining += countAll(shard);
+        }
+        assertEquals(10, remaining);
+    }
+
+    @Test
+    void rebalanceMovesRowsToTheGrownLayout() {
+        start(2, 0);
+        List<String> tokens = generate(40);
+        context.close();
+
+        start(3, 2);
+        TokenDAO tokenDAO = context.getBean(TokenDAO.class);
+        for (String token : tokens) {
+            assertNotNull(tokenDAO.findByTokenValue(token));
+        }
+
+        assertTrue(context.getBean(TokenShardRebalancer.class).rebalance() > 0);
+
+        List<TokenShard> shards = context.getBean(TokenShardRegistry.class).getShards();
+        for (String token : tokens) {
+            int routed = TokenShardRouter.shardFor(token, 3);
+            for (TokenShard shard : shards) {
+                assertEquals(shard.getIndex() == routed ? 1 : 0, count(shard, token));
+            }
+        }
+        context.close();
+
+        start(3, 0);
+        tokenDAO = context.getBean(TokenDAO.class);
+        for (String token : tokens) {
+            assertNotNull(tokenDAO.findByTokenValue(token));
+        }
+    }
+
+    private void start(int shardCount, int previousShardCount) {
+        StringJoiner urls = new StringJoiner(",");
+        for (int i = 0; i < shardCount; i++) {
+            urls.add("jdbc:h2:mem:" + database + "-" + i + ";DB_CLOSE_DELAY=-1");
+        }
+
+        context = new SpringApplicationBuilder(TokenTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.custom-auth-token.store=sharded",
+                        "spring.custom-auth-token.shard-jdbc-urls=" + urls,
+                        "spring.custom-auth-token.shard-initialize-schema=true",
+                        "spring.custom-auth-token.shard-previous-count=" + previousShardCount)
+                .run();
+    }
+
+    private List<String> generate(int count) {
+        TokenService tokenService = context.getBean(TokenService.class);
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(tokenService.generate(TokenRequest.builder().parameter("user-" + i + "@example.com").build())
+                    .getToken());
+        }
+        return tokens;
+    }
+
+    private static void saveExpired(TokenShard shard, String tokenValue) {
+        TokenEntity entity = new TokenEntity();
+        entity.setTokenValue(tokenValue);
+        entity.setParameterValue("expired@example.com");
+        entity.setStatus(TokenStatus.ACTIVE);
+        entity.setExpiryTime(LocalDateTime.now().minusMinutes(1));
+        entity.setHashingMode("NONE");
+        shard.inTransaction(current -> {
+            current.getTokenDAO().save(entity);
+            return null;
+        });
+    }
+
+    private static long count(TokenShard shard, String tokenValue) {
+        return shard.getJdbcTemplate().queryForObject(COUNT_SQL, Long.class, tokenValue);
+    }
+
+    private static long countAll(TokenShard shard) {
+        return shard.getJdbcTemplate().queryForObject(COUNT_ALL_SQL, Long.class);
+    }
+}